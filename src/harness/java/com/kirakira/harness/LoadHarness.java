@@ -0,0 +1,262 @@
+package com.kirakira.harness;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线端到端压测工具
+ * <p>
+ * 启动模拟的 Codeforces API 和 OneBot 服务器，可选地向数据库写入测试用的绑定记录，
+ * 然后打印应用需要的启动参数。应用连接上 OneBot 桩服务器后开始计时，定期输出：
+ * API 请求数、通知数、从生成提交到收到通知的延迟分位数，以及从应用的 /actuator/prometheus
+ * 读取的监控轮次耗时和数据库耗时。
+ * <p>
+ * 参数均为 --key=value 形式，见 {@link #DEFAULTS}。
+ */
+public class LoadHarness {
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("cf-port", "18080");
+        DEFAULTS.put("onebot-port", "13001");
+        DEFAULTS.put("self-id", "10000");
+        // 测试用户数及其所在群组数，用户 load_i 在群组 900000 + i % groups 中
+        DEFAULTS.put("handles", "1000");
+        DEFAULTS.put("groups", "20");
+        // 模拟的 API 延迟及抖动（毫秒）
+        DEFAULTS.put("latency-ms", "150");
+        DEFAULTS.put("latency-jitter-ms", "100");
+        // 返回 503 和 429 的概率
+        DEFAULTS.put("error-rate", "0.01");
+        DEFAULTS.put("throttle-rate", "0.01");
+        // 每次请求 user.status 时该用户产生新通过提交的概率
+        DEFAULTS.put("accept-rate", "0.05");
+        DEFAULTS.put("duration-s", "600");
+        DEFAULTS.put("report-interval-s", "30");
+        DEFAULTS.put("connect-timeout-s", "300");
+        DEFAULTS.put("app-url", "http://127.0.0.1:8080");
+        // 为空时不写入绑定记录，需要事先准备好
+        DEFAULTS.put("jdbc-url", "");
+        DEFAULTS.put("jdbc-user", "root");
+        DEFAULTS.put("jdbc-password", "");
+    }
+
+    private static final int FIRST_GROUP_ID = 900000;
+    private static final String HANDLE_PREFIX = "load_";
+    private static final String[] SCRAPED_METRICS = {
+        "monitor_cycle_duration_seconds_count",
+        "monitor_cycle_duration_seconds_sum",
+        "monitor_cycle_overruns_total",
+        "monitor_notification_lag_seconds_count",
+        "monitor_notification_lag_seconds_sum",
+        "db_query_seconds_count",
+        "db_query_seconds_sum",
+        "codeforces_api_latency_seconds_count",
+    };
+
+    private final Map<String, String> options;
+    private final SubmissionLedger ledger = new SubmissionLedger();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private StubCodeforcesServer codeforcesServer;
+    private StubOneBotServer oneBotServer;
+
+    LoadHarness(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("无法识别的参数: " + arg + "，参数格式为 --key=value，可用参数: " + DEFAULTS.keySet());
+                System.exit(2);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            if (!DEFAULTS.containsKey(key)) {
+                System.err.println("未知参数: " + key + "，可用参数: " + DEFAULTS.keySet());
+                System.exit(2);
+            }
+            options.put(key, arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadHarness(options).run();
+    }
+
+    void run() throws Exception {
+        int handles = intOption("handles");
+        int groups = intOption("groups");
+        List<String> groupIds = new ArrayList<>(groups);
+        for (int i = 0; i < groups; i++) {
+            groupIds.add(Integer.toString(FIRST_GROUP_ID + i));
+        }
+
+        if (!options.get("jdbc-url").isEmpty()) {
+            seedBindings(handles, groups);
+        }
+
+        codeforcesServer = new StubCodeforcesServer(intOption("cf-port"), longOption("latency-ms"),
+            longOption("latency-jitter-ms"), doubleOption("error-rate"), doubleOption("throttle-rate"),
+            doubleOption("accept-rate"), ledger);
+        oneBotServer = new StubOneBotServer(intOption("onebot-port"), longOption("self-id"), groupIds, ledger);
+        codeforcesServer.start();
+        oneBotServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+
+        System.out.println("桩服务器已启动，使用以下参数启动应用：");
+        System.out.println("  --codeforces.api.base.url=http://127.0.0.1:" + options.get("cf-port") + "/api"
+            + " --bot.websocket.url=ws://127.0.0.1:" + options.get("onebot-port")
+            + " --codeforces.api.rate.limit.per.second=1000 --codeforces.api.rate.limit.burst=100"
+            + " --bot.error.notification.group.id=" + groupIds.get(0));
+
+        if (!oneBotServer.awaitConnection(longOption("connect-timeout-s"), TimeUnit.SECONDS)) {
+            System.err.println("等待应用连接超时");
+            stop();
+            System.exit(1);
+        }
+        System.out.println("应用已连接，开始计时");
+
+        Map<String, Double> baseline = scrapeMetrics();
+        long durationMs = TimeUnit.SECONDS.toMillis(longOption("duration-s"));
+        long reportIntervalMs = TimeUnit.SECONDS.toMillis(longOption("report-interval-s"));
+        long startedAt = System.currentTimeMillis();
+        long elapsed;
+        while ((elapsed = System.currentTimeMillis() - startedAt) < durationMs) {
+            Thread.sleep(Math.min(reportIntervalMs, durationMs - elapsed));
+            report(System.currentTimeMillis() - startedAt, baseline);
+        }
+        System.out.println("压测结束");
+        stop();
+    }
+
+    private void stop() {
+        if (codeforcesServer != null) {
+            codeforcesServer.stop();
+        }
+        if (oneBotServer != null) {
+            oneBotServer.stop();
+        }
+    }
+
+    /**
+     * 删除上次写入的测试绑定记录，再写入 handles 条新记录
+     */
+    private void seedBindings(int handles, int groups) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(options.get("jdbc-url"), options.get("jdbc-user"),
+            options.get("jdbc-password"))) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM group_user WHERE codeforces_id LIKE '" + HANDLE_PREFIX + "%'");
+                statement.executeUpdate("DELETE FROM poll_cursor WHERE codeforces_id LIKE '" + HANDLE_PREFIX + "%'");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO group_user (group_id, user_qq_id, codeforces_id) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < handles; i++) {
+                    insert.setString(1, Integer.toString(FIRST_GROUP_ID + i % groups));
+                    insert.setString(2, Long.toString(20000000L + i));
+                    insert.setString(3, HANDLE_PREFIX + i);
+                    insert.addBatch();
+                    if (i % 1000 == 999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+        System.out.println("已写入 " + handles + " 条绑定记录");
+    }
+
+    private void report(long elapsedMs, Map<String, Double> baseline) {
+        long[] latencies = ledger.latencyPercentiles(0.5, 0.95, 0.99, 1.0);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("[%4ds] 生成 %d，通知 %d，未送达 %d，无法对应 %d%n", elapsedMs / 1000,
+            ledger.getGenerated(), ledger.getNotified(), ledger.getPending(), ledger.getUnmatched()));
+        sb.append(String.format("       通知延迟 p50 %d ms，p95 %d ms，p99 %d ms，max %d ms%n",
+            latencies[0], latencies[1], latencies[2], latencies[3]));
+        sb.append("       Codeforces API: ").append(codeforcesServer.getCalls()).append('\n');
+        sb.append("       OneBot: ").append(oneBotServer.getActions()).append('\n');
+
+        Map<String, Double> current = scrapeMetrics();
+        if (!current.isEmpty()) {
+            double cycles = delta(current, baseline, "monitor_cycle_duration_seconds_count");
+            double queries = delta(current, baseline, "db_query_seconds_count");
+            double lagCount = delta(current, baseline, "monitor_notification_lag_seconds_count");
+            sb.append(String.format("       监控轮次 %.0f 次，平均 %.1f ms，超时 %.0f 次；数据库查询 %.0f 次，平均 %.2f ms；"
+                    + "应用记录的通知延迟平均 %.1f ms；API 请求 %.0f 次%n",
+                cycles, average(delta(current, baseline, "monitor_cycle_duration_seconds_sum"), cycles),
+                delta(current, baseline, "monitor_cycle_overruns_total"),
+                queries, average(delta(current, baseline, "db_query_seconds_sum"), queries),
+                average(delta(current, baseline, "monitor_notification_lag_seconds_sum"), lagCount),
+                delta(current, baseline, "codeforces_api_latency_seconds_count")));
+        }
+        System.out.print(sb);
+    }
+
+    /**
+     * 读取应用的 Prometheus 指标，同名指标的不同标签求和
+     * @return 指标名 -> 值，应用不可达时为空
+     */
+    private Map<String, Double> scrapeMetrics() {
+        Map<String, Double> metrics = new HashMap<>();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.get("app-url") + "/actuator/prometheus"))
+            .timeout(Duration.ofSeconds(5))
+            .build();
+        String body;
+        try {
+            body = httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        } catch (IOException e) {
+            return metrics;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return metrics;
+        }
+        for (String line : body.split("\n")) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            for (String name : SCRAPED_METRICS) {
+                if (line.startsWith(name + "{") || line.startsWith(name + " ")) {
+                    double value = Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+                    metrics.merge(name, value, Double::sum);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    private static double delta(Map<String, Double> current, Map<String, Double> baseline, String name) {
+        return current.getOrDefault(name, 0.0) - baseline.getOrDefault(name, 0.0);
+    }
+
+    /**
+     * 平均值，单位从秒换算为毫秒
+     */
+    private static double average(double sumSeconds, double count) {
+        return count > 0 ? sumSeconds * 1000 / count : 0;
+    }
+
+    private int intOption(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+    private long longOption(String key) {
+        return Long.parseLong(options.get(key));
+    }
+
+    private double doubleOption(String key) {
+        return Double.parseDouble(options.get(key));
+    }
+}
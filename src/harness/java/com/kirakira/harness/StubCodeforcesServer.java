@@ -0,0 +1,268 @@
+package com.kirakira.harness;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 模拟 Codeforces API 的 HTTP 服务器
+ * <p>
+ * 支持 user.status、user.info、problemset.problems、problemset.recentStatus 和 contest.list。
+ * 每次请求某个用户第一页的 user.status 时，以 acceptRate 的概率为该用户生成一条新的通过提交。
+ * 响应前按 latencyMs ± jitterMs 延迟，并按 throttleRate 返回 429、按 errorRate 返回 503。
+ */
+public class StubCodeforcesServer {
+    private static final String[] INDEXES = { "A", "B", "C", "D", "E", "F" };
+    // 每个用户保留的提交数
+    private static final int HISTORY_SIZE = 100;
+    // 全站提交流保留的提交数
+    private static final int RECENT_SIZE = 1000;
+    private static final int PROBLEMSET_SIZE = 3000;
+
+    private final int port;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final double throttleRate;
+    private final double acceptRate;
+    private final SubmissionLedger ledger;
+
+    private final AtomicLong nextSubmissionId = new AtomicLong(300_000_000L);
+    private final Map<String, HandleState> handles = new ConcurrentHashMap<>();
+    private final Deque<String> recentSubmissions = new ArrayDeque<>();
+    // API 方法/结果 -> 请求数
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+    private final byte[] problemset;
+    private HttpServer server;
+
+    public StubCodeforcesServer(int port, long latencyMs, long jitterMs, double errorRate, double throttleRate,
+                                double acceptRate, SubmissionLedger ledger) {
+        this.port = port;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.acceptRate = acceptRate;
+        this.ledger = ledger;
+        this.problemset = buildProblemset().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 256);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(32));
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 各 API 方法按结果统计的请求数
+     * @return "方法 结果" -> 请求数，按名称排序
+     */
+    public Map<String, Long> getCalls() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        calls.forEach((key, count) -> snapshot.put(key, count.get()));
+        return snapshot;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = path.substring(path.lastIndexOf('/') + 1);
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        try {
+            sleep();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < throttleRate) {
+                count(method, "429");
+                respond(exchange, 429, "{\"status\":\"FAILED\",\"comment\":\"Call limit exceeded\"}");
+                return;
+            }
+            if (random.nextDouble() < errorRate) {
+                count(method, "503");
+                respond(exchange, 503, "<html><body>Codeforces is temporarily unavailable</body></html>");
+                return;
+            }
+
+            String body;
+            switch (method) {
+                case "user.status" -> body = userStatus(query.get("handle"),
+                    Integer.parseInt(query.getOrDefault("from", "1")), Integer.parseInt(query.getOrDefault("count", "10")));
+                case "user.info" -> body = userInfo(query.getOrDefault("handles", ""));
+                case "problemset.recentStatus" -> body = recentStatus(Integer.parseInt(query.getOrDefault("count", "100")));
+                case "contest.list" -> body = "{\"status\":\"OK\",\"result\":[]}";
+                case "problemset.problems" -> {
+                    count(method, "200");
+                    respond(exchange, 200, problemset);
+                    return;
+                }
+                default -> {
+                    count(method, "404");
+                    respond(exchange, 404, "{\"status\":\"FAILED\",\"comment\":\"Unknown method\"}");
+                    return;
+                }
+            }
+            count(method, "200");
+            respond(exchange, 200, body);
+        } catch (RuntimeException e) {
+            count(method, "500");
+            respond(exchange, 500, "{\"status\":\"FAILED\",\"comment\":\"" + e + "\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String userStatus(String handle, int from, int count) {
+        HandleState state = handles.computeIfAbsent(handle.toLowerCase(), k -> new HandleState(handle));
+        List<String> page;
+        synchronized (state) {
+            if (from == 1 && ThreadLocalRandom.current().nextDouble() < acceptRate) {
+                String submission = state.newAccepted();
+                synchronized (recentSubmissions) {
+                    recentSubmissions.addFirst(submission);
+                    if (recentSubmissions.size() > RECENT_SIZE) {
+                        recentSubmissions.removeLast();
+                    }
+                }
+            }
+            page = new ArrayList<>(state.submissions).subList(Math.min(from - 1, state.submissions.size()),
+                Math.min(from - 1 + count, state.submissions.size()));
+        }
+        return "{\"status\":\"OK\",\"result\":[" + String.join(",", page) + "]}";
+    }
+
+    private String recentStatus(int count) {
+        List<String> page;
+        synchronized (recentSubmissions) {
+            page = new ArrayList<>(recentSubmissions);
+        }
+        return "{\"status\":\"OK\",\"result\":[" + String.join(",", page.subList(0, Math.min(count, page.size()))) + "]}";
+    }
+
+    private static String userInfo(String handles) {
+        List<String> users = new ArrayList<>();
+        for (String handle : handles.split(";")) {
+            if (!handle.isEmpty()) {
+                users.add("{\"handle\":\"" + handle + "\",\"rating\":1500,\"rank\":\"specialist\"}");
+            }
+        }
+        return "{\"status\":\"OK\",\"result\":[" + String.join(",", users) + "]}";
+    }
+
+    private static String buildProblemset() {
+        List<String> problems = new ArrayList<>(PROBLEMSET_SIZE);
+        for (int i = 0; i < PROBLEMSET_SIZE; i++) {
+            int contestId = 1000 + i / INDEXES.length;
+            String index = INDEXES[i % INDEXES.length];
+            problems.add("{\"contestId\":" + contestId + ",\"index\":\"" + index + "\",\"name\":\"Problem " + contestId + index
+                + "\",\"type\":\"PROGRAMMING\",\"rating\":" + rating(contestId, index) + ",\"tags\":[\"implementation\"]}");
+        }
+        return "{\"status\":\"OK\",\"result\":{\"problems\":[" + String.join(",", problems) + "],\"problemStatistics\":[]}}";
+    }
+
+    private static int rating(int contestId, String index) {
+        return 800 + (contestId + index.charAt(0)) % 20 * 100;
+    }
+
+    private void sleep() {
+        long delay = latencyMs;
+        if (jitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void count(String method, String outcome) {
+        calls.computeIfAbsent(method + " " + outcome, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * 单个用户的提交历史，最新的在前
+     */
+    private class HandleState {
+        private final String handle;
+        private final Deque<String> submissions = new ArrayDeque<>();
+        private int solved;
+
+        HandleState(String handle) {
+            this.handle = handle;
+        }
+
+        /**
+         * 生成一条新的通过提交，每次都是该用户没做过的题目
+         * @return 提交的 JSON
+         */
+        String newAccepted() {
+            int contestId = 1000 + solved / INDEXES.length;
+            String index = INDEXES[solved % INDEXES.length];
+            solved++;
+            long now = System.currentTimeMillis();
+            long id = nextSubmissionId.incrementAndGet();
+            String json = "{\"id\":" + id + ",\"contestId\":" + contestId + ",\"creationTimeSeconds\":" + now / 1000
+                + ",\"relativeTimeSeconds\":2147483647,\"problem\":{\"contestId\":" + contestId + ",\"index\":\"" + index
+                + "\",\"name\":\"Problem " + contestId + index + "\",\"type\":\"PROGRAMMING\",\"rating\":" + rating(contestId, index)
+                + ",\"tags\":[\"implementation\"]},\"author\":{\"contestId\":" + contestId + ",\"members\":[{\"handle\":\""
+                + handle + "\"}],\"participantType\":\"PRACTICE\",\"ghost\":false},\"programmingLanguage\":\"GNU C++20 (64)\","
+                + "\"verdict\":\"OK\",\"testset\":\"TESTS\",\"passedTestCount\":20,\"timeConsumedMillis\":31,\"memoryConsumedBytes\":0}";
+            submissions.addFirst(json);
+            if (submissions.size() > HISTORY_SIZE) {
+                submissions.removeLast();
+            }
+            ledger.recordGenerated(handle, contestId + index, now);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.kirakira.harness;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * 模拟 OneBot 实现的正向 WebSocket 服务器
+ * <p>
+ * 只实现 Bot 需要的部分：连接后推送 lifecycle 事件和心跳，对所有 API 调用返回成功。
+ * 发往群组的消息（包括合并转发中的每个节点）按行解析，与 {@link SubmissionLedger} 中的提交对应。
+ */
+public class StubOneBotServer {
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final Pattern NOTIFICATION_LINE = Pattern.compile("^(\\S+) 通过了 (\\S+) \\(");
+    private static final long HEARTBEAT_INTERVAL_MS = 5000;
+
+    private final int port;
+    private final long selfId;
+    private final List<String> groupIds;
+    private final SubmissionLedger ledger;
+
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+    private final CountDownLatch connected = new CountDownLatch(1);
+    // OneBot 动作 -> 调用数
+    private final Map<String, AtomicLong> actions = new ConcurrentHashMap<>();
+    private final AtomicLong messages = new AtomicLong();
+    private ServerSocket serverSocket;
+
+    public StubOneBotServer(int port, long selfId, List<String> groupIds, SubmissionLedger ledger) {
+        this.port = port;
+        this.selfId = selfId;
+        this.groupIds = groupIds;
+        this.ledger = ledger;
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        System.err.println("OneBot 桩服务器接受连接失败: " + e);
+                    }
+                }
+            }
+        }, "stub-onebot-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException ignored) {
+        }
+        heartbeat.shutdownNow();
+        connections.shutdownNow();
+    }
+
+    /**
+     * 等待 Bot 连接
+     * @return 超时前是否已连接
+     */
+    public boolean awaitConnection(long timeout, TimeUnit unit) throws InterruptedException {
+        return connected.await(timeout, unit);
+    }
+
+    /**
+     * 各 OneBot 动作的调用数
+     * @return 动作 -> 调用数，按名称排序
+     */
+    public Map<String, Long> getActions() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        actions.forEach((action, count) -> snapshot.put(action, count.get()));
+        return snapshot;
+    }
+
+    /**
+     * 收到的群消息数（一条合并转发计为一条）
+     */
+    public long getMessages() {
+        return messages.get();
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            if (!handshake(in, out)) {
+                return;
+            }
+            connected.countDown();
+            send(out, event("lifecycle").put("sub_type", "connect"));
+            var task = heartbeat.scheduleAtFixedRate(() -> {
+                try {
+                    send(out, event("heartbeat").put("interval", HEARTBEAT_INTERVAL_MS)
+                        .put("status", new JSONObject().put("online", true).put("good", true)));
+                } catch (IOException ignored) {
+                }
+            }, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            try {
+                while (true) {
+                    String text = readMessage(in, out);
+                    if (text == null) {
+                        return;
+                    }
+                    send(out, onRequest(new JSONObject(text)));
+                }
+            } finally {
+                task.cancel(false);
+            }
+        } catch (IOException e) {
+            System.err.println("OneBot 连接断开: " + e);
+        }
+    }
+
+    private JSONObject onRequest(JSONObject request) {
+        String action = request.optString("action");
+        JSONObject params = request.optJSONObject("params", new JSONObject());
+        actions.computeIfAbsent(action, k -> new AtomicLong()).incrementAndGet();
+
+        Object data = null;
+        switch (action) {
+            case "get_login_info" -> data = new JSONObject().put("user_id", selfId).put("nickname", "kirakira");
+            case "get_version_info" -> data = new JSONObject().put("app_name", "stub-onebot").put("app_version", "1.0.0")
+                .put("protocol_version", "v11");
+            case "get_group_list" -> {
+                JSONArray groups = new JSONArray();
+                for (String groupId : groupIds) {
+                    groups.put(new JSONObject().put("group_id", Long.parseLong(groupId)).put("group_name", "group " + groupId)
+                        .put("member_count", 50).put("max_member_count", 500));
+                }
+                data = groups;
+            }
+            case "send_group_msg" -> {
+                onGroupMessage(params.opt("message"));
+                data = new JSONObject().put("message_id", messages.get());
+            }
+            case "send_group_forward_msg" -> {
+                JSONArray nodes = params.optJSONArray("messages", new JSONArray());
+                for (int i = 0; i < nodes.length(); i++) {
+                    JSONObject node = nodes.getJSONObject(i).optJSONObject("data", new JSONObject());
+                    onGroupMessage(node.opt("content"));
+                }
+                data = new JSONObject().put("message_id", messages.get()).put("forward_id", "stub");
+            }
+            default -> {
+                if (action.startsWith("get_") && action.endsWith("_list")) {
+                    data = new JSONArray();
+                }
+            }
+        }
+        if (action.startsWith("send_group")) {
+            messages.incrementAndGet();
+        }
+        return new JSONObject().put("status", "ok").put("retcode", 0).put("data", data == null ? JSONObject.NULL : data)
+            .put("echo", request.opt("echo"));
+    }
+
+    private void onGroupMessage(Object message) {
+        long now = System.currentTimeMillis();
+        for (String line : messageText(message).split("\n")) {
+            Matcher matcher = NOTIFICATION_LINE.matcher(line);
+            if (matcher.find()) {
+                ledger.recordNotified(matcher.group(1), matcher.group(2), now);
+            }
+        }
+    }
+
+    /**
+     * 取出消息中的文本，消息可能是字符串，也可能是消息段数组
+     */
+    private static String messageText(Object message) {
+        if (message instanceof JSONArray segments) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < segments.length(); i++) {
+                JSONObject segment = segments.optJSONObject(i);
+                if (segment != null && "text".equals(segment.optString("type"))) {
+                    sb.append(segment.optJSONObject("data", new JSONObject()).optString("text"));
+                }
+            }
+            return sb.toString();
+        }
+        return message == null ? "" : message.toString();
+    }
+
+    private JSONObject event(String metaEventType) {
+        return new JSONObject().put("time", System.currentTimeMillis() / 1000).put("self_id", selfId)
+            .put("post_type", "meta_event").put("meta_event_type", metaEventType);
+    }
+
+    private static boolean handshake(InputStream in, OutputStream out) throws IOException {
+        String key = null;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+        if (key == null) {
+            out.write("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            return false;
+        }
+        String accept;
+        try {
+            accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                .digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+            + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return true;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 读取一条完整的文本消息，处理分片、ping 和 close
+     * @return 消息文本，连接关闭时为 null
+     */
+    private static String readMessage(InputStream in, OutputStream out) throws IOException {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        while (true) {
+            int b0 = in.read();
+            if (b0 < 0) {
+                return null;
+            }
+            boolean fin = (b0 & 0x80) != 0;
+            int opcode = b0 & 0x0F;
+            int b1 = readByte(in);
+            boolean masked = (b1 & 0x80) != 0;
+            long length = b1 & 0x7F;
+            if (length == 126) {
+                length = (readByte(in) << 8) | readByte(in);
+            } else if (length == 127) {
+                length = 0;
+                for (int i = 0; i < 8; i++) {
+                    length = (length << 8) | readByte(in);
+                }
+            }
+            byte[] mask = masked ? in.readNBytes(4) : null;
+            byte[] payload = in.readNBytes((int) length);
+            if (payload.length < length) {
+                return null;
+            }
+            if (masked) {
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i % 4];
+                }
+            }
+            switch (opcode) {
+                case 0x8 -> {
+                    writeFrame(out, 0x8, payload);
+                    return null;
+                }
+                case 0x9 -> writeFrame(out, 0xA, payload);
+                case 0xA -> {
+                }
+                default -> {
+                    message.write(payload);
+                    if (fin) {
+                        return message.toString(StandardCharsets.UTF_8);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static void send(OutputStream out, JSONObject json) throws IOException {
+        writeFrame(out, 0x1, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeFrame(OutputStream out, int opcode, byte[] payload) throws IOException {
+        // 心跳线程和连接线程共用输出流
+        synchronized (out) {
+            out.write(0x80 | opcode);
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else if (payload.length < 65536) {
+                out.write(126);
+                out.write(payload.length >>> 8);
+                out.write(payload.length & 0xFF);
+            } else {
+                out.write(127);
+                for (int i = 7; i >= 0; i--) {
+                    out.write((int) ((long) payload.length >>> (8 * i)) & 0xFF);
+                }
+            }
+            out.write(payload);
+            out.flush();
+        }
+    }
+}
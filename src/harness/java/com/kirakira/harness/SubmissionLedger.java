@@ -0,0 +1,96 @@
+package com.kirakira.harness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录桩服务器生成的通过提交，并在收到群通知时计算从提交到通知送达的延迟
+ */
+public class SubmissionLedger {
+    // 用户名（小写）/题目编号 -> 提交生成时间（毫秒）
+    private final Map<String, Long> generatedAt = new ConcurrentHashMap<>();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong notified = new AtomicLong();
+    private final AtomicLong unmatched = new AtomicLong();
+    private final List<Long> latencies = new ArrayList<>();
+
+    /**
+     * 记录一条新生成的通过提交
+     * @param handle 用户名
+     * @param problemId 题目编号
+     * @param timeMs 生成时间（毫秒）
+     */
+    public void recordGenerated(String handle, String problemId, long timeMs) {
+        generatedAt.put(key(handle, problemId), timeMs);
+        generated.incrementAndGet();
+    }
+
+    /**
+     * 记录一条收到的通知
+     * @param handle 通知中的用户名
+     * @param problemId 通知中的题目编号
+     * @param receivedAtMs 收到时间（毫秒）
+     */
+    public void recordNotified(String handle, String problemId, long receivedAtMs) {
+        // 同一提交可能因为用户在多个群中而被通知多次，只记录第一次送达
+        Long createdAt = generatedAt.remove(key(handle, problemId));
+        if (createdAt == null) {
+            unmatched.incrementAndGet();
+            return;
+        }
+        notified.incrementAndGet();
+        synchronized (latencies) {
+            latencies.add(receivedAtMs - createdAt);
+        }
+    }
+
+    public long getGenerated() {
+        return generated.get();
+    }
+
+    public long getNotified() {
+        return notified.get();
+    }
+
+    public long getUnmatched() {
+        return unmatched.get();
+    }
+
+    /**
+     * 尚未收到通知的提交数
+     */
+    public int getPending() {
+        return generatedAt.size();
+    }
+
+    /**
+     * 通知延迟的分位数
+     * @param quantiles 分位数（0 到 1）
+     * @return 对应的延迟（毫秒），尚无数据时为 -1
+     */
+    public long[] latencyPercentiles(double... quantiles) {
+        List<Long> sorted;
+        synchronized (latencies) {
+            sorted = new ArrayList<>(latencies);
+        }
+        Collections.sort(sorted);
+        long[] result = new long[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            if (sorted.isEmpty()) {
+                result[i] = -1;
+                continue;
+            }
+            int rank = (int) Math.ceil(quantiles[i] * sorted.size()) - 1;
+            result[i] = sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank)));
+        }
+        return result;
+    }
+
+    private static String key(String handle, String problemId) {
+        return handle.toLowerCase() + "/" + problemId;
+    }
+}
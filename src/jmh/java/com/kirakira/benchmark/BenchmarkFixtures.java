@@ -0,0 +1,495 @@
+package com.kirakira.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kirakira.client.CodeforcesClient;
+import com.kirakira.client.CodeforcesRateLimiter;
+import com.kirakira.client.MessageDispatcher;
+import com.kirakira.client.OverflowClient;
+import com.kirakira.entity.GroupUser;
+import com.kirakira.entity.OutboxNotification;
+import com.kirakira.entity.Problem;
+import com.kirakira.entity.SolveStats;
+import com.kirakira.entity.Submission;
+import com.kirakira.entity.SubmissionPage;
+import com.kirakira.entity.dto.codeforces.CfAuthorDto;
+import com.kirakira.entity.dto.codeforces.CfMemberDto;
+import com.kirakira.entity.dto.codeforces.CfProblemDto;
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+import com.kirakira.entity.dto.codeforces.CfUserDto;
+import com.kirakira.repository.GroupUserRepository;
+import com.kirakira.repository.NotificationOutboxRepository;
+import com.kirakira.repository.PollCursorRepository;
+import com.kirakira.repository.ProblemRepository;
+import com.kirakira.repository.SolveStatsRepository;
+import com.kirakira.repository.SubmissionRepository;
+import com.kirakira.service.ClusterMembership;
+import com.kirakira.service.NotificationOutbox;
+import com.kirakira.service.SolveStatistics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 基准测试共用的桩实现和测试数据
+ * <p>
+ * 桩实现不访问网络和数据库：Codeforces 客户端按轮次生成提交，仓库只在内存中保存数据，
+ * 消息客户端只统计收到的消息行数。
+ */
+public final class BenchmarkFixtures {
+    // 每个群组绑定的用户数
+    public static final int HANDLES_PER_GROUP = 50;
+
+    private static final String[] LANGUAGES = { "GNU C++20 (64)", "Python 3", "Java 21", "Rust 2021" };
+    private static final String[] VERDICTS = { "OK", "WRONG_ANSWER", "TIME_LIMIT_EXCEEDED", "OK", "OK" };
+    private static final String[] TAGS = { "implementation", "math", "greedy", "dp", "brute force" };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 生成用户名
+     * @param i 序号
+     * @return 用户名
+     */
+    public static String handle(int i) {
+        return "user_" + i;
+    }
+
+    /**
+     * 生成绑定记录：每 {@link #HANDLES_PER_GROUP} 个用户一个群组，每个用户一个 QQ 号
+     * @param handleCount 用户数
+     * @return 绑定记录
+     */
+    public static List<GroupUser> groupUsers(int handleCount) {
+        List<GroupUser> groupUsers = new ArrayList<>(handleCount);
+        for (int i = 0; i < handleCount; i++) {
+            GroupUser groupUser = new GroupUser();
+            groupUser.setId(i + 1);
+            groupUser.setGroupId(Integer.toString(100000 + i / HANDLES_PER_GROUP));
+            groupUser.setUserQqId(Long.toString(10000000L + i));
+            groupUser.setCodeforcesId(handle(i));
+            groupUsers.add(groupUser);
+        }
+        return groupUsers;
+    }
+
+    /**
+     * 生成与 user.status 格式一致的响应体，包含监控不需要的字段
+     * @param handle 用户名
+     * @param count 提交数
+     * @return JSON 响应体
+     */
+    public static byte[] userStatusJson(String handle, int count) {
+        StringBuilder sb = new StringBuilder(count * 640);
+        sb.append("{\"status\":\"OK\",\"result\":[");
+        long id = 250_000_000L + count;
+        for (int i = 0; i < count; i++, id--) {
+            int contestId = 2000 - i / 5;
+            char index = (char) ('A' + i % 5);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(id)
+                .append(",\"contestId\":").append(contestId)
+                .append(",\"creationTimeSeconds\":").append(1_700_000_000L - i * 60L)
+                .append(",\"relativeTimeSeconds\":2147483647")
+                .append(",\"problem\":{\"contestId\":").append(contestId)
+                .append(",\"index\":\"").append(index).append('"')
+                .append(",\"name\":\"Problem ").append(contestId).append(index).append('"')
+                .append(",\"type\":\"PROGRAMMING\",\"points\":").append(500 * (i % 5 + 1))
+                .append(",\"rating\":").append(800 + (i % 20) * 100)
+                .append(",\"tags\":[\"").append(TAGS[i % TAGS.length]).append("\",\"")
+                .append(TAGS[(i + 2) % TAGS.length]).append("\"]}")
+                .append(",\"author\":{\"contestId\":").append(contestId)
+                .append(",\"members\":[{\"handle\":\"").append(handle).append("\"}]")
+                .append(",\"participantType\":\"PRACTICE\",\"ghost\":false,\"startTimeSeconds\":1699990000}")
+                .append(",\"programmingLanguage\":\"").append(LANGUAGES[i % LANGUAGES.length]).append('"')
+                .append(",\"verdict\":\"").append(VERDICTS[i % VERDICTS.length]).append('"')
+                .append(",\"testset\":\"TESTS\",\"passedTestCount\":").append(10 + i % 30)
+                .append(",\"timeConsumedMillis\":").append(15 * (i % 40))
+                .append(",\"memoryConsumedBytes\":").append(262144L * (i % 64))
+                .append('}');
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 生成一条通过的提交
+     * @param handle 用户名
+     * @param id 提交 ID
+     * @param contestId 比赛 ID
+     * @param index 题号
+     * @return 提交
+     */
+    public static CfSubmissionDto acceptedSubmission(String handle, long id, int contestId, String index) {
+        CfProblemDto problem = new CfProblemDto();
+        problem.setContestId(contestId);
+        problem.setIndex(index);
+        problem.setRating(800 + contestId % 20 * 100);
+
+        CfMemberDto member = new CfMemberDto();
+        member.setHandle(handle);
+        CfAuthorDto author = new CfAuthorDto();
+        List<CfMemberDto> members = new ArrayList<>(1);
+        members.add(member);
+        author.setMembers(members);
+
+        CfSubmissionDto submission = new CfSubmissionDto();
+        submission.setId(id);
+        submission.setCreationTime(System.currentTimeMillis() / 1000);
+        submission.setVerdict("OK");
+        submission.setProblem(problem);
+        submission.setAuthor(author);
+        return submission;
+    }
+
+    /**
+     * 不做任何事的事务管理器
+     */
+    public static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        });
+    }
+
+    /**
+     * 每轮为每个用户返回一个新通过的提交的 Codeforces 客户端
+     * <p>
+     * 第 n 轮的提交都是比赛 n 的 A 题，因此每轮都会经过去重、写库和通知的完整流程。
+     */
+    public static class StubCodeforcesClient extends CodeforcesClient {
+        private final AtomicLong round = new AtomicLong();
+
+        public StubCodeforcesClient() {
+            super(null, new CodeforcesRateLimiter(1_000_000, 1_000_000), new SimpleMeterRegistry(), "http://localhost/api",
+                30, 5, 100, 5);
+        }
+
+        /**
+         * 进入下一轮
+         * @return 新的轮次，从 1 开始
+         */
+        public long nextRound() {
+            return round.incrementAndGet();
+        }
+
+        @Override
+        public SubmissionPage getSubmissionsAfter(String handle, Long cursor) {
+            long currentRound = round.get();
+            long base = cursor != null ? cursor : 0;
+            List<CfSubmissionDto> accepted = new ArrayList<>(1);
+            accepted.add(acceptedSubmission(handle, base + currentRound, (int) currentRound, "A"));
+            return SubmissionPage.builder()
+                .handle(handle)
+                .accepted(accepted)
+                .newSubmissionCount(1)
+                .nextCursor(base + currentRound)
+                .build();
+        }
+
+        @Override
+        public List<CfUserDto> getUserInfo(List<String> handles) {
+            List<CfUserDto> users = new ArrayList<>(handles.size());
+            for (String handle : handles) {
+                CfUserDto user = new CfUserDto();
+                user.setHandle(handle);
+                users.add(user);
+            }
+            return users;
+        }
+    }
+
+    /**
+     * 不连接 Bot、只统计消息行数的消息客户端
+     */
+    public static class StubOverflowClient extends OverflowClient {
+        private static final String OK_RESPONSE = "{\"retcode\":0}";
+        private final AtomicLong deliveredLines = new AtomicLong();
+
+        public StubOverflowClient() {
+            super(new MessageDispatcher(0, 1, new SimpleMeterRegistry()), 3000, 3);
+        }
+
+        @Override
+        public CompletableFuture<String> sendLinesToGroup(String groupId, List<String> lines) {
+            deliveredLines.addAndGet(lines.size());
+            return CompletableFuture.completedFuture(OK_RESPONSE);
+        }
+
+        @Override
+        public CompletableFuture<Integer> sendLinesInOrder(String groupId, List<String> lines) {
+            deliveredLines.addAndGet(lines.size());
+            return CompletableFuture.completedFuture(lines.size());
+        }
+
+        public long getDeliveredLines() {
+            return deliveredLines.get();
+        }
+    }
+
+    /**
+     * 内存中的绑定记录
+     */
+    public static class InMemoryGroupUserRepository extends GroupUserRepository {
+        private final List<GroupUser> groupUsers;
+
+        public InMemoryGroupUserRepository(List<GroupUser> groupUsers) {
+            super(null);
+            this.groupUsers = new ArrayList<>(groupUsers);
+        }
+
+        @Override
+        public List<GroupUser> enumerateAllGroupUsers() {
+            return new ArrayList<>(groupUsers);
+        }
+
+        @Override
+        public boolean addGroupUser(GroupUser groupUser) {
+            return groupUsers.add(groupUser);
+        }
+
+        @Override
+        public void batchAddGroupUsers(List<GroupUser> groupUsers) {
+            this.groupUsers.addAll(groupUsers);
+        }
+
+        @Override
+        public boolean removeGroupUser(String groupId, String codeforcesId) {
+            return groupUsers.removeIf(groupUser -> groupUser.getGroupId().equals(groupId)
+                && groupUser.getCodeforcesId().equalsIgnoreCase(codeforcesId));
+        }
+
+        @Override
+        public boolean removeGroupUserBinding(String groupId, String qqId, String codeforcesId) {
+            return groupUsers.removeIf(groupUser -> groupUser.getGroupId().equals(groupId)
+                && groupUser.getUserQqId().equals(qqId) && groupUser.getCodeforcesId().equalsIgnoreCase(codeforcesId));
+        }
+    }
+
+    /**
+     * 插入总是成功、不保存数据的提交记录仓库
+     */
+    public static class InMemorySubmissionRepository extends SubmissionRepository {
+        public InMemorySubmissionRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean checkIfUserFinishedProblem(String problemId, String codeforcesId) {
+            return false;
+        }
+
+        @Override
+        public void forEachFinishedProblem(BiConsumer<String, String> consumer) {
+        }
+
+        @Override
+        public List<Submission> batchInsertSubmissions(List<Submission> submissions) {
+            return new ArrayList<>(submissions);
+        }
+    }
+
+    /**
+     * 内存中的通知发件箱，不区分重试时间，已发送的通知直接删除
+     */
+    public static class InMemoryNotificationOutboxRepository extends NotificationOutboxRepository {
+        private final TreeMap<Long, OutboxNotification> pending = new TreeMap<>();
+        private long nextId = 1;
+
+        public InMemoryNotificationOutboxRepository() {
+            super(null);
+        }
+
+        @Override
+        public synchronized int batchEnqueue(List<OutboxNotification> notifications) {
+            for (OutboxNotification notification : notifications) {
+                notification.setId(nextId++);
+                notification.setDue(true);
+                pending.put(notification.getId(), notification);
+            }
+            return notifications.size();
+        }
+
+        @Override
+        public synchronized List<OutboxNotification> enumerateDue(int limit) {
+            return pending.values().stream().limit(limit).collect(Collectors.toList());
+        }
+
+        @Override
+        public synchronized Map<String, OutboxNotification> enumerateGroupHeads(Collection<String> groupIds) {
+            Map<String, OutboxNotification> heads = new HashMap<>();
+            for (OutboxNotification notification : pending.values()) {
+                if (groupIds.contains(notification.getGroupId())) {
+                    heads.putIfAbsent(notification.getGroupId(), notification);
+                }
+            }
+            return heads;
+        }
+
+        @Override
+        public synchronized int claim(List<Long> ids, String claimToken) {
+            int claimed = 0;
+            for (Long id : ids) {
+                claimed += pending.containsKey(id) ? 1 : 0;
+            }
+            return claimed;
+        }
+
+        @Override
+        public void release(List<Long> ids, String claimToken) {
+        }
+
+        @Override
+        public synchronized int markSent(List<Long> ids, String claimToken) {
+            int removed = 0;
+            for (Long id : ids) {
+                removed += pending.remove(id) != null ? 1 : 0;
+            }
+            return removed;
+        }
+
+        @Override
+        public synchronized int markAbandoned(List<Long> ids, String claimToken) {
+            return markSent(ids, claimToken);
+        }
+
+        @Override
+        public synchronized void recordFailure(String groupId, List<Long> ids, String claimToken, long delayMs) {
+            for (Long id : ids) {
+                OutboxNotification notification = pending.get(id);
+                if (notification != null) {
+                    notification.setAttempts(notification.getAttempts() + 1);
+                }
+            }
+        }
+
+        @Override
+        public int requeueInterrupted() {
+            return 0;
+        }
+
+        @Override
+        public void deferGroupUntil(String groupId, LocalDateTime nextAttemptAt) {
+        }
+
+        @Override
+        public int purgeFinished(long retentionMs) {
+            return 0;
+        }
+    }
+
+    /**
+     * 内存中的提交游标
+     */
+    public static class InMemoryPollCursorRepository extends PollCursorRepository {
+        private final Map<String, Long> cursors = new HashMap<>();
+
+        public InMemoryPollCursorRepository() {
+            super(null);
+        }
+
+        @Override
+        public synchronized Map<String, Long> enumerateAllCursors() {
+            return new HashMap<>(cursors);
+        }
+
+        @Override
+        public synchronized void batchUpdateCursors(Map<String, Long> updates) {
+            updates.forEach((handle, cursor) -> cursors.merge(handle.toLowerCase(), cursor, Math::max));
+        }
+    }
+
+    /**
+     * 不保存数据的过题统计仓库，统计的合并仍在 {@link SolveStatistics} 中完成
+     */
+    public static class DiscardingSolveStatsRepository extends SolveStatsRepository {
+        public DiscardingSolveStatsRepository() {
+            super(null);
+        }
+
+        @Override
+        public void batchIncrement(List<SolveStats> increments) {
+        }
+
+        @Override
+        public List<SolveStats> queryGroupLeaderboard(String groupId, String bucketType, LocalDate bucketStart, int limit) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 使用 {@link DiscardingSolveStatsRepository} 的过题统计
+     */
+    public static SolveStatistics solveStatistics() {
+        return new SolveStatistics(new DiscardingSolveStatsRepository(), null, null, "Asia/Shanghai");
+    }
+
+    /**
+     * 使用内存发件箱的通知发送器，需要调用 start() 启动发送线程
+     * @param repository 内存发件箱
+     * @param overflowClient 消息客户端
+     */
+    public static NotificationOutbox notificationOutbox(InMemoryNotificationOutboxRepository repository, OverflowClient overflowClient) {
+        return new NotificationOutbox(repository, overflowClient, standaloneCluster(), new SimpleMeterRegistry(),
+            200, 1000, 5000, 600000, 12, 72);
+    }
+
+    /**
+     * 未启用多实例的节点成员，负责全部用户并总是视为 leader
+     */
+    public static ClusterMembership standaloneCluster() {
+        return new ClusterMembership(null, new SimpleMeterRegistry(), false, "", 30000, 10000, 128);
+    }
+
+    /**
+     * 空的题目表
+     */
+    public static class EmptyProblemRepository extends ProblemRepository {
+        public EmptyProblemRepository() {
+            super(null);
+        }
+
+        @Override
+        public List<Problem> enumerateAllProblems() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Problem queryProblemById(String problemId) {
+            return null;
+        }
+    }
+}
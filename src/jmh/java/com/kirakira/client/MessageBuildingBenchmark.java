@@ -0,0 +1,67 @@
+package com.kirakira.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kirakira.benchmark.BenchmarkFixtures;
+import com.kirakira.util.MessageChunks;
+
+/**
+ * {@link OverflowClient} 发送前构造消息的开销：生成通知行、按长度拆分、生成 OneBot 请求参数
+ * <p>
+ * submissions 较大时拆分后的消息数超过阈值，会改为构造合并转发消息。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageBuildingBenchmark {
+    private static final int MESSAGE_MAX_LENGTH = 3000;
+    private static final int FORWARD_THRESHOLD = 3;
+
+    @Param({ "1", "20", "500" })
+    public int submissions;
+
+    private List<String> codeforcesIds;
+    private List<String> problemInfos;
+
+    @Setup
+    public void setUp() {
+        codeforcesIds = new ArrayList<>(submissions);
+        problemInfos = new ArrayList<>(submissions);
+        for (int i = 0; i < submissions; i++) {
+            codeforcesIds.add(BenchmarkFixtures.handle(i));
+            problemInfos.add((1900 + i % 100) + "C (" + (800 + i % 20 * 100) + ")");
+        }
+    }
+
+    @Benchmark
+    public List<String> build() {
+        List<String> lines = OverflowClient.formatSubmissionLines(codeforcesIds, problemInfos);
+        List<String> chunks = MessageChunks.split(lines, MESSAGE_MAX_LENGTH);
+        List<String> payloads = new ArrayList<>(chunks.size());
+        if (chunks.size() > FORWARD_THRESHOLD) {
+            payloads.add(OverflowClient.forwardMessagePayload("100000", 10000L, chunks));
+        } else {
+            for (String chunk : chunks) {
+                payloads.add(OverflowClient.groupMessagePayload("100000", chunk));
+            }
+        }
+        return payloads;
+    }
+}
@@ -0,0 +1,59 @@
+package com.kirakira.client;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kirakira.benchmark.BenchmarkFixtures;
+import com.kirakira.entity.dto.codeforces.CfSubmissionApiResponse;
+
+/**
+ * 提交列表响应的解析：Jackson 数据绑定到 {@link CfSubmissionApiResponse}（recentStatus、contest.status 使用），
+ * 以及 user.status 使用的 {@link SubmissionListParser} 流式解析
+ * <p>
+ * count 对应平时轮询的一小页（5）、追赶游标的一页（100）和全站提交流的一页（1000）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubmissionParsingBenchmark {
+
+    @Param({ "5", "100", "1000" })
+    public int count;
+
+    private ObjectMapper objectMapper;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        // 与 Spring Boot 为 RestTemplate 配置的 ObjectMapper 一致：忽略未知字段
+        objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        body = BenchmarkFixtures.userStatusJson("tourist", count);
+    }
+
+    @Benchmark
+    public CfSubmissionApiResponse databind() throws IOException {
+        return objectMapper.readValue(body, CfSubmissionApiResponse.class);
+    }
+
+    @Benchmark
+    public SubmissionListParser.Result streaming() throws IOException {
+        return SubmissionListParser.parse(body, submission -> false);
+    }
+}
@@ -0,0 +1,98 @@
+package com.kirakira.listener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kirakira.benchmark.BenchmarkFixtures;
+import com.kirakira.client.MessageDispatcher;
+import com.kirakira.service.BindingRegistry;
+import com.kirakira.service.BotService;
+import com.kirakira.service.HandleValidator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.mamoe.mirai.contact.MemberPermission;
+
+/**
+ * 群指令的解析与处理，以及回复交给 {@link MessageDispatcher} 的开销；route 为经过 {@link CommandRouter} 线程池的开销
+ * <p>
+ * 绑定指令使用已绑定的用户名，每次都走“已被绑定”分支，不会改变状态。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandHandlerBenchmark {
+    // 群组 100000 中的第一个用户，见 BenchmarkFixtures#groupUsers
+    private static final String GROUP_ID = "100000";
+    private static final String SENDER_ID = "10000000";
+
+    @Param({ "/help", "/list cf", "/listall cf", "/rank week", "/bind cf user_1", "/bind cf @10000001 user_1 @10000002 user_2", "hello" })
+    public String message;
+
+    private CommandHandler commandHandler;
+    private CommandRouter commandRouter;
+    private MessageDispatcher messageDispatcher;
+    private List<String> tokens;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.StubCodeforcesClient codeforcesClient = new BenchmarkFixtures.StubCodeforcesClient();
+        BindingRegistry bindingRegistry = new BindingRegistry(
+            new BenchmarkFixtures.InMemoryGroupUserRepository(BenchmarkFixtures.groupUsers(1000)),
+            BenchmarkFixtures.transactionTemplate());
+        bindingRegistry.load();
+        HandleValidator handleValidator = new HandleValidator(codeforcesClient, 86400000, 600000, 100);
+        BotService botService = new BotService(bindingRegistry, handleValidator, BenchmarkFixtures.solveStatistics(), 10);
+        commandHandler = new CommandHandler(botService);
+        commandRouter = new CommandRouter(botService, BenchmarkFixtures.standaloneCluster(), new SimpleMeterRegistry(), 4, 32);
+        messageDispatcher = new MessageDispatcher(0, 1, new SimpleMeterRegistry());
+
+        tokens = new ArrayList<>();
+        for (String token : message.split("\\s+")) {
+            tokens.add(token);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        messageDispatcher.destroy();
+        commandRouter.destroy();
+    }
+
+    @Benchmark
+    public String handle() {
+        return commandHandler.handle(GROUP_ID, SENDER_ID, MemberPermission.ADMINISTRATOR, message, () -> tokens);
+    }
+
+    @Benchmark
+    public Object handleAndDispatch() {
+        String reply = commandHandler.handle(GROUP_ID, SENDER_ID, MemberPermission.ADMINISTRATOR, message, () -> tokens);
+        if (reply == null) {
+            return null;
+        }
+        return messageDispatcher.submit(GROUP_ID, MessageDispatcher.Priority.INTERACTIVE, () -> reply).join();
+    }
+
+    @Benchmark
+    public String route() {
+        CompletableFuture<String> reply = commandRouter.route(GROUP_ID, SENDER_ID, MemberPermission.ADMINISTRATOR, message, () -> tokens);
+        return reply == null ? null : reply.join();
+    }
+}
@@ -0,0 +1,108 @@
+package com.kirakira.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kirakira.benchmark.BenchmarkFixtures;
+import com.kirakira.benchmark.BenchmarkFixtures.StubCodeforcesClient;
+import com.kirakira.benchmark.BenchmarkFixtures.StubOverflowClient;
+import com.kirakira.repository.PollCursorRepository;
+import com.kirakira.repository.SubmissionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 完整的监控周期：拉取 → 去重 → 写库 → 发件箱 → 通知
+ * <p>
+ * 每轮每个用户都有一个新通过的题目，一次调用在所有通知都交给消息客户端后才结束。
+ * Codeforces 客户端、消息客户端和仓库都是内存中的桩实现，结果只反映本进程内的开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MonitorCycleBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int handles;
+
+    private StubCodeforcesClient codeforcesClient;
+    private StubOverflowClient overflowClient;
+    private SubmissionPoller submissionPoller;
+    private NotificationOutbox notificationOutbox;
+    private MonitorPipeline monitorPipeline;
+    private MonitorService monitorService;
+    private long expectedLines;
+
+    /**
+     * 每次迭代重新创建，避免已通过题目索引随轮次无限增长
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        TransactionTemplate transactionTemplate = BenchmarkFixtures.transactionTemplate();
+        codeforcesClient = new StubCodeforcesClient();
+        overflowClient = new StubOverflowClient();
+
+        BindingRegistry bindingRegistry = new BindingRegistry(
+            new BenchmarkFixtures.InMemoryGroupUserRepository(BenchmarkFixtures.groupUsers(handles)), transactionTemplate);
+        bindingRegistry.load();
+        SubmissionRepository submissionRepository = new BenchmarkFixtures.InMemorySubmissionRepository();
+        PollCursorRepository pollCursorRepository = new BenchmarkFixtures.InMemoryPollCursorRepository();
+        SolvedProblemIndex solvedProblemIndex = new SolvedProblemIndex(submissionRepository, new SimpleMeterRegistry());
+        ProblemCatalog problemCatalog = new ProblemCatalog(new BenchmarkFixtures.EmptyProblemRepository(), codeforcesClient);
+        BenchmarkFixtures.InMemoryNotificationOutboxRepository outboxRepository = new BenchmarkFixtures.InMemoryNotificationOutboxRepository();
+        SubmissionRecorder submissionRecorder = new SubmissionRecorder(submissionRepository, pollCursorRepository,
+            solvedProblemIndex, BenchmarkFixtures.solveStatistics(), outboxRepository, transactionTemplate);
+
+        notificationOutbox = BenchmarkFixtures.notificationOutbox(outboxRepository, overflowClient);
+        notificationOutbox.start();
+        monitorPipeline = new MonitorPipeline(bindingRegistry, solvedProblemIndex, problemCatalog, submissionRecorder,
+            notificationOutbox, overflowClient, new SimpleMeterRegistry(), 1000, 200);
+        monitorPipeline.start();
+        submissionPoller = new SubmissionPoller(codeforcesClient, 4);
+
+        // 间隔为 0：每轮所有用户都到期
+        monitorService = new MonitorService(bindingRegistry, monitorPipeline, pollCursorRepository, submissionPoller,
+            new AdaptivePollSchedule(0, 0), new RecentStatusFeed(codeforcesClient, 1000),
+            new ContestTracker(codeforcesClient, 600000, 200, 1000, 5), solvedProblemIndex,
+            BenchmarkFixtures.standaloneCluster(), "", handles, "handle", false);
+        expectedLines = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        submissionPoller.destroy();
+        monitorPipeline.destroy();
+        notificationOutbox.destroy();
+    }
+
+    @Benchmark
+    public long cycle() {
+        codeforcesClient.nextRound();
+        monitorService.checkRecentSubmissionsAndNotify();
+
+        // 每个用户只在一个群组中，每轮恰好产生一行通知
+        expectedLines += handles;
+        while (overflowClient.getDeliveredLines() < expectedLines) {
+            LockSupport.parkNanos(10_000);
+        }
+        return overflowClient.getDeliveredLines();
+    }
+}
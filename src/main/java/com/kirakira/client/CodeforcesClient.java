@@ -1,75 +1,491 @@
 package com.kirakira.client;
 
+import java.io.IOException;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+
+import com.kirakira.entity.SubmissionPage;
+import com.kirakira.entity.dto.codeforces.CfApiResponse;
+import com.kirakira.entity.dto.codeforces.CfContestDto;
+import com.kirakira.entity.dto.codeforces.CfContestListApiResponse;
+import com.kirakira.entity.dto.codeforces.CfProblemDto;
+import com.kirakira.entity.dto.codeforces.CfProblemsetApiResponse;
+import com.kirakira.entity.dto.codeforces.CfStandingsApiResponse;
 import com.kirakira.entity.dto.codeforces.CfSubmissionApiResponse;
 import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+import com.kirakira.entity.dto.codeforces.CfUserDto;
+import com.kirakira.entity.dto.codeforces.CfUserInfoApiResponse;
 import com.kirakira.entity.exception.CodeforcesApiException;
 import com.kirakira.entity.exception.UserNotFoundException;
+import com.kirakira.util.SubmissionCursors;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Component
 public class CodeforcesClient {
+    private static final Logger log = LoggerFactory.getLogger(CodeforcesClient.class);
+
     private final RestTemplate restTemplate;
+    private final CodeforcesRateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+    private final String apiBaseUrl;
     private final int submissionTimeRangeMinutes;
-    private static final String API_URL = "https://codeforces.com/api/user.status?handle=%s&from=1&count=10";
+    private final int pageSize;
+    private final int catchUpPageSize;
+    private final int maxPages;
+    // 以下地址均相对于 codeforces.api.base.url
+    private static final String API_URL = "/user.status?handle=%s&from=%d&count=%d";
+    private static final String RECENT_STATUS_URL = "/problemset.recentStatus?count=%d";
+    private static final String CONTEST_LIST_URL = "/contest.list?gym=false";
+    private static final String CONTEST_STANDINGS_URL = "/contest.standings?contestId=%d&from=1&count=1&showUnofficial=true&handles=%s";
+    private static final String CONTEST_STATUS_URL = "/contest.status?contestId=%d&from=%d&count=%d";
+    private static final String PROBLEMSET_URL = "/problemset.problems";
+    private static final String USER_INFO_URL = "/user.info?handles=%s";
+    // user.info 中有用户不存在时的错误信息，如 "handles: User with handle abc not found"
+    private static final Pattern MISSING_HANDLE_PATTERN = Pattern.compile("User with handle (\\S+) not found");
+
+    // HTTP 请求结果，用作 codeforces.api.latency 的 outcome 标签
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_USER_NOT_FOUND = "user_not_found";
+    private static final String OUTCOME_CLIENT_ERROR = "client_error";
+    private static final String OUTCOME_ERROR = "error";
+
+    // 用户名（小写） -> 上次轮询第一页的指纹
+    private final Map<String, PageFingerprint> lastFirstPages = new ConcurrentHashMap<>();
 
     public CodeforcesClient(RestTemplate restTemplate,
-                           @Value("${codeforces.submission.time.range.minutes:30}") int submissionTimeRangeMinutes) {
+                           CodeforcesRateLimiter rateLimiter,
+                           MeterRegistry meterRegistry,
+                           @Value("${codeforces.api.base.url:https://codeforces.com/api}") String apiBaseUrl,
+                           @Value("${codeforces.submission.time.range.minutes:30}") int submissionTimeRangeMinutes,
+                           @Value("${codeforces.submission.page.size:5}") int pageSize,
+                           @Value("${codeforces.submission.catchup.page.size:100}") int catchUpPageSize,
+                           @Value("${codeforces.submission.max.pages:5}") int maxPages) {
         this.restTemplate = restTemplate;
+        this.rateLimiter = rateLimiter;
+        this.meterRegistry = meterRegistry;
+        // 去掉末尾的 "/"，避免拼接出 "//"
+        this.apiBaseUrl = apiBaseUrl.endsWith("/") ? apiBaseUrl.substring(0, apiBaseUrl.length() - 1) : apiBaseUrl;
         this.submissionTimeRangeMinutes = submissionTimeRangeMinutes;
+        this.pageSize = pageSize;
+        this.catchUpPageSize = catchUpPageSize;
+        this.maxPages = maxPages;
     }
 
     /**
-     * 获取用户最近的提交记录
+     * 增量获取用户在游标之后的提交记录
+     * <p>
+     * 平时只请求一小页；如果整页都比游标新（说明两次轮询之间提交较多或曾经中断），
+     * 则继续向更早的提交翻页，直到追上游标或达到最大页数。
+     * 游标为 null 表示首次轮询该用户，此时只取一页，游标推进到这一页最新的提交，
+     * 但只推送时间范围内的通过记录，避免推送历史记录。
+     * <p>
+     * 响应以流式方式解析，读到游标之前的提交即停止。如果第一页响应与上次完全相同，
+     * 且上次的结果已经推进到当前游标，则说明没有任何变化，直接跳过解析。
      * @param handle Codeforces 用户名
-     * @return 最近通过的提交列表
+     * @param cursor 已处理的最大提交 ID，可能为 null
+     * @return 游标之后的提交及新的游标
      * @throws UserNotFoundException 当用户不存在时
      * @throws CodeforcesApiException 当 API 请求失败时
      */
-    public List<CfSubmissionDto> getRecentSubmissions(String handle) {
-        String url = String.format(API_URL, handle);
+    public SubmissionPage getSubmissionsAfter(String handle, Long cursor) {
+        return observe("user.status", () -> fetchSubmissionsAfter(handle, cursor));
+    }
 
-        try {
-            CfSubmissionApiResponse response = restTemplate.getForObject(url, CfSubmissionApiResponse.class);
+    private SubmissionPage fetchSubmissionsAfter(String handle, Long cursor) {
+        List<CfSubmissionDto> fresh = new ArrayList<>();
+        PageFingerprint firstPage = null;
 
-            // 检查响应是否为 null
-            if (response == null) {
-                throw new CodeforcesApiException("API 返回空响应");
+        if (cursor == null) {
+            // 首次轮询读取整页：时间范围只用于筛选推送，游标仍要推进到这一页最新的提交，
+            // 否则一页都是旧提交时游标为 0，下次轮询会翻出全部历史
+            byte[] body = fetchSubmissions(handle, 1, pageSize);
+            fresh.addAll(parseSubmissions(body, handle, submission -> false).getSubmissions());
+        } else {
+            int from = 1;
+            int count = pageSize;
+            boolean reachedCursor = false;
+            for (int page = 0; page < maxPages && !reachedCursor; page++) {
+                byte[] body = fetchSubmissions(handle, from, count);
+                if (page == 0) {
+                    firstPage = new PageFingerprint(body);
+                    PageFingerprint previous = lastFirstPages.get(handle.toLowerCase());
+                    if (firstPage.isUnchangedSince(previous, cursor)) {
+                        return SubmissionPage.builder()
+                            .handle(handle)
+                            .accepted(new ArrayList<>())
+                            .newSubmissionCount(0)
+                            .nextCursor(cursor)
+                            .build();
+                    }
+                }
+
+                SubmissionListParser.Result result = parseSubmissions(body, handle,
+                    submission -> Long.parseLong(submission.getId()) <= cursor);
+                fresh.addAll(result.getSubmissions());
+                if (result.isStopped() || result.getSubmissions().size() < count) {
+                    // 已追上游标，或已经没有更早的提交
+                    reachedCursor = true;
+                }
+                from += count;
+                count = catchUpPageSize;
+            }
+            if (!reachedCursor) {
+                log.warn("Submission cursor of {} not reached after {} pages, older submissions skipped", handle, maxPages);
+            }
+        }
+
+        List<CfSubmissionDto> accepted;
+        if (cursor == null) {
+            long timeStartToCollect = (System.currentTimeMillis() / 1000) - (submissionTimeRangeMinutes * 60L);
+            accepted = fresh.stream()
+                .filter(submission -> isAcceptedAfter(submission, timeStartToCollect))
+                .collect(Collectors.toList());
+        } else {
+            accepted = fresh.stream()
+                .filter(submission -> "OK".equals(submission.getVerdict()))
+                .collect(Collectors.toList());
+        }
+
+        long nextCursor = SubmissionCursors.next(fresh, cursor);
+        if (firstPage != null) {
+            firstPage.nextCursor = nextCursor;
+            lastFirstPages.put(handle.toLowerCase(), firstPage);
+        }
+
+        return SubmissionPage.builder()
+            .handle(handle)
+            .accepted(accepted)
+            .newSubmissionCount(cursor == null ? 0 : fresh.size())
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    private static boolean isAcceptedAfter(CfSubmissionDto submission, long timeStartToCollect) {
+        return submission.getCreationTime() != null &&
+            submission.getCreationTime().toEpochSecond(ZoneOffset.UTC) >= timeStartToCollect &&
+            "OK".equals(submission.getVerdict());
+    }
+
+    /**
+     * 获取全站最近的提交记录
+     * @param count 提交数量，最多 1000
+     * @return 按提交 ID 从新到旧排列的提交列表（含所有评测结果）
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    public List<CfSubmissionDto> getRecentStatus(int count) {
+        return observe("problemset.recentStatus",
+            () -> fetchSubmissionList(url(RECENT_STATUS_URL, count), null));
+    }
+
+    /**
+     * 请求 user.status 接口的一页数据
+     * @return 原始响应体
+     */
+    private byte[] fetchSubmissions(String handle, int from, int count) {
+        return exchange(url(API_URL, handle, from, count), byte[].class, handle);
+    }
+
+    /**
+     * 流式解析 user.status 的响应体
+     * @param body 原始响应体
+     * @param handle 请求针对的用户
+     * @param stopAt 停止条件
+     * @return 解析结果，状态不是 "OK" 时提交列表为空
+     * @throws UserNotFoundException 当用户不存在时
+     * @throws CodeforcesApiException 当响应无法解析时
+     */
+    private SubmissionListParser.Result parseSubmissions(byte[] body, String handle, Predicate<CfSubmissionDto> stopAt) {
+        SubmissionListParser.Result result;
+        try {
+            result = SubmissionListParser.parse(body, stopAt);
+        } catch (IOException e) {
+            throw new CodeforcesApiException("API 响应解析失败: " + e.getMessage(), e);
+        }
+        if (!"OK".equals(result.getStatus())) {
+            if (isUserNotFound(result.getComment())) {
+                throw new UserNotFoundException("用户 " + handle + " 不存在", handle, null);
             }
+            return new SubmissionListParser.Result();
+        }
+        return result;
+    }
 
-            // 检查状态是否为 null 或不是 "OK"
-            if (response.getStatus() == null || !"OK".equals(response.getStatus())) {
-                String comment = response.getComment();
-                if (comment != null && comment.contains("handle: User with handle") && comment.contains("not found")) {
-                    throw new UserNotFoundException("用户 " + handle + " 不存在");
+    /**
+     * 批量查询用户信息
+     * @param handles Codeforces 用户名列表
+     * @return 按请求顺序排列的用户信息，用户名为 Codeforces 上的规范大小写
+     * @throws UserNotFoundException 当其中有用户不存在时，{@link UserNotFoundException#getHandle()} 为第一个不存在的用户名
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    public List<CfUserDto> getUserInfo(List<String> handles) {
+        return observe("user.info", () -> {
+            String url = url(USER_INFO_URL, String.join(";", handles));
+            CfUserInfoApiResponse response = request(url, CfUserInfoApiResponse.class, null);
+            if (!"OK".equals(response.getStatus())) {
+                String missingHandle = findMissingHandle(response.getComment());
+                if (missingHandle != null) {
+                    throw new UserNotFoundException("用户 " + missingHandle + " 不存在", missingHandle, null);
                 }
+            }
+            requireOk(response);
+            return response.getResult() != null ? response.getResult() : new ArrayList<>();
+        });
+    }
+
+    /**
+     * 获取题库中的全部题目
+     * @return 题目列表
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    public List<CfProblemDto> getProblemset() {
+        return observe("problemset.problems", () -> {
+            CfProblemsetApiResponse response = request(url(PROBLEMSET_URL), CfProblemsetApiResponse.class, null);
+            requireOk(response);
+            if (response.getResult() == null || response.getResult().getProblems() == null) {
                 return new ArrayList<>();
             }
-            
-            // 检查 result 是否为 null
+            return response.getResult().getProblems();
+        });
+    }
+
+    /**
+     * 获取正在进行中的比赛
+     * @return 处于 CODING 阶段的比赛列表
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    public List<CfContestDto> getRunningContests() {
+        return observe("contest.list", () -> {
+            CfContestListApiResponse response = request(url(CONTEST_LIST_URL), CfContestListApiResponse.class, null);
+            requireOk(response);
             if (response.getResult() == null) {
                 return new ArrayList<>();
             }
-            
-            long timeStartToCollect = (System.currentTimeMillis() / 1000) - (submissionTimeRangeMinutes * 60L);
-
             return response.getResult().stream()
-                .filter(submission -> 
-                    submission.getCreationTime() != null && 
-                    submission.getCreationTime().toEpochSecond(ZoneOffset.UTC) >= timeStartToCollect &&
-                    "OK".equals(submission.getVerdict())
-                )
+                .filter(contest -> "CODING".equals(contest.getPhase()))
                 .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * 检查指定用户中是否有人参加了比赛
+     * @param contestId 比赛 ID
+     * @param handles Codeforces 用户名列表
+     * @return 如果比赛榜单中至少有其中一个用户返回 true
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    public boolean hasParticipants(int contestId, List<String> handles) {
+        return observe("contest.standings", () -> {
+            String url = url(CONTEST_STANDINGS_URL, contestId, String.join(";", handles));
+            CfStandingsApiResponse response = request(url, CfStandingsApiResponse.class, null);
+            requireOk(response);
+            return response.getResult() != null && response.getResult().getRows() != null
+                && !response.getResult().getRows().isEmpty();
+        });
+    }
 
+    /**
+     * 获取比赛的一页提交记录
+     * @param contestId 比赛 ID
+     * @param from 起始位置（从 1 开始）
+     * @param count 提交数量
+     * @return 按提交 ID 从新到旧排列的提交列表（含所有评测结果）
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    public List<CfSubmissionDto> getContestStatus(int contestId, int from, int count) {
+        return observe("contest.status",
+            () -> fetchSubmissionList(url(CONTEST_STATUS_URL, contestId, from, count), null));
+    }
+
+    /**
+     * 执行一次 API 调用，按异常类型计数失败的调用
+     * @param method API 方法名，如 "user.status"
+     * @param call 实际的调用
+     * @return 调用结果
+     */
+    private <T> T observe(String method, Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (CodeforcesApiException e) {
+            Counter.builder("codeforces.api.exceptions")
+                .description("Codeforces API 调用抛出的异常数")
+                .tag("method", method)
+                .tag("exception", e.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+            throw e;
+        }
+    }
+
+    /**
+     * 请求返回提交列表的接口
+     * @param url 完整请求地址
+     * @param handle 请求针对的用户，用于识别“用户不存在”错误；不针对用户时为 null
+     * @return 提交列表
+     */
+    private List<CfSubmissionDto> fetchSubmissionList(String url, String handle) {
+        CfSubmissionApiResponse response = request(url, CfSubmissionApiResponse.class, handle);
+
+        // 检查状态是否为 null 或不是 "OK"
+        if (response.getStatus() == null || !"OK".equals(response.getStatus())) {
+            return new ArrayList<>();
+        }
+
+        // 检查 result 是否为 null
+        if (response.getResult() == null) {
+            return new ArrayList<>();
+        }
+
+        return response.getResult();
+    }
+
+    /**
+     * 经过限流后请求 Codeforces API
+     * @param url 完整请求地址
+     * @param responseType 响应类型
+     * @param handle 请求针对的用户，用于识别“用户不存在”错误；不针对用户时为 null
+     * @return 非空的响应对象，状态可能不是 "OK"
+     * @throws UserNotFoundException 当用户不存在时
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    private <T extends CfApiResponse> T request(String url, Class<T> responseType, String handle) {
+        T response = exchange(url, responseType, handle);
+        if (!"OK".equals(response.getStatus()) && handle != null && isUserNotFound(response.getComment())) {
+            throw new UserNotFoundException("用户 " + handle + " 不存在", handle, null);
+        }
+        return response;
+    }
+
+    /**
+     * 经过限流后发出 HTTP 请求
+     * @param url 完整请求地址
+     * @param responseType 响应类型
+     * @param handle 请求针对的用户，用于识别“用户不存在”错误；不针对用户时为 null
+     * @return 非空的响应对象
+     * @throws UserNotFoundException 当用户不存在时
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    private <T> T exchange(String url, Class<T> responseType, String handle) {
+        rateLimiter.acquire();
+        // 只统计 HTTP 请求本身（含读取响应体），不含限流等待
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = OUTCOME_ERROR;
+        try {
+            T response = restTemplate.getForObject(url, responseType);
+
+            // 检查响应是否为 null
+            if (response == null) {
+                throw new CodeforcesApiException("API 返回空响应");
+            }
+            outcome = OUTCOME_SUCCESS;
+            return response;
         } catch (HttpClientErrorException e) {
+            outcome = OUTCOME_CLIENT_ERROR;
+            // 用户不存在时 Codeforces 返回 400，错误信息在响应体中
+            if (handle != null && isUserNotFound(e.getResponseBodyAsString())) {
+                outcome = OUTCOME_USER_NOT_FOUND;
+                throw new UserNotFoundException("用户 " + handle + " 不存在", handle, e);
+            }
+            // 一次查询多个用户时，错误信息中包含不存在的用户名
+            String missingHandle = findMissingHandle(e.getResponseBodyAsString());
+            if (missingHandle != null) {
+                outcome = OUTCOME_USER_NOT_FOUND;
+                throw new UserNotFoundException("用户 " + missingHandle + " 不存在", missingHandle, e);
+            }
             throw new CodeforcesApiException("HTTP 请求失败: " + e.getMessage(), e);
+        } catch (RestClientException e) {
+            throw new CodeforcesApiException("HTTP 请求失败: " + e.getMessage(), e);
+        } finally {
+            sample.stop(Timer.builder("codeforces.api.latency")
+                .description("Codeforces API 单次 HTTP 请求的耗时")
+                .tag("method", apiMethod(url))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        }
+    }
+
+    /**
+     * 拼接完整请求地址
+     * @param path 相对于 API 根地址的路径模板
+     * @param args 模板参数
+     * @return 完整请求地址
+     */
+    private String url(String path, Object... args) {
+        return apiBaseUrl + String.format(path, args);
+    }
+
+    /**
+     * 从请求地址中取出 API 方法名
+     * @param url 完整请求地址，如 "https://codeforces.com/api/user.status?handle=..."
+     * @return API 方法名，如 "user.status"
+     */
+    private static String apiMethod(String url) {
+        int end = url.indexOf('?');
+        if (end < 0) {
+            end = url.length();
+        }
+        return url.substring(url.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    private static void requireOk(CfApiResponse response) {
+        if (!"OK".equals(response.getStatus())) {
+            throw new CodeforcesApiException("API 返回错误: " + response.getComment());
+        }
+    }
+
+    private static boolean isUserNotFound(String comment) {
+        return comment != null && comment.contains("handle: User with handle") && comment.contains("not found");
+    }
+
+    private static String findMissingHandle(String comment) {
+        if (comment == null) {
+            return null;
+        }
+        Matcher matcher = MISSING_HANDLE_PATTERN.matcher(comment);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * 第一页响应体的指纹及解析后得到的游标
+     */
+    private static class PageFingerprint {
+        private final long checksum;
+        private final int length;
+        private long nextCursor;
+
+        PageFingerprint(byte[] body) {
+            CRC32C crc = new CRC32C();
+            crc.update(body);
+            this.checksum = crc.getValue();
+            this.length = body.length;
+        }
+
+        /**
+         * 响应体与上次相同，且上次的结果已经推进到当前游标
+         */
+        boolean isUnchangedSince(PageFingerprint previous, long cursor) {
+            return previous != null && previous.checksum == checksum && previous.length == length
+                && previous.nextCursor == cursor;
         }
     }
 }
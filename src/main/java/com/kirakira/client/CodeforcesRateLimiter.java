@@ -0,0 +1,68 @@
+package com.kirakira.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.entity.exception.CodeforcesApiException;
+
+/**
+ * Codeforces API 全局令牌桶限流器
+ * <p>
+ * Codeforces 按出口 IP 限制 API 调用频率，所有请求（包括监控轮询和绑定校验）都必须先从这里取得令牌。
+ * 令牌不足时调用方会预约下一个令牌并在锁外等待，因此并发调用者按先来后到的顺序依次放行。
+ */
+@Component
+public class CodeforcesRateLimiter {
+    private final double permitsPerNano;
+    private final double maxBurst;
+
+    private double storedPermits;
+    private long lastRefillNanos;
+
+    public CodeforcesRateLimiter(@Value("${codeforces.api.rate.limit.per.second:0.5}") double permitsPerSecond,
+                                 @Value("${codeforces.api.rate.limit.burst:1}") int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("codeforces.api.rate.limit.per.second 必须大于 0");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxBurst = Math.max(1, burst);
+        this.storedPermits = this.maxBurst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取一个令牌，必要时阻塞等待
+     * @throws CodeforcesApiException 当等待过程中线程被中断时
+     */
+    public void acquire() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CodeforcesApiException("等待 API 限流令牌时被中断", e);
+        }
+    }
+
+    /**
+     * 预约一个令牌
+     * @return 需要等待的纳秒数，0 表示可以立即请求
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        storedPermits = Math.min(maxBurst, storedPermits + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+
+        // 允许令牌数为负，表示已被预约的未来令牌
+        storedPermits -= 1;
+        if (storedPermits >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-storedPermits / permitsPerNano);
+    }
+}
@@ -0,0 +1,133 @@
+package com.kirakira.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * 请求压缩的响应并在读取时解压，同时限制整个请求（含读取响应体）的总耗时
+ * <p>
+ * JDK HttpClient 不会自动协商和解压 gzip，Codeforces 的 JSON 响应压缩后通常只有原来的十分之一左右。
+ */
+public class CompressedResponseInterceptor implements ClientHttpRequestInterceptor {
+    private final long requestTimeoutMs;
+
+    /**
+     * @param requestTimeoutMs 单个请求从发出到读完响应体的最长时间（毫秒）
+     */
+    public CompressedResponseInterceptor(long requestTimeoutMs) {
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long deadline = System.nanoTime() + requestTimeoutMs * 1_000_000L;
+        request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        return new DecodingResponse(execution.execute(request, body), deadline);
+    }
+
+    /**
+     * 按 Content-Encoding 解压响应体的响应
+     */
+    private static class DecodingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final long deadline;
+        private final String encoding;
+        private HttpHeaders headers;
+        private InputStream body;
+
+        DecodingResponse(ClientHttpResponse delegate, long deadline) {
+            this.delegate = delegate;
+            this.deadline = deadline;
+            this.encoding = delegate.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                headers = new HttpHeaders();
+                headers.putAll(delegate.getHeaders());
+                if (isCompressed()) {
+                    // 解压后的长度与原响应头不一致
+                    headers.remove(HttpHeaders.CONTENT_ENCODING);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                }
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream raw = new DeadlineInputStream(delegate.getBody(), deadline);
+                if ("gzip".equalsIgnoreCase(encoding)) {
+                    body = new GZIPInputStream(raw);
+                } else if ("deflate".equalsIgnoreCase(encoding)) {
+                    body = new InflaterInputStream(raw);
+                } else {
+                    body = raw;
+                }
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        private boolean isCompressed() {
+            return "gzip".equalsIgnoreCase(encoding) || "deflate".equalsIgnoreCase(encoding);
+        }
+    }
+
+    /**
+     * 超过截止时间后读取时抛出超时异常的输入流
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+        private final long deadline;
+
+        DeadlineInputStream(InputStream in, long deadline) {
+            super(in);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkDeadline();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkDeadline();
+            return super.read(b, off, len);
+        }
+
+        private void checkDeadline() throws SocketTimeoutException {
+            if (System.nanoTime() - deadline > 0) {
+                throw new SocketTimeoutException("Request deadline exceeded");
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.kirakira.client;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 群消息的异步发送队列
+ * <p>
+ * 每个群组有独立的发送队列和发送间隔，同一群组的消息依次发送，不同群组的消息在线程池中并发发送。
+ * 每个群组的队列分为交互和批量两条通道：指令回复走交互通道，总是先于积压的监控通知发送。
+ * 调用方立即拿到 {@link CompletableFuture}，不会被发送间隔阻塞。
+ */
+@Component
+public class MessageDispatcher implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(MessageDispatcher.class);
+
+    private final ScheduledExecutorService executor;
+    private final long sendIntervalMs;
+    private final Map<String, GroupLane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * 消息优先级
+     */
+    public enum Priority {
+        // 群成员指令的回复
+        INTERACTIVE,
+        // 监控通知、错误通知等批量消息
+        BULK
+    }
+
+    public MessageDispatcher(@Value("${message.send.interval.ms:1000}") long sendIntervalMs,
+                             @Value("${message.dispatch.concurrency:4}") int concurrency,
+                             MeterRegistry meterRegistry) {
+        this.sendIntervalMs = sendIntervalMs;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("msg-dispatch-");
+        threadFactory.setDaemon(true);
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, concurrency), threadFactory);
+        Gauge.builder("message.dispatch.pending", this, MessageDispatcher::getPendingCount)
+            .description("各群组等待发送的消息总数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 将发送操作放入群组的发送队列
+     * @param groupId 群组 ID
+     * @param priority 消息优先级
+     * @param action 实际的发送操作，在发送线程上执行
+     * @return 发送操作的结果，发送操作抛出异常时以该异常结束
+     */
+    public <T> CompletableFuture<T> submit(String groupId, Priority priority, Supplier<T> action) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                future.complete(action.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+
+        GroupLane lane = lanes.computeIfAbsent(groupId, GroupLane::new);
+        boolean schedule;
+        synchronized (lane) {
+            if (priority == Priority.INTERACTIVE) {
+                lane.interactive.add(task);
+            } else {
+                lane.bulk.add(task);
+            }
+            schedule = !lane.scheduled;
+            lane.scheduled = true;
+        }
+        if (schedule) {
+            scheduleNext(lane);
+        }
+        return future;
+    }
+
+    /**
+     * 获取各群组等待发送的消息数
+     * @return 所有群组等待发送的消息总数
+     */
+    public int getPendingCount() {
+        int pending = 0;
+        for (GroupLane lane : lanes.values()) {
+            synchronized (lane) {
+                pending += lane.interactive.size() + lane.bulk.size();
+            }
+        }
+        return pending;
+    }
+
+    private void scheduleNext(GroupLane lane) {
+        long delay;
+        synchronized (lane) {
+            delay = Math.max(0, lane.nextSendAt - System.currentTimeMillis());
+        }
+        try {
+            executor.schedule(() -> sendNext(lane), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Message dispatcher stopped, {} message(s) to group {} dropped", lane.interactive.size() + lane.bulk.size(), lane.groupId);
+        }
+    }
+
+    /**
+     * 发送群组队列中的下一条消息，队列不为空时按发送间隔安排下一次发送
+     */
+    private void sendNext(GroupLane lane) {
+        Runnable task;
+        synchronized (lane) {
+            task = lane.interactive.poll();
+            if (task == null) {
+                task = lane.bulk.poll();
+            }
+            if (task == null) {
+                lane.scheduled = false;
+                return;
+            }
+        }
+
+        try {
+            task.run();
+        } finally {
+            boolean more;
+            synchronized (lane) {
+                lane.nextSendAt = System.currentTimeMillis() + sendIntervalMs;
+                more = !lane.interactive.isEmpty() || !lane.bulk.isEmpty();
+                if (!more) {
+                    lane.scheduled = false;
+                }
+            }
+            if (more) {
+                scheduleNext(lane);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 单个群组的发送队列
+     */
+    private static class GroupLane {
+        private final String groupId;
+        private final Queue<Runnable> interactive = new ArrayDeque<>();
+        private final Queue<Runnable> bulk = new ArrayDeque<>();
+        // 群组允许发送下一条消息的时间（毫秒）
+        private long nextSendAt;
+        // 是否已经安排了发送任务
+        private boolean scheduled;
+
+        GroupLane(String groupId) {
+            this.groupId = groupId;
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.kirakira.client;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.kirakira.listener.CommandRouter;
 import com.kirakira.listener.GroupMessageListener;
-import com.kirakira.service.BotService;
+import com.kirakira.util.MessageChunks;
 
 import top.mrxiaom.overflow.BotBuilder;
 import top.mrxiaom.overflow.contact.RemoteBot;
@@ -18,24 +22,39 @@ import net.mamoe.mirai.Bot;
 @Component
 public class OverflowClient {
     private static final Logger log = LoggerFactory.getLogger(OverflowClient.class);
-    
+    private static final String FORWARD_NODE_NAME = "kirakira";
+
     RemoteBot bot;
     Bot miraibot;
     GroupMessageListener groupMsgListener;
-    BotService botService;
-    private final long messageSendIntervalMs;
+    private final MessageDispatcher messageDispatcher;
+    private final int messageMaxLength;
+    private final int forwardThreshold;
 
-    public OverflowClient(BotService botService, 
+    public OverflowClient(CommandRouter commandRouter,
+                          MessageDispatcher messageDispatcher,
                           @Value("${bot.websocket.url}") String websocketUrl,
                           @Value("${bot.websocket.token}") String token,
-                          @Value("${message.send.interval.ms:1000}") long messageSendIntervalMs) {
+                          @Value("${message.max.length:3000}") int messageMaxLength,
+                          @Value("${message.forward.threshold:3}") int forwardThreshold) {
         this.miraibot = BotBuilder.positive(websocketUrl)
             .token(token)
             .connect();
         this.bot = (RemoteBot) this.miraibot;
-        this.messageSendIntervalMs = messageSendIntervalMs;
+        this.messageDispatcher = messageDispatcher;
+        this.messageMaxLength = messageMaxLength;
+        this.forwardThreshold = forwardThreshold;
+
+        this.groupMsgListener = new GroupMessageListener(commandRouter, messageDispatcher, miraibot.getEventChannel());
+    }
 
-        this.groupMsgListener = new GroupMessageListener(botService, miraibot.getEventChannel());
+    /**
+     * 不连接 Bot 的构造方法，供覆盖了发送方法的子类（如基准测试中的桩实现）使用
+     */
+    protected OverflowClient(MessageDispatcher messageDispatcher, int messageMaxLength, int forwardThreshold) {
+        this.messageDispatcher = messageDispatcher;
+        this.messageMaxLength = messageMaxLength;
+        this.forwardThreshold = forwardThreshold;
     }
 
     /**
@@ -43,68 +62,179 @@ public class OverflowClient {
      * @param groupId 群组 ID
      * @param codeforcesIds Codeforces ID 列表
      * @param problemInfos 题目信息列表
-     * @return 发送响应
+     * @return 发送完成后的响应
      * @throws IllegalArgumentException 当两个列表长度不一致时
      */
-    public String sendSubmissionToGroup(String groupId, List<String> codeforcesIds, List<String> problemInfos) {
+    public CompletableFuture<String> sendSubmissionToGroup(String groupId, List<String> codeforcesIds, List<String> problemInfos) {
+        return sendLinesToGroup(groupId, formatSubmissionLines(codeforcesIds, problemInfos));
+    }
+
+    /**
+     * 构造提交通知的消息行
+     * @param codeforcesIds Codeforces ID 列表
+     * @param problemInfos 题目信息列表
+     * @return 每个提交一行
+     * @throws IllegalArgumentException 当两个列表长度不一致时
+     */
+    public static List<String> formatSubmissionLines(List<String> codeforcesIds, List<String> problemInfos) {
         if (codeforcesIds.size() != problemInfos.size()) {
             throw new IllegalArgumentException("Codeforces ID 列表和 Problem Info 列表的长度必须相同");
         }
-
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.put("group_id", groupId);
-
-        // 构造多行消息
-        StringBuilder messageBuilder = new StringBuilder();
+        List<String> lines = new ArrayList<>(codeforcesIds.size());
         for (int i = 0; i < codeforcesIds.size(); i++) {
-            messageBuilder.append(codeforcesIds.get(i)).append(" 通过了 ").append(problemInfos.get(i)).append("。\n");
+            lines.add(codeforcesIds.get(i) + " 通过了 " + problemInfos.get(i) + "。");
         }
-
-        jsonObject.put("message", messageBuilder.toString().trim()); // 去除末尾多余换行符
-
-        String jsonText = jsonObject.toString();
-        String response = bot.executeAction("send_group_msg", jsonText);
-
-        return response;
+        return lines;
     }
 
     /**
-     * 向指定群组发送错误消息列表
+     * 向指定群组发送错误消息列表，所有错误合并发送
      * @param groupId 群组 ID
      * @param errorMessages 错误消息列表
-     * @return 最终的发送响应
+     * @return 发送完成后的响应
      */
-    public String sendErrorMessageToGroup(String groupId, List<String> errorMessages) {
-        boolean hasError = false;
-        JSONObject finalResponse = new JSONObject();
-        
-        for (String error : errorMessages) {
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("group_id", groupId);
-            jsonObject.put("message", error);
-            String rawResponse = bot.executeAction("send_group_msg", jsonObject.toString());
-            JSONObject response = new JSONObject(rawResponse);
-            
-            int retcode = response.optInt("retcode", -1);
-            if (retcode != 0) {
-                hasError = true;
-                finalResponse = response;
-            } else if (!hasError) {
+    public CompletableFuture<String> sendErrorMessageToGroup(String groupId, List<String> errorMessages) {
+        return sendLinesToGroup(groupId, errorMessages);
+    }
+
+    /**
+     * 将多行文本以尽量少的消息发送到群组
+     * <p>
+     * 只在超过单条消息长度上限时才拆分；拆分后的消息过多时改为发送一条合并转发消息。
+     * @param groupId 群组 ID
+     * @param lines 文本行
+     * @return 全部消息发送完成后的最终响应，有消息发送失败时为第一个失败的响应
+     */
+    public CompletableFuture<String> sendLinesToGroup(String groupId, List<String> lines) {
+        List<String> chunks = MessageChunks.split(lines, messageMaxLength);
+        if (chunks.size() > forwardThreshold) {
+            return sendForwardToGroup(groupId, chunks);
+        }
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (String chunk : chunks) {
+            String jsonText = groupMessagePayload(groupId, chunk);
+            futures.add(messageDispatcher.submit(groupId, MessageDispatcher.Priority.BULK,
+                    () -> bot.executeAction("send_group_msg", jsonText)));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            JSONObject finalResponse = new JSONObject().put("retcode", 0);
+            for (CompletableFuture<String> future : futures) {
+                JSONObject response = new JSONObject(future.join());
                 finalResponse = response;
+                if (response.optInt("retcode", -1) != 0) {
+                    break;
+                }
             }
-            
-            try {
-                Thread.sleep(messageSendIntervalMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Message sending interrupted for group {}", groupId, e);
-                finalResponse.put("retcode", -2)
-                             .put("message", "操作被中断");
-                break;
+            return finalResponse.toString();
+        });
+    }
+
+    /**
+     * 将多行文本按顺序发送到群组，报告有多少行已经送达
+     * <p>
+     * 拆分规则与 {@link #sendLinesToGroup} 相同，但拆分后的消息逐条发送：前一条成功后才发送下一条，
+     * 一条失败后不再发送后续消息，调用方可以只重发未送达的行。拆分后的消息过多时仍合并为一条转发消息，整体成功或失败。
+     * @param groupId 群组 ID
+     * @param lines 文本行
+     * @return 从第一行起已送达的行数，全部送达时等于 lines.size()
+     */
+    public CompletableFuture<Integer> sendLinesInOrder(String groupId, List<String> lines) {
+        List<String> messages = new ArrayList<>();
+        // 每条消息送达后累计送达的行数，超长行硬拆后只有最后一段送达时才算送达
+        List<Integer> sentLinesAfter = new ArrayList<>();
+        int sentLines = 0;
+        for (List<String> group : MessageChunks.group(lines, messageMaxLength)) {
+            List<String> pieces = MessageChunks.split(group, messageMaxLength);
+            for (int i = 0; i < pieces.size(); i++) {
+                messages.add(pieces.get(i));
+                sentLinesAfter.add(i == pieces.size() - 1 ? sentLines + group.size() : sentLines);
             }
+            sentLines += group.size();
+        }
+
+        if (messages.size() > forwardThreshold) {
+            return sendForwardToGroup(groupId, messages)
+                .handle((response, e) -> isSuccess(groupId, response, e) ? lines.size() : 0);
         }
-        
-        return finalResponse.toString();
-    
+        return sendInOrder(groupId, messages, sentLinesAfter, 0, 0);
+    }
+
+    private CompletableFuture<Integer> sendInOrder(String groupId, List<String> messages, List<Integer> sentLinesAfter,
+                                                   int index, int sentLines) {
+        if (index == messages.size()) {
+            return CompletableFuture.completedFuture(sentLines);
+        }
+        String jsonText = groupMessagePayload(groupId, messages.get(index));
+        return messageDispatcher.submit(groupId, MessageDispatcher.Priority.BULK,
+                () -> bot.executeAction("send_group_msg", jsonText))
+            .handle((response, e) -> isSuccess(groupId, response, e))
+            .thenCompose(success -> success
+                ? sendInOrder(groupId, messages, sentLinesAfter, index + 1, sentLinesAfter.get(index))
+                : CompletableFuture.completedFuture(sentLines));
+    }
+
+    /**
+     * 检查 OneBot 的响应是否表示发送成功，失败时记录日志
+     */
+    private static boolean isSuccess(String groupId, String response, Throwable e) {
+        if (e != null) {
+            log.warn("Error sending message to group {}", groupId, e);
+            return false;
+        }
+        if (response == null || new JSONObject(response).optInt("retcode", -1) != 0) {
+            log.warn("Error sending message to group {}: {}", groupId, response);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 以合并转发的形式发送多条消息
+     * @param groupId 群组 ID
+     * @param chunks 每个转发节点的内容
+     * @return 发送完成后的响应
+     */
+    private CompletableFuture<String> sendForwardToGroup(String groupId, List<String> chunks) {
+        String jsonText = forwardMessagePayload(groupId, miraibot.getId(), chunks);
+        return messageDispatcher.submit(groupId, MessageDispatcher.Priority.BULK,
+                () -> bot.executeAction("send_group_forward_msg", jsonText));
+    }
+
+    /**
+     * 构造 send_group_msg 的请求参数
+     * @param groupId 群组 ID
+     * @param message 消息内容
+     * @return JSON 文本
+     */
+    static String groupMessagePayload(String groupId, String message) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("group_id", groupId);
+        jsonObject.put("message", message);
+        return jsonObject.toString();
+    }
+
+    /**
+     * 构造 send_group_forward_msg 的请求参数
+     * @param groupId 群组 ID
+     * @param selfId 转发节点显示的发送者 QQ 号
+     * @param chunks 每个转发节点的内容
+     * @return JSON 文本
+     */
+    static String forwardMessagePayload(String groupId, long selfId, List<String> chunks) {
+        JSONArray nodes = new JSONArray();
+        for (String chunk : chunks) {
+            JSONObject data = new JSONObject();
+            data.put("name", FORWARD_NODE_NAME);
+            data.put("uin", Long.toString(selfId));
+            data.put("content", chunk);
+            nodes.put(new JSONObject().put("type", "node").put("data", data));
+        }
+
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("group_id", groupId);
+        jsonObject.put("messages", nodes);
+        return jsonObject.toString();
     }
-}
\ No newline at end of file
+}
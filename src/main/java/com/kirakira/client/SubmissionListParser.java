@@ -0,0 +1,154 @@
+package com.kirakira.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.kirakira.entity.dto.codeforces.CfAuthorDto;
+import com.kirakira.entity.dto.codeforces.CfMemberDto;
+import com.kirakira.entity.dto.codeforces.CfProblemDto;
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+
+import lombok.Getter;
+
+/**
+ * 以流式方式解析 user.status 等接口返回的提交列表
+ * <p>
+ * 只读取监控用到的字段（提交 ID、提交时间、评测结果、题目编号与难度、作者），其余字段直接跳过；
+ * 提交按从新到旧排列，遇到满足停止条件的提交后不再解析剩余部分。
+ */
+public final class SubmissionListParser {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private SubmissionListParser() {
+    }
+
+    /**
+     * 解析响应体
+     * @param body 响应体
+     * @param stopAt 停止条件，第一个满足条件的提交及其之后的提交都不会返回
+     * @return 解析结果
+     * @throws IOException 当响应体不是合法的 JSON 时
+     */
+    public static Result parse(byte[] body, Predicate<CfSubmissionDto> stopAt) throws IOException {
+        Result result = new Result();
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected response: not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("status".equals(field)) {
+                    result.status = parser.getValueAsString();
+                } else if ("comment".equals(field)) {
+                    result.comment = parser.getValueAsString();
+                } else if ("result".equals(field) && token == JsonToken.START_ARRAY) {
+                    // result 在 status 之后，停止解析后不再需要读取后面的内容
+                    if (parseSubmissions(parser, stopAt, result)) {
+                        break;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 解析提交数组
+     * @return 是否因满足停止条件而提前结束
+     */
+    private static boolean parseSubmissions(JsonParser parser, Predicate<CfSubmissionDto> stopAt, Result result) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            CfSubmissionDto submission = parseSubmission(parser);
+            if (stopAt.test(submission)) {
+                result.stopped = true;
+                return true;
+            }
+            result.submissions.add(submission);
+        }
+        return false;
+    }
+
+    private static CfSubmissionDto parseSubmission(JsonParser parser) throws IOException {
+        CfSubmissionDto submission = new CfSubmissionDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "id" -> submission.setId(parser.getLongValue());
+                case "creationTimeSeconds" -> submission.setCreationTime(parser.getLongValue());
+                case "verdict" -> submission.setVerdict(parser.getValueAsString());
+                case "problem" -> submission.setProblem(parseProblem(parser));
+                case "author" -> submission.setAuthor(parseAuthor(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return submission;
+    }
+
+    private static CfProblemDto parseProblem(JsonParser parser) throws IOException {
+        CfProblemDto problem = new CfProblemDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "contestId" -> problem.setContestId(parser.getIntValue());
+                case "index" -> problem.setIndex(parser.getValueAsString());
+                case "rating" -> problem.setRating(parser.getIntValue());
+                default -> parser.skipChildren();
+            }
+        }
+        return problem;
+    }
+
+    private static CfAuthorDto parseAuthor(JsonParser parser) throws IOException {
+        CfAuthorDto author = new CfAuthorDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("members".equals(field) && token == JsonToken.START_ARRAY) {
+                List<CfMemberDto> members = new ArrayList<>(1);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    CfMemberDto member = new CfMemberDto();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String memberField = parser.currentName();
+                        parser.nextToken();
+                        if ("handle".equals(memberField)) {
+                            member.setHandle(parser.getValueAsString());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    members.add(member);
+                }
+                author.setMembers(members);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return author;
+    }
+
+    /**
+     * 解析结果
+     */
+    @Getter
+    public static class Result {
+        private String status;
+        private String comment;
+        private final List<CfSubmissionDto> submissions = new ArrayList<>();
+        // 是否因满足停止条件而提前结束
+        private boolean stopped;
+    }
+}
@@ -1,20 +1,40 @@
 package com.kirakira.config;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import com.kirakira.client.CompressedResponseInterceptor;
+
 
 @Configuration
 public class AppConfig {
-    
+
+    /**
+     * Codeforces API 使用的 HTTP 客户端
+     * <p>
+     * 基于 JDK HttpClient：连接池复用长连接，服务器支持时使用 HTTP/2，响应以 gzip 压缩传输。
+     * 连接、读取和整个请求分别设置超时。
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(10000); // 10 seconds
-        factory.setReadTimeout(30000);    // 30 seconds
-        
-        return new RestTemplate(factory);
+    public RestTemplate restTemplate(@Value("${codeforces.http.connect.timeout.ms:5000}") long connectTimeoutMs,
+                                     @Value("${codeforces.http.read.timeout.ms:15000}") long readTimeoutMs,
+                                     @Value("${codeforces.http.request.timeout.ms:30000}") long requestTimeoutMs) {
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.getInterceptors().add(new CompressedResponseInterceptor(requestTimeoutMs));
+        return restTemplate;
     }
 }
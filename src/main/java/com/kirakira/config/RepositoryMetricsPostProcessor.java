@@ -0,0 +1,62 @@
+package com.kirakira.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 为所有 {@link Repository} 的方法记录耗时（db.query），按仓库类、方法名和结果打标签
+ * <p>
+ * 仓库已被其他后处理器（如异常转换）代理时，直接把计时拦截器加到现有代理上。
+ */
+@Component
+public class RepositoryMetricsPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+    private static final long serialVersionUID = 1L;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(Repository.class, true),
+                new TimingInterceptor(meterRegistry));
+        setProxyTargetClass(true);
+    }
+
+    private static class TimingInterceptor implements MethodInterceptor {
+        private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+        TimingInterceptor(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+            this.meterRegistryProvider = meterRegistryProvider;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            // 后处理器先于 MeterRegistry 创建，首次调用时再获取
+            MeterRegistry meterRegistry = meterRegistryProvider.getObject();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "success";
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                outcome = "error";
+                throw e;
+            } finally {
+                sample.stop(Timer.builder("db.query")
+                    .description("仓库方法（含 JDBC 查询）的耗时")
+                    .tag("repository", invocation.getMethod().getDeclaringClass().getSimpleName())
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            }
+        }
+    }
+}
@@ -7,13 +7,5 @@ public class GroupUser {
     private Integer id;
     private String groupId;
     private String userQqId;
-    private String codeforcesId;
-
-    public void setCodeforcesId(String codeforcesId) {
-        if (codeforcesId != null) {
-            this.codeforcesId = codeforcesId.toLowerCase();
-        } else {
-            this.codeforcesId = null;
-        }
-    }
+    private String codeforcesId;    // 绑定时的原大小写，查询和比较一律使用数据库生成的 codeforces_id_lower
 }
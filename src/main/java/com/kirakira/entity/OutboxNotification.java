@@ -0,0 +1,23 @@
+package com.kirakira.entity;
+
+import java.time.LocalDateTime;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 发件箱中的一条过题通知，对应一个提交在一个群组中的通知
+ */
+@Data
+@Builder
+public class OutboxNotification {
+    private Long id;                      // 记录ID (数据库自增主键，即发送顺序)
+    private String groupId;               // 群组ID
+    private String submissionId;          // 提交ID
+    private String codeforcesId;          // 通知中显示的Codeforces账号ID（原大小写）
+    private String problemInfo;           // 题目信息 (格式如 "1234A (1500)")
+    private LocalDateTime submissionTime; // 提交时间 (UTC)
+    private int attempts;                 // 已失败的发送次数
+    private LocalDateTime nextAttemptAt;  // 下次允许发送的时间（数据库时间）
+    private boolean due;                  // 查询时是否已到发送时间，不写入数据库
+}
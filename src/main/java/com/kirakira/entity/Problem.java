@@ -1,5 +1,7 @@
 package com.kirakira.entity;
 
+import java.util.List;
+
 import lombok.Data;
 
 @Data
@@ -8,4 +10,6 @@ public class Problem {
     private String problemId; // 题目唯一标识 (如 "1234A")
     private String contestId; // 所属比赛ID (如 "1234")
     private Integer rating;   // 题目难度评分
+    private String name;      // 题目名称
+    private List<String> tags; // 题目标签
 }
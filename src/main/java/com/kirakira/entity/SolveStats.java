@@ -0,0 +1,26 @@
+package com.kirakira.entity;
+
+import java.time.LocalDate;
+
+import lombok.Data;
+
+/**
+ * 单个用户在一个时间段内的过题统计
+ */
+@Data
+public class SolveStats {
+    private String bucketType;      // 时间段类型：day、week、month
+    private LocalDate bucketStart;  // 时间段第一天
+    private String codeforcesId;    // Codeforces账号ID（小写）
+    private int solveCount;         // 过题数
+    private long ratingSum;         // 题目难度之和，难度未知计为 0
+    private int maxRating;          // 最高题目难度
+
+    public void setCodeforcesId(String codeforcesId) {
+        if (codeforcesId != null) {
+            this.codeforcesId = codeforcesId.toLowerCase();
+        } else {
+            this.codeforcesId = null;
+        }
+    }
+}
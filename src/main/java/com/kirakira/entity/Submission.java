@@ -13,6 +13,7 @@ public class Submission {
     private String problemId;       // 题目ID (格式如 "1234A")
     private String submissionId; 
     private LocalDateTime submissionTime;
+    private Integer rating;         // 题目难度，不写入 submission 表，只用于累加过题统计
 
     public void setCodeforcesId(String codeforcesId) {
         if (codeforcesId != null) {
@@ -0,0 +1,17 @@
+package com.kirakira.entity;
+
+import java.util.List;
+
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SubmissionPage {
+    private String handle;                      // Codeforces账号ID
+    private List<CfSubmissionDto> accepted;     // 游标之后新通过的提交（按提交ID从新到旧）
+    private int newSubmissionCount;             // 游标之后的新提交总数（含所有评测结果）
+    private Long nextCursor;                    // 处理完本页后应保存的游标
+}
@@ -0,0 +1,11 @@
+// com.kirakira.entity.dto.codeforces.CfApiResponse
+package com.kirakira.entity.dto.codeforces;
+
+/**
+ * Codeforces API 响应的公共字段
+ */
+public interface CfApiResponse {
+    String getStatus();
+
+    String getComment();
+}
@@ -0,0 +1,14 @@
+// com.kirakira.entity.dto.codeforces.CfContestDto
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+
+@Data
+public class CfContestDto {
+    private Integer id;
+    private String name;
+    private String type;
+    private String phase;
+    private Long startTimeSeconds;
+    private Long durationSeconds;
+}
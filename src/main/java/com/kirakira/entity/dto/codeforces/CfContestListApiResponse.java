@@ -0,0 +1,12 @@
+// com.kirakira.entity.dto.codeforces.CfContestListApiResponse
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CfContestListApiResponse implements CfApiResponse {
+    private String status;
+    private List<CfContestDto> result;
+    private String comment;
+}
@@ -0,0 +1,11 @@
+// com.kirakira.entity.dto.codeforces.CfProblemsetApiResponse
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+
+@Data
+public class CfProblemsetApiResponse implements CfApiResponse {
+    private String status;
+    private CfProblemsetDto result;
+    private String comment;
+}
@@ -0,0 +1,10 @@
+// com.kirakira.entity.dto.codeforces.CfProblemsetDto
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CfProblemsetDto {
+    private List<CfProblemDto> problems;
+}
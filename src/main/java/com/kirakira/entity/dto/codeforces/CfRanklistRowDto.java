@@ -0,0 +1,9 @@
+// com.kirakira.entity.dto.codeforces.CfRanklistRowDto
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+
+@Data
+public class CfRanklistRowDto {
+    private CfAuthorDto party;
+}
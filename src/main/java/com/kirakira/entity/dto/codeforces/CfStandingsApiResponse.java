@@ -0,0 +1,11 @@
+// com.kirakira.entity.dto.codeforces.CfStandingsApiResponse
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+
+@Data
+public class CfStandingsApiResponse implements CfApiResponse {
+    private String status;
+    private CfStandingsDto result;
+    private String comment;
+}
@@ -0,0 +1,11 @@
+// com.kirakira.entity.dto.codeforces.CfStandingsDto
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CfStandingsDto {
+    private CfContestDto contest;
+    private List<CfRanklistRowDto> rows;
+}
@@ -5,7 +5,7 @@ import lombok.Data;
 import java.util.List;
 
 @Data
-public class CfSubmissionApiResponse {
+public class CfSubmissionApiResponse implements CfApiResponse {
     private String status;
     private List<CfSubmissionDto> result;
     private String comment;
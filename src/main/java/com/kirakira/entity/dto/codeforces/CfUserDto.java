@@ -0,0 +1,11 @@
+// com.kirakira.entity.dto.codeforces.CfUserDto
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+
+@Data
+public class CfUserDto {
+    private String handle;
+    private Integer rating;
+    private String rank;
+}
@@ -0,0 +1,12 @@
+// com.kirakira.entity.dto.codeforces.CfUserInfoApiResponse
+package com.kirakira.entity.dto.codeforces;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CfUserInfoApiResponse implements CfApiResponse {
+    private String status;
+    private List<CfUserDto> result;
+    private String comment;
+}
@@ -1,6 +1,8 @@
 package com.kirakira.entity.exception;
 
 public class CodeforcesApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public CodeforcesApiException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -1,10 +1,25 @@
 package com.kirakira.entity.exception;
 
 public class UserNotFoundException extends CodeforcesApiException {
+    private static final long serialVersionUID = 1L;
+
+    // 不存在的用户名，无法从错误信息中识别时为 null
+    private final String handle;
+
     public UserNotFoundException(String message, Throwable cause) {
         super(message, cause);
+        this.handle = null;
     }
     public UserNotFoundException(String message) {
         super(message);
+        this.handle = null;
+    }
+    public UserNotFoundException(String message, String handle, Throwable cause) {
+        super(message, cause);
+        this.handle = handle;
+    }
+
+    public String getHandle() {
+        return handle;
     }
 }
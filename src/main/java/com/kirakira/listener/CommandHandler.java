@@ -0,0 +1,218 @@
+package com.kirakira.listener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.kirakira.service.BotService;
+import com.kirakira.service.SolveStatistics;
+
+import net.mamoe.mirai.contact.MemberPermission;
+
+/**
+ * 解析群成员的指令并交给 {@link BotService} 处理
+ * <p>
+ * 与消息事件解耦：只接收纯文本和已切分好的参数，便于在没有 Bot 连接时单独运行。
+ * 指令按名称注册在表中，查找指令不需要切分整条消息。
+ */
+public class CommandHandler {
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    private final BotService botService;
+    // 指令名（不含 "/"）-> 处理方法
+    private final Map<String, Command> commands = new HashMap<>();
+
+    /**
+     * 指令的处理方法
+     */
+    @FunctionalInterface
+    interface Command {
+        /**
+         * @return 回复内容
+         */
+        String execute(Invocation invocation);
+    }
+
+    /**
+     * 一次指令调用的参数
+     */
+    static final class Invocation {
+        final String groupId;
+        final String senderId;
+        final MemberPermission permission;
+        // 按空白切分的参数，argv[0] 为指令名
+        final String[] argv;
+        final Supplier<List<String>> tokens;
+
+        Invocation(String groupId, String senderId, MemberPermission permission, String[] argv,
+                   Supplier<List<String>> tokens) {
+            this.groupId = groupId;
+            this.senderId = senderId;
+            this.permission = permission;
+            this.argv = argv;
+            this.tokens = tokens;
+        }
+    }
+
+    public CommandHandler(BotService botService) {
+        this.botService = botService;
+        commands.put("bind", this::bind);
+        commands.put("unbind", this::unbind);
+        commands.put("help", invocation -> botService.getHelp());
+        commands.put("list", this::list);
+        commands.put("listall", this::listAll);
+        commands.put("rank", this::rank);
+    }
+
+    /**
+     * 判断消息是否为已注册的指令，只检查指令名
+     * @param message 消息的纯文本内容
+     * @return 是否为已注册的指令
+     */
+    public boolean isCommand(String message) {
+        return lookup(message) != null;
+    }
+
+    /**
+     * 处理一条群消息
+     * @param groupId 群号
+     * @param senderId 发送者 QQ 号
+     * @param permission 发送者在群内的权限
+     * @param message 消息的纯文本内容
+     * @param tokens 按消息元素切分的参数（@ 成员为 "@QQ号"），只在批量绑定时才会调用
+     * @return 回复内容，不是指令或是未知指令时返回 null
+     */
+    public String handle(String groupId, String senderId, MemberPermission permission, String message,
+                         Supplier<List<String>> tokens) {
+        Command command = lookup(message);
+        if (command == null) {
+            return null;
+        }
+
+        operationLog.info("COMMAND - Group: {}, User: {}, Command: {}", groupId, senderId, message.substring(1));
+        return command.execute(new Invocation(groupId, senderId, permission, splitArgs(message, 1), tokens));
+    }
+
+    private Command lookup(String message) {
+        if (message.length() < 2 || message.charAt(0) != '/') {
+            return null;
+        }
+        int end = 1;
+        while (end < message.length() && !Character.isWhitespace(message.charAt(end))) {
+            end++;
+        }
+        return commands.get(message.substring(1, end));
+    }
+
+    private String bind(Invocation invocation) {
+        String[] argv = invocation.argv;
+        if (argv.length < 3 || !argv[1].equals("cf")) {
+            return "指令格式错误：/bind cf [codeforces_id]";
+        }
+        // 按消息元素重新切分，@ 成员会被识别为 "@QQ号"
+        List<String> parsed = invocation.tokens.get();
+        boolean mentioned = parsed.stream().anyMatch(token -> token.startsWith("@"));
+        if (!mentioned && argv.length == 3) {
+            return botService.linkAccount(invocation.groupId, invocation.senderId, argv[2]);
+        }
+        if (mentioned && !isAdmin(invocation.permission)) {
+            return "权限不够，为其他成员绑定至少需要管理员权限！";
+        }
+        Map<String, List<String>> bindings = parseBindings(parsed, invocation.senderId);
+        if (bindings.isEmpty()) {
+            return "指令格式错误：/bind cf @成员 [codeforces_id] ...";
+        }
+        return botService.linkAccounts(invocation.groupId, bindings);
+    }
+
+    private String unbind(Invocation invocation) {
+        String[] argv = invocation.argv;
+        if (argv.length != 3 || !argv[1].equals("cf")) {
+            return "指令格式错误：/unbind cf [codeforces_id]";
+        }
+        return botService.unlinkAccount(invocation.groupId, invocation.senderId, argv[2]);
+    }
+
+    private String list(Invocation invocation) {
+        String[] argv = invocation.argv;
+        if (argv.length != 2 || !argv[1].equals("cf")) {
+            return "指令格式错误：/list cf";
+        }
+        return botService.querySingleUserList(invocation.groupId, invocation.senderId);
+    }
+
+    private String listAll(Invocation invocation) {
+        String[] argv = invocation.argv;
+        if (argv.length != 2 || !argv[1].equals("cf")) {
+            return "指令格式错误：/listall cf";
+        }
+        if (!isAdmin(invocation.permission)) {
+            return "权限不够，本操作至少需要管理员权限！";
+        }
+        return botService.queryAllUserList(invocation.groupId);
+    }
+
+    private String rank(Invocation invocation) {
+        String[] argv = invocation.argv;
+        SolveStatistics.Period period = argv.length == 1 ? SolveStatistics.Period.WEEK
+            : argv.length == 2 ? SolveStatistics.Period.parse(argv[1]) : null;
+        if (period == null) {
+            return "指令格式错误：/rank [day|week|month]";
+        }
+        return botService.queryLeaderboard(invocation.groupId, period);
+    }
+
+    private static boolean isAdmin(MemberPermission permission) {
+        return permission == MemberPermission.ADMINISTRATOR || permission == MemberPermission.OWNER;
+    }
+
+    /**
+     * 按空白切分参数，连续的空白视为一个分隔符，不使用正则表达式
+     * @param message 消息
+     * @param from 开始切分的位置
+     * @return 参数数组
+     */
+    static String[] splitArgs(String message, int from) {
+        List<String> args = new ArrayList<>(4);
+        int length = message.length();
+        int i = from;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(message.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(message.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                args.add(message.substring(start, i));
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * 解析批量绑定指令的参数：每个 @ 成员之后的账号绑定到该成员，第一个 @ 之前的账号绑定到发送者
+     * @param tokens 参数列表，前两个为 "/bind" 和 "cf"
+     * @param senderId 发送者 QQ 号
+     * @return QQ 号 -> Codeforces ID 列表
+     */
+    static Map<String, List<String>> parseBindings(List<String> tokens, String senderId) {
+        Map<String, List<String>> bindings = new LinkedHashMap<>();
+        String qqId = senderId;
+        for (String token : tokens.subList(Math.min(2, tokens.size()), tokens.size())) {
+            if (token.startsWith("@")) {
+                qqId = token.substring(1);
+            } else {
+                bindings.computeIfAbsent(qqId, k -> new ArrayList<>()).add(token);
+            }
+        }
+        return bindings;
+    }
+}
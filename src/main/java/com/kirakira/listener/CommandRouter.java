@@ -0,0 +1,125 @@
+package com.kirakira.listener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.service.BotService;
+import com.kirakira.service.ClusterMembership;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.mamoe.mirai.contact.MemberPermission;
+
+/**
+ * 在有界线程池中异步执行群指令
+ * <p>
+ * 绑定等指令需要请求 Codeforces API 和数据库，放在事件回调中执行会阻塞其他群组的指令。
+ * 这里只在回调线程上判断是否为指令，处理过程交给线程池；同一用户在同一群组中重复发送的、
+ * 仍在处理中的相同指令只执行一次；线程池和等待队列都满时直接回复繁忙，不无限排队。
+ */
+@Component
+public class CommandRouter implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(CommandRouter.class);
+    static final String BUSY_REPLY = "当前处理的指令过多，请稍后再试。";
+
+    private final CommandHandler commandHandler;
+    private final ClusterMembership clusterMembership;
+    private final ThreadPoolExecutor executor;
+    // 群号/QQ 号/指令 -> 处理中的指令
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter accepted;
+    private final Counter duplicated;
+    private final Counter rejected;
+
+    public CommandRouter(BotService botService,
+                         ClusterMembership clusterMembership,
+                         MeterRegistry meterRegistry,
+                         @Value("${command.executor.threads:4}") int threads,
+                         @Value("${command.executor.queue.capacity:32}") int queueCapacity) {
+        this.commandHandler = new CommandHandler(botService);
+        this.clusterMembership = clusterMembership;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("command-");
+        threadFactory.setDaemon(true);
+        // 默认的 AbortPolicy 在线程和队列都占满时抛出 RejectedExecutionException
+        this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.accepted = commandCounter(meterRegistry, "accepted");
+        this.duplicated = commandCounter(meterRegistry, "duplicate");
+        this.rejected = commandCounter(meterRegistry, "rejected");
+        Gauge.builder("command.executor.queue.depth", executor, e -> e.getQueue().size())
+            .description("等待执行的群指令数")
+            .register(meterRegistry);
+    }
+
+    private static Counter commandCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("command.requests")
+            .description("收到的群指令数，按是否执行分类")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 提交一条群消息
+     * @param groupId 群号
+     * @param senderId 发送者 QQ 号
+     * @param permission 发送者在群内的权限
+     * @param message 消息的纯文本内容
+     * @param tokens 按消息元素切分的参数，在处理线程上调用
+     * @return 不是指令或本节点不是 leader 时返回 null；否则返回回复内容，重复的指令以 null 结束，不需要回复
+     */
+    public CompletableFuture<String> route(String groupId, String senderId, MemberPermission permission, String message,
+                                           Supplier<List<String>> tokens) {
+        // 多实例部署时每个节点都会收到群消息，只由 leader 处理
+        if (!commandHandler.isCommand(message) || !clusterMembership.isLeader()) {
+            return null;
+        }
+
+        String key = groupId + "/" + senderId + "/" + message.trim();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, future) != null) {
+            duplicated.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(commandHandler.handle(groupId, senderId, permission, message, tokens));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            rejected.increment();
+            log.warn("Command executor saturated, rejected command from user {} in group {}", senderId, groupId);
+            return CompletableFuture.completedFuture(BUSY_REPLY);
+        }
+        accepted.increment();
+        return future;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -1,82 +1,76 @@
 package com.kirakira.listener;
 
-import com.kirakira.service.BotService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.kirakira.client.MessageDispatcher;
 
-import net.mamoe.mirai.contact.MemberPermission;
 import net.mamoe.mirai.event.EventChannel;
 import net.mamoe.mirai.event.Listener;
 import net.mamoe.mirai.event.events.BotEvent;
 import net.mamoe.mirai.event.events.GroupMessageEvent;
+import net.mamoe.mirai.message.data.At;
+import net.mamoe.mirai.message.data.MessageChain;
+import net.mamoe.mirai.message.data.SingleMessage;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 public class GroupMessageListener {
-    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+    private static final Logger log = LoggerFactory.getLogger(GroupMessageListener.class);
     private final Listener<GroupMessageEvent> listener;
     
-    public GroupMessageListener(BotService botService, EventChannel<BotEvent> channel) {
+    public GroupMessageListener(CommandRouter commandRouter, MessageDispatcher messageDispatcher, EventChannel<BotEvent> channel) {
         this.listener = channel.subscribeAlways(GroupMessageEvent.class, event -> {
-            String message = event.getMessage().contentToString();
-            MemberPermission permission = event.getPermission();
             String groupId = Long.toString(event.getGroup().getId());
             String senderId = Long.toString(event.getSender().getId());
-
-            if (!message.startsWith("/")) {
-                return;
-            }
-
-            message = message.substring(1);
-            String[] argv = message.split(" ");
-            
-            // 检查 argv 是否为空
-            if (argv.length == 0) {
+            MessageChain chain = event.getMessage();
+            // 回调线程上只判断是否为指令，处理过程在 CommandRouter 的线程池中执行
+            CompletableFuture<String> reply = commandRouter.route(groupId, senderId, event.getPermission(),
+                    chain.contentToString(), () -> tokenize(chain));
+            if (reply == null) {
                 return;
             }
-            
-            operationLog.info("COMMAND - Group: {}, User: {}, Command: {}", groupId, senderId, message);
-            
-            String returnMsg = "null";
 
-            if (argv[0].equals("bind")) {
-                if (argv.length != 3 || !argv[1].equals("cf")) {
-                    returnMsg = "指令格式错误：/bind cf [codeforces_id]";
-                } else {
-                    returnMsg = botService.linkAccount(groupId, senderId, argv[2]);
-                }
-            } else if (argv[0].equals("unbind")) {
-                if (argv.length != 3 || !argv[1].equals("cf")) {
-                    returnMsg = "指令格式错误：/unbind cf [codeforces_id]";
-                } else {
-                    returnMsg = botService.unlinkAccount(groupId, senderId, argv[2]);
-                }
-            } else if (argv[0].equals("help")) {
-                returnMsg = botService.getHelp();
-            } else if (argv[0].equals("list")) {
-                if (argv.length != 2 || !argv[1].equals("cf")) {
-                    returnMsg = "指令格式错误：/list cf";
-                } else {
-                    returnMsg = botService.querySingleUserList(groupId, senderId);
+            var subject = event.getSubject();
+            reply.thenAccept(returnMsg -> {
+                if (returnMsg == null) {
+                    return;
                 }
-            } else if (argv[0].equals("listall")) {
-                if (argv.length != 2 || !argv[1].equals("cf")) {
-                    returnMsg = "指令格式错误：/listall cf";
-                } else {
-                    if (permission != MemberPermission.ADMINISTRATOR && permission != MemberPermission.OWNER) {
-                        returnMsg = "权限不够，本操作至少需要管理员权限！";
-                    } else {
-                        returnMsg = botService.queryAllUserList(groupId);
-                    }
+                // 指令回复走交互通道，优先于积压的监控通知发送
+                messageDispatcher.submit(groupId, MessageDispatcher.Priority.INTERACTIVE, () -> subject.sendMessage(returnMsg))
+                    .exceptionally(e -> {
+                        log.error("Failed to reply to group {}", groupId, e);
+                        return null;
+                    });
+            }).exceptionally(e -> {
+                log.error("Failed to handle command from user {} in group {}", senderId, groupId, e);
+                return null;
+            });
+        });
+    }
+
+    /**
+     * 将消息按空白切分为参数，@ 成员转换为 "@QQ号"
+     * @param chain 消息链
+     * @return 参数列表
+     */
+    private static List<String> tokenize(MessageChain chain) {
+        List<String> tokens = new ArrayList<>();
+        for (SingleMessage element : chain) {
+            if (element instanceof At) {
+                tokens.add("@" + ((At) element).getTarget());
+                continue;
+            }
+            for (String token : element.contentToString().trim().split("\\s+")) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
                 }
-            } else {        // 未知指令，忽略消息
-                return;
             }
-
-            var subject = event.getSubject();
-
-            subject.sendMessage(returnMsg);
-        });
+        }
+        return tokens;
     }
 
     public Listener<GroupMessageEvent> getListener() {
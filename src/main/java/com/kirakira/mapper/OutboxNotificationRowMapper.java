@@ -0,0 +1,26 @@
+package com.kirakira.mapper;
+
+import org.springframework.jdbc.core.RowMapper;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import com.kirakira.entity.OutboxNotification;
+
+public class OutboxNotificationRowMapper implements RowMapper<OutboxNotification> {
+    @Override
+    public OutboxNotification mapRow(ResultSet rs, int rowNum) throws SQLException {
+        OutboxNotification notification = OutboxNotification.builder()
+            .id(rs.getLong("id"))
+            .groupId(rs.getString("group_id"))
+            .submissionId(rs.getString("submission_id"))
+            .codeforcesId(rs.getString("codeforces_id"))
+            .problemInfo(rs.getString("problem_info"))
+            .submissionTime(rs.getObject("submission_time", LocalDateTime.class))
+            .attempts(rs.getInt("attempts"))
+            .nextAttemptAt(rs.getObject("next_attempt_at", LocalDateTime.class))
+            .due(rs.getBoolean("due"))
+            .build();
+        return notification;
+    }
+}
@@ -3,6 +3,8 @@ package com.kirakira.mapper;
 import org.springframework.jdbc.core.RowMapper;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import com.kirakira.entity.Problem;
 
 public class ProblemRowMapper implements RowMapper<Problem> {
@@ -12,7 +14,11 @@ public class ProblemRowMapper implements RowMapper<Problem> {
         problem.setId(rs.getInt("id"));
         problem.setProblemId(rs.getString("problem_id"));
         problem.setContestId(rs.getString("contest_id"));
-        problem.setRating(rs.getInt("rating"));
+        problem.setRating(rs.getObject("rating", Integer.class));
+        problem.setName(rs.getString("name"));
+        // 标签以逗号分隔存储
+        String tags = rs.getString("tags");
+        problem.setTags(tags == null || tags.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(tags.split(","))));
         return problem;
     }
-}
\ No newline at end of file
+}
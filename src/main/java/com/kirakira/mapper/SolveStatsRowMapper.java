@@ -0,0 +1,22 @@
+package com.kirakira.mapper;
+
+import org.springframework.jdbc.core.RowMapper;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import com.kirakira.entity.SolveStats;
+
+public class SolveStatsRowMapper implements RowMapper<SolveStats> {
+    @Override
+    public SolveStats mapRow(ResultSet rs, int rowNum) throws SQLException {
+        SolveStats stats = new SolveStats();
+        stats.setBucketType(rs.getString("bucket_type"));
+        stats.setBucketStart(rs.getObject("bucket_start", LocalDate.class));
+        stats.setCodeforcesId(rs.getString("codeforces_id_lower"));
+        stats.setSolveCount(rs.getInt("solve_count"));
+        stats.setRatingSum(rs.getLong("rating_sum"));
+        stats.setMaxRating(rs.getInt("max_rating"));
+        return stats;
+    }
+}
@@ -0,0 +1,85 @@
+package com.kirakira.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class ClusterLeaseRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ClusterLeaseRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 登记或续约节点
+     * @param nodeId 节点 ID
+     * @param host 节点主机名
+     * @param ttlMs 租约有效期（毫秒）
+     */
+    public void renewNode(String nodeId, String host, long ttlMs) {
+        String sql = "INSERT INTO cluster_node (node_id, host, started_at, lease_expires_at) "
+                + "VALUES (?, ?, NOW(3), TIMESTAMPADD(MICROSECOND, ?, NOW(3))) "
+                + "ON DUPLICATE KEY UPDATE host = VALUES(host), lease_expires_at = VALUES(lease_expires_at)";
+        jdbcTemplate.update(sql, nodeId, host, ttlMs * 1000);
+    }
+
+    /**
+     * 获取租约未过期的节点
+     * @return 节点 ID 列表，按 ID 排序
+     */
+    public List<String> enumerateLiveNodes() {
+        String sql = "SELECT node_id FROM cluster_node WHERE lease_expires_at > NOW(3) ORDER BY node_id";
+        return jdbcTemplate.queryForList(sql, String.class);
+    }
+
+    /**
+     * 删除节点，节点正常退出时调用，其余节点下次续约时即可接管
+     * @param nodeId 节点 ID
+     */
+    public void removeNode(String nodeId) {
+        String sql = "DELETE FROM cluster_node WHERE node_id = ?";
+        jdbcTemplate.update(sql, nodeId);
+    }
+
+    /**
+     * 删除租约过期已久的节点记录
+     * @param retentionMs 过期后保留的时间（毫秒）
+     * @return 删除的记录数
+     */
+    public int removeExpiredNodes(long retentionMs) {
+        String sql = "DELETE FROM cluster_node WHERE lease_expires_at < TIMESTAMPADD(MICROSECOND, ?, NOW(3))";
+        return jdbcTemplate.update(sql, -retentionMs * 1000);
+    }
+
+    /**
+     * 尝试获取或续约命名租约：租约不存在、已过期或已由本节点持有时成功
+     * @param name 租约名称
+     * @param owner 节点 ID
+     * @param ttlMs 租约有效期（毫秒）
+     * @return 本节点是否持有租约
+     */
+    public boolean tryAcquireLease(String name, String owner, long ttlMs) {
+        // MySQL 按顺序执行赋值：先决定新的持有者，expires_at 的判断看到的是更新后的 owner
+        String sql = "INSERT INTO cluster_lease (name, owner, expires_at) "
+                + "VALUES (?, ?, TIMESTAMPADD(MICROSECOND, ?, NOW(3))) "
+                + "ON DUPLICATE KEY UPDATE "
+                + "owner = IF(owner = VALUES(owner) OR expires_at < NOW(3), VALUES(owner), owner), "
+                + "expires_at = IF(owner = VALUES(owner), VALUES(expires_at), expires_at)";
+        jdbcTemplate.update(sql, name, owner, ttlMs * 1000);
+        List<String> owners = jdbcTemplate.queryForList("SELECT owner FROM cluster_lease WHERE name = ?", String.class, name);
+        return !owners.isEmpty() && owner.equals(owners.get(0));
+    }
+
+    /**
+     * 释放本节点持有的租约
+     * @param name 租约名称
+     * @param owner 节点 ID
+     */
+    public void releaseLease(String name, String owner) {
+        String sql = "DELETE FROM cluster_lease WHERE name = ? AND owner = ?";
+        jdbcTemplate.update(sql, name, owner);
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import com.kirakira.entity.GroupUser;
+import com.kirakira.mapper.GroupUserRowMapper;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -13,6 +14,24 @@ import java.util.Map;
 
 @Repository
 public class GroupUserRepository {
+    // 以下为热点查询，启动时由 QueryPlanVerifier 检查执行计划
+    static final String CHECK_CODEFORCES_ID_EXISTS_SQL =
+            "SELECT COUNT(*) FROM group_user WHERE group_id = ? AND codeforces_id_lower = ?";
+    static final String CHECK_BINDING_EXISTS_SQL =
+            "SELECT COUNT(*) FROM group_user WHERE group_id = ? AND user_qq_id = ? AND codeforces_id_lower = ?";
+    static final String ENUMERATE_GROUPS_BY_CODEFORCES_ID_SQL =
+            "SELECT DISTINCT group_id FROM group_user WHERE codeforces_id_lower = ?";
+    static final String ENUMERATE_CODEFORCES_ID_FROM_GROUP_SQL =
+            "SELECT user_qq_id, codeforces_id FROM group_user WHERE group_id = ?";
+    static final String ENUMERATE_CODEFORCES_ID_OF_SINGLE_USER_SQL =
+            "SELECT codeforces_id FROM group_user WHERE group_id = ? AND user_qq_id = ?";
+    static final String QUERY_QQ_ID_BY_CODEFORCES_ID_SQL =
+            "SELECT user_qq_id FROM group_user WHERE codeforces_id_lower = ?";
+    static final String REMOVE_GROUP_USER_SQL =
+            "DELETE FROM group_user WHERE group_id = ? AND codeforces_id_lower = ?";
+    static final String REMOVE_GROUP_USER_BINDING_SQL =
+            "DELETE FROM group_user WHERE group_id = ? AND user_qq_id = ? AND codeforces_id_lower = ?";
+
     private final JdbcTemplate jdbcTemplate;
 
     public GroupUserRepository(JdbcTemplate jdbcTemplate) {
@@ -26,8 +45,8 @@ public class GroupUserRepository {
      * @return 如果已绑定返回 true，否则返回 false
      */
     public boolean checkIfCodeforcesIdExists(String groupId, String codeforcesId) {
-        String sql = "SELECT COUNT(*) FROM group_user WHERE group_id = ? AND codeforces_id = ?";
-        Long queryResults = jdbcTemplate.queryForObject(sql, Long.class, groupId, codeforcesId);
+        Long queryResults = jdbcTemplate.queryForObject(CHECK_CODEFORCES_ID_EXISTS_SQL, Long.class, groupId,
+                codeforcesId.toLowerCase());
         return queryResults != null && queryResults > 0;
     }
 
@@ -39,28 +58,36 @@ public class GroupUserRepository {
      * @return 如果存在绑定，则返回 true，否则返回 false
      */
     public boolean checkIfBindingExists(String groupId, String qqId, String codeforcesId) {
-        String sql = "SELECT COUNT(*) FROM group_user WHERE group_id = ? AND user_qq_id = ? AND codeforces_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, groupId, qqId, codeforcesId);
+        Integer count = jdbcTemplate.queryForObject(CHECK_BINDING_EXISTS_SQL, Integer.class, groupId, qqId,
+                codeforcesId.toLowerCase());
         return count != null && count > 0;
     }
 
+    /**
+     * 获取所有绑定记录
+     * @return 绑定记录列表
+     */
+    public List<GroupUser> enumerateAllGroupUsers() {
+        String sql = "SELECT id, group_id, user_qq_id, codeforces_id FROM group_user";
+        return jdbcTemplate.query(sql, new GroupUserRowMapper());
+    }
+
     /**
      * 获取所有不重复的 Codeforces ID
      * @return Codeforces ID 列表
      */
     public List<String> enumerateAllCodeforcesId() {
-        String sql = "SELECT DISTINCT codeforces_id FROM group_user";
+        String sql = "SELECT DISTINCT codeforces_id_lower FROM group_user";
         return jdbcTemplate.queryForList(sql, String.class);
     }
 
     /**
      * 根据 Codeforces ID 获取关联的所有群组
-     * @param cfId Codeforces ID
+     * @param cfId Codeforces ID（不区分大小写，库中统一以小写存储）
      * @return 群组 ID 列表
      */
     public List<String> enumerateGroupsByCodeforcesId(String cfId) {
-        String sql = "SELECT DISTINCT group_id FROM group_user WHERE LOWER(codeforces_id) = LOWER(?)";
-        return jdbcTemplate.queryForList(sql, String.class, cfId);
+        return jdbcTemplate.queryForList(ENUMERATE_GROUPS_BY_CODEFORCES_ID_SQL, String.class, cfId.toLowerCase());
     }
     
     /**
@@ -69,9 +96,7 @@ public class GroupUserRepository {
      * @return 该群组下所有用户的 Codeforces ID 列表（可能为空列表）
      */
     public Map<String, List<String>> enumerateCodeforcesIdFromGroup(String groupId) {
-        String sql = "SELECT user_qq_id, codeforces_id FROM group_user WHERE group_id = ?";
-
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, groupId);
+        List<Map<String, Object>> results = jdbcTemplate.queryForList(ENUMERATE_CODEFORCES_ID_FROM_GROUP_SQL, groupId);
 
         Map<String, List<String>> userCodeforcesMap = new HashMap<>();
         for (Map<String, Object> row : results) {
@@ -99,9 +124,7 @@ public class GroupUserRepository {
      * @return Codeforces ID 列表
      */
     public List<String> enumerateCodeforcesIdOfSingleUser(String groupId, String qqId) {
-        String sql = "SELECT codeforces_id FROM group_user WHERE group_id = ? AND user_qq_id = ?";
-
-        return jdbcTemplate.queryForList(sql, String.class, groupId, qqId);
+        return jdbcTemplate.queryForList(ENUMERATE_CODEFORCES_ID_OF_SINGLE_USER_SQL, String.class, groupId, qqId);
     }
 
     /**
@@ -119,9 +142,8 @@ public class GroupUserRepository {
      * @return 对应的 QQ 号，未找到时返回 null
      */
     public String queryQqIdByCodeforcesId(String codeforcesId) {
-        String sql = "SELECT user_qq_id FROM group_user WHERE codeforces_id = ?";
         try {
-            return jdbcTemplate.queryForObject(sql, String.class, codeforcesId);
+            return jdbcTemplate.queryForObject(QUERY_QQ_ID_BY_CODEFORCES_ID_SQL, String.class, codeforcesId.toLowerCase());
         } catch (EmptyResultDataAccessException e) {
             return null;
         }
@@ -143,6 +165,19 @@ public class GroupUserRepository {
         return affectedRows > 0;
     }
 
+    /**
+     * 批量添加群组用户
+     * @param groupUsers 用户对象列表
+     */
+    public void batchAddGroupUsers(List<GroupUser> groupUsers) {
+        String sql = "INSERT INTO group_user (group_id, user_qq_id, codeforces_id) VALUES (?, ?, ?)";
+        List<Object[]> batchArgs = new ArrayList<>(groupUsers.size());
+        for (GroupUser groupUser : groupUsers) {
+            batchArgs.add(new Object[] { groupUser.getGroupId(), groupUser.getUserQqId(), groupUser.getCodeforcesId() });
+        }
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
     /**
      * 删除指定的 Codeforces 绑定
      * @param groupId 群号
@@ -150,8 +185,7 @@ public class GroupUserRepository {
      * @return 如果删除成功，返回 true；否则返回 false
      */
     public boolean removeGroupUser(String groupId, String codeforcesId) {
-        String sql = "DELETE FROM group_user WHERE group_id = ? AND codeforces_id = ?";
-        int rowsAffected = jdbcTemplate.update(sql, groupId, codeforcesId);
+        int rowsAffected = jdbcTemplate.update(REMOVE_GROUP_USER_SQL, groupId, codeforcesId.toLowerCase());
         return rowsAffected > 0;
     }
 
@@ -163,8 +197,7 @@ public class GroupUserRepository {
      * @return 如果删除成功，返回 true；否则返回 false
      */
     public boolean removeGroupUserBinding(String groupId, String qqId, String codeforcesId) {
-        String sql = "DELETE FROM group_user WHERE group_id = ? AND user_qq_id = ? AND codeforces_id = ?";
-        int rowsAffected = jdbcTemplate.update(sql, groupId, qqId, codeforcesId);
+        int rowsAffected = jdbcTemplate.update(REMOVE_GROUP_USER_BINDING_SQL, groupId, qqId, codeforcesId.toLowerCase());
         return rowsAffected > 0;
     }
 }
@@ -0,0 +1,238 @@
+package com.kirakira.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.kirakira.entity.OutboxNotification;
+import com.kirakira.mapper.OutboxNotificationRowMapper;
+
+@Repository
+public class NotificationOutboxRepository {
+    static final int STATUS_PENDING = 0;
+    static final int STATUS_SENT = 1;
+    static final int STATUS_ABANDONED = 2;
+    static final int STATUS_SENDING = 3;
+    // 旧版本把发送中断的通知标记为未确认，现在改为重新发送，此状态只等待清理
+    static final int STATUS_UNCONFIRMED = 4;
+
+    // 以下为热点查询，启动时由 QueryPlanVerifier 检查执行计划
+    static final String ENUMERATE_DUE_SQL = "SELECT id, group_id, submission_id, codeforces_id, problem_info, "
+            + "submission_time, attempts, next_attempt_at, TRUE AS due FROM notification_outbox "
+            + "WHERE status = " + STATUS_PENDING + " AND next_attempt_at <= NOW(3) ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NotificationOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 批量写入待发送的通知，同一提交在同一群组已有的通知会被忽略
+     * @param notifications 通知列表，按发送顺序排列
+     * @return 实际写入的通知数
+     */
+    public int batchEnqueue(List<OutboxNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT IGNORE INTO notification_outbox "
+                + "(group_id, submission_id, codeforces_id, problem_info, submission_time, status, attempts, next_attempt_at, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, " + STATUS_PENDING + ", 0, NOW(3), NOW(3))";
+        int[] affectedRows = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OutboxNotification notification = notifications.get(i);
+                ps.setString(1, notification.getGroupId());
+                ps.setString(2, notification.getSubmissionId());
+                ps.setString(3, notification.getCodeforcesId());
+                ps.setString(4, notification.getProblemInfo());
+                ps.setObject(5, notification.getSubmissionTime());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return notifications.size();
+            }
+        });
+        int enqueued = 0;
+        for (int rows : affectedRows) {
+            enqueued += Math.max(rows, 0);
+        }
+        return enqueued;
+    }
+
+    /**
+     * 获取已到发送时间的待发送通知
+     * @param limit 最多返回的条数
+     * @return 通知列表，按 id（写入顺序）排列
+     */
+    public List<OutboxNotification> enumerateDue(int limit) {
+        return jdbcTemplate.query(ENUMERATE_DUE_SQL, new OutboxNotificationRowMapper(), limit);
+    }
+
+    /**
+     * 获取各群组最早的一条待发送通知，用于判断群组是否有更早的通知仍在等待重试
+     * @param groupIds 群组 ID
+     * @return 群组 ID -> 最早的待发送通知，没有待发送通知的群组不在结果中
+     */
+    public Map<String, OutboxNotification> enumerateGroupHeads(Collection<String> groupIds) {
+        Map<String, OutboxNotification> heads = new HashMap<>();
+        if (groupIds.isEmpty()) {
+            return heads;
+        }
+        String sql = "SELECT o.id, o.group_id, o.submission_id, o.codeforces_id, o.problem_info, o.submission_time, "
+                + "o.attempts, o.next_attempt_at, o.next_attempt_at <= NOW(3) AS due FROM notification_outbox o "
+                + "JOIN (SELECT MIN(id) AS head_id FROM notification_outbox WHERE status = " + STATUS_PENDING
+                + " AND group_id IN (" + String.join(", ", Collections.nCopies(groupIds.size(), "?")) + ") "
+                + "GROUP BY group_id) heads ON o.id = heads.head_id";
+        for (OutboxNotification head : jdbcTemplate.query(sql, new OutboxNotificationRowMapper(), groupIds.toArray())) {
+            heads.put(head.getGroupId(), head);
+        }
+        return heads;
+    }
+
+    /**
+     * 发送前把待发送通知标记为发送中，并记录本次尝试的凭证；之后只有持有该凭证的发送方能更新这些通知
+     * @param ids 通知 ID
+     * @param claimToken 本次尝试的凭证
+     * @return 本次标记的通知数，少于 ids 的数量时说明有通知已不是待发送状态
+     */
+    public int claim(List<Long> ids, String claimToken) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String sql = "UPDATE notification_outbox SET status = " + STATUS_SENDING + ", claim_token = ? "
+                + "WHERE status = " + STATUS_PENDING + " AND id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        return jdbcTemplate.update(sql, withToken(claimToken, ids));
+    }
+
+    /**
+     * 放弃本次尝试，把仍由该凭证持有的通知恢复为待发送，不计入失败次数
+     * @param ids 通知 ID
+     * @param claimToken 本次尝试的凭证
+     */
+    public void release(List<Long> ids, String claimToken) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE notification_outbox SET status = " + STATUS_PENDING + ", claim_token = NULL "
+                + "WHERE status = " + STATUS_SENDING + " AND claim_token = ? "
+                + "AND id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        jdbcTemplate.update(sql, withToken(claimToken, ids));
+    }
+
+    /**
+     * 标记通知已发送
+     * @param ids 通知 ID
+     * @param claimToken 本次尝试的凭证，凭证已失效（通知已被恢复为待发送）的通知不受影响
+     * @return 本次标记的通知数
+     */
+    public int markSent(List<Long> ids, String claimToken) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String sql = "UPDATE notification_outbox SET status = " + STATUS_SENT + ", sent_at = NOW(3), finished_at = NOW(3) "
+                + "WHERE status = " + STATUS_SENDING + " AND claim_token = ? "
+                + "AND id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        return jdbcTemplate.update(sql, withToken(claimToken, ids));
+    }
+
+    /**
+     * 标记通知多次发送失败、不再重试
+     * @param ids 通知 ID
+     * @param claimToken 本次尝试的凭证
+     * @return 本次标记的通知数
+     */
+    public int markAbandoned(List<Long> ids, String claimToken) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String sql = "UPDATE notification_outbox SET status = " + STATUS_ABANDONED + ", finished_at = NOW(3) "
+                + "WHERE status = " + STATUS_SENDING + " AND claim_token = ? "
+                + "AND id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        return jdbcTemplate.update(sql, withToken(claimToken, ids));
+    }
+
+    /**
+     * 记录一次发送失败：这些通知恢复为待发送并累加失败次数，再把该群组所有待发送通知推迟到同一时间，保持发送顺序
+     * @param groupId 群组 ID
+     * @param ids 本次发送失败的通知 ID
+     * @param claimToken 本次尝试的凭证
+     * @param delayMs 推迟的时间（毫秒）
+     */
+    public void recordFailure(String groupId, List<Long> ids, String claimToken, long delayMs) {
+        if (!ids.isEmpty()) {
+            String sql = "UPDATE notification_outbox SET status = " + STATUS_PENDING + ", claim_token = NULL, attempts = attempts + 1 "
+                    + "WHERE status = " + STATUS_SENDING + " AND claim_token = ? "
+                    + "AND id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+            jdbcTemplate.update(sql, withToken(claimToken, ids));
+        }
+        deferGroup(groupId, delayMs);
+    }
+
+    /**
+     * 把所有发送中的通知恢复为待发送，以便重新发送
+     * <p>
+     * 集群中同一时间只有一个发送线程，且它在每批发送完成后才读取下一批，所以它开始读取时仍处于发送中的通知
+     * 都来自已退出的进程或已失去 leader 租约的节点，无法确定是否已送达，宁可重复发送也不丢失。
+     * 原凭证被清除，原发送线程之后的标记不再生效。
+     * @return 恢复的通知数
+     */
+    public int requeueInterrupted() {
+        String sql = "UPDATE notification_outbox SET status = " + STATUS_PENDING + ", claim_token = NULL "
+                + "WHERE status = " + STATUS_SENDING;
+        return jdbcTemplate.update(sql);
+    }
+
+    private static Object[] withToken(String claimToken, List<Long> ids) {
+        Object[] args = new Object[ids.size() + 1];
+        args[0] = claimToken;
+        for (int i = 0; i < ids.size(); i++) {
+            args[i + 1] = ids.get(i);
+        }
+        return args;
+    }
+
+    /**
+     * 把群组所有待发送通知推迟到指定时间之后
+     * @param groupId 群组 ID
+     * @param delayMs 推迟的时间（毫秒）
+     */
+    private void deferGroup(String groupId, long delayMs) {
+        String sql = "UPDATE notification_outbox SET next_attempt_at = TIMESTAMPADD(MICROSECOND, ?, NOW(3)) "
+                + "WHERE group_id = ? AND status = " + STATUS_PENDING;
+        jdbcTemplate.update(sql, delayMs * 1000, groupId);
+    }
+
+    /**
+     * 把群组中较新的待发送通知推迟到最早一条通知的重试时间，避免越过仍在等待重试的通知
+     * @param groupId 群组 ID
+     * @param nextAttemptAt 最早一条待发送通知的下次发送时间（数据库时间）
+     */
+    public void deferGroupUntil(String groupId, LocalDateTime nextAttemptAt) {
+        String sql = "UPDATE notification_outbox SET next_attempt_at = ? "
+                + "WHERE group_id = ? AND status = " + STATUS_PENDING + " AND next_attempt_at < ?";
+        jdbcTemplate.update(sql, nextAttemptAt, groupId, nextAttemptAt);
+    }
+
+    /**
+     * 删除结束发送（已发送、已放弃或未确认）较久的通知，按 finished_at 计算，使用 idx_outbox_status_finished
+     * @param retentionMs 保留的时间（毫秒）
+     * @return 删除的记录数
+     */
+    public int purgeFinished(long retentionMs) {
+        String sql = "DELETE FROM notification_outbox WHERE status IN (" + STATUS_SENT + ", " + STATUS_ABANDONED + ", " + STATUS_UNCONFIRMED + ") "
+                + "AND finished_at < TIMESTAMPADD(MICROSECOND, ?, NOW(3))";
+        return jdbcTemplate.update(sql, -retentionMs * 1000);
+    }
+}
@@ -0,0 +1,46 @@
+package com.kirakira.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class PollCursorRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public PollCursorRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 获取所有用户的提交游标
+     * @return Codeforces ID（小写）-> 已处理的最大提交 ID，查询时需要用小写的用户名
+     */
+    public Map<String, Long> enumerateAllCursors() {
+        String sql = "SELECT codeforces_id, last_submission_id FROM poll_cursor";
+        Map<String, Long> cursors = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            cursors.put(rs.getString("codeforces_id").toLowerCase(), rs.getLong("last_submission_id"));
+        });
+        return cursors;
+    }
+
+    /**
+     * 批量更新用户的提交游标，游标只会前进不会后退
+     * @param cursors Codeforces ID（不区分大小写）-> 已处理的最大提交 ID
+     */
+    public void batchUpdateCursors(Map<String, Long> cursors) {
+        if (cursors.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO poll_cursor (codeforces_id, last_submission_id) VALUES (?, ?) "
+                + "ON DUPLICATE KEY UPDATE last_submission_id = GREATEST(last_submission_id, VALUES(last_submission_id))";
+        List<Object[]> batchArgs = new ArrayList<>(cursors.size());
+        cursors.forEach((codeforcesId, lastSubmissionId) -> batchArgs.add(new Object[] { codeforcesId.toLowerCase(), lastSubmissionId }));
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+}
@@ -1,12 +1,21 @@
 package com.kirakira.repository;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import com.kirakira.entity.Problem;
+import com.kirakira.mapper.ProblemRowMapper;
 
 @Repository
 public class ProblemRepository {
+    // 热点查询，启动时由 QueryPlanVerifier 检查执行计划
+    static final String QUERY_PROBLEM_BY_ID_SQL =
+            "SELECT id, problem_id, contest_id, rating, name, tags FROM problem WHERE problem_id = ?";
+
     private final JdbcTemplate jdbcTemplate;
 
     public ProblemRepository(JdbcTemplate jdbcTemplate) {
@@ -20,24 +29,65 @@ public class ProblemRepository {
     }
 
     public boolean addProblem(Problem problem) {
-        String sql = "INSERT INTO problem (problem_id, contest_id, rating) VALUES (?, ?, ?)";
+        String sql = "INSERT INTO problem (problem_id, contest_id, rating, name, tags) VALUES (?, ?, ?, ?, ?)";
         int affectedRows = jdbcTemplate.update(
             sql,
             problem.getProblemId(),
             problem.getContestId(),
-            problem.getRating()
+            problem.getRating(),
+            problem.getName(),
+            joinTags(problem)
         );
         return affectedRows > 0;
     }
 
+    /**
+     * 批量写入题目，已存在的题目更新比赛、难度、名称和标签
+     * @param problems 题目列表
+     */
+    public void batchUpsertProblems(List<Problem> problems) {
+        if (problems.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO problem (problem_id, contest_id, rating, name, tags) VALUES (?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE contest_id = VALUES(contest_id), rating = VALUES(rating), "
+                + "name = VALUES(name), tags = VALUES(tags)";
+        List<Object[]> batchArgs = new ArrayList<>(problems.size());
+        for (Problem problem : problems) {
+            batchArgs.add(new Object[] { problem.getProblemId(), problem.getContestId(), problem.getRating(),
+                    problem.getName(), joinTags(problem) });
+        }
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
+    /**
+     * 获取所有题目
+     * @return 题目列表
+     */
+    public List<Problem> enumerateAllProblems() {
+        String sql = "SELECT id, problem_id, contest_id, rating, name, tags FROM problem";
+        return jdbcTemplate.query(sql, new ProblemRowMapper());
+    }
+
+    /**
+     * 根据题目编号查询题目
+     * @param problemId 题目编号（如 "1234A"）
+     * @return 题目，未找到时返回 null
+     */
     public Problem queryProblemById(String problemId) {
-        String sql = "SELECT * FROM problem WHERE problem_id = ?";
-        var queryResults = jdbcTemplate.queryForObject(sql, Problem.class, problemId);
-        return queryResults;
+        try {
+            return jdbcTemplate.queryForObject(QUERY_PROBLEM_BY_ID_SQL, new ProblemRowMapper(), problemId);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
     }
 
     public Integer queryRatingById(String problemId) {
         var problem = queryProblemById(problemId);
         return problem != null ? problem.getRating() : null;
     }
+
+    private static String joinTags(Problem problem) {
+        return problem.getTags() != null ? String.join(",", problem.getTags()) : null;
+    }
 }
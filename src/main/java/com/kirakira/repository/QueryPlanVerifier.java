@@ -0,0 +1,100 @@
+package com.kirakira.repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时用 EXPLAIN 检查热点查询的执行计划
+ * <p>
+ * 任何一条查询出现全表扫描（type 为 ALL）时输出警告，通常说明数据库迁移没有执行完或索引被误删。
+ * 只读取执行计划，不会真正执行查询或删除。
+ */
+@Component
+public class QueryPlanVerifier {
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanVerifier.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    // 查询名称 -> { SQL, 示例参数 }
+    private static final Map<String, Object[]> HOT_QUERIES = new LinkedHashMap<>();
+
+    static {
+        HOT_QUERIES.put("group_user.checkIfCodeforcesIdExists", new Object[] {
+                GroupUserRepository.CHECK_CODEFORCES_ID_EXISTS_SQL, new Object[] { "0", "tourist" } });
+        HOT_QUERIES.put("group_user.checkIfBindingExists", new Object[] {
+                GroupUserRepository.CHECK_BINDING_EXISTS_SQL, new Object[] { "0", "0", "tourist" } });
+        HOT_QUERIES.put("group_user.enumerateGroupsByCodeforcesId", new Object[] {
+                GroupUserRepository.ENUMERATE_GROUPS_BY_CODEFORCES_ID_SQL, new Object[] { "tourist" } });
+        HOT_QUERIES.put("group_user.enumerateCodeforcesIdFromGroup", new Object[] {
+                GroupUserRepository.ENUMERATE_CODEFORCES_ID_FROM_GROUP_SQL, new Object[] { "0" } });
+        HOT_QUERIES.put("group_user.enumerateCodeforcesIdOfSingleUser", new Object[] {
+                GroupUserRepository.ENUMERATE_CODEFORCES_ID_OF_SINGLE_USER_SQL, new Object[] { "0", "0" } });
+        HOT_QUERIES.put("group_user.queryQqIdByCodeforcesId", new Object[] {
+                GroupUserRepository.QUERY_QQ_ID_BY_CODEFORCES_ID_SQL, new Object[] { "tourist" } });
+        HOT_QUERIES.put("group_user.removeGroupUser", new Object[] {
+                GroupUserRepository.REMOVE_GROUP_USER_SQL, new Object[] { "0", "tourist" } });
+        HOT_QUERIES.put("group_user.removeGroupUserBinding", new Object[] {
+                GroupUserRepository.REMOVE_GROUP_USER_BINDING_SQL, new Object[] { "0", "0", "tourist" } });
+        HOT_QUERIES.put("submission.checkIfSubmissionExists", new Object[] {
+                SubmissionRepository.CHECK_SUBMISSION_EXISTS_SQL, new Object[] { "0" } });
+        HOT_QUERIES.put("submission.checkIfUserFinishedProblem", new Object[] {
+                SubmissionRepository.CHECK_USER_FINISHED_PROBLEM_SQL, new Object[] { "1A", "tourist" } });
+        HOT_QUERIES.put("problem.queryProblemById", new Object[] {
+                ProblemRepository.QUERY_PROBLEM_BY_ID_SQL, new Object[] { "1A" } });
+        HOT_QUERIES.put("solve_stats.queryGroupLeaderboard", new Object[] {
+                SolveStatsRepository.QUERY_GROUP_LEADERBOARD_SQL, new Object[] { "week", "2024-01-01", "0", 10 } });
+        HOT_QUERIES.put("solve_stats.forEachGroupStats", new Object[] {
+                SolveStatsRepository.ENUMERATE_BUCKET_WITH_GROUPS_SQL, new Object[] { "week", "2024-01-01" } });
+        HOT_QUERIES.put("notification_outbox.enumerateDue", new Object[] {
+                NotificationOutboxRepository.ENUMERATE_DUE_SQL, new Object[] { 100 } });
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    public QueryPlanVerifier(JdbcTemplate jdbcTemplate,
+                             @Value("${db.explain.check.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        if (!enabled) {
+            return;
+        }
+        int fullScans = 0;
+        int failures = 0;
+        for (Map.Entry<String, Object[]> entry : HOT_QUERIES.entrySet()) {
+            String sql = (String) entry.getValue()[0];
+            Object[] args = (Object[]) entry.getValue()[1];
+            try {
+                List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, args);
+                for (Map<String, Object> row : plan) {
+                    if ("ALL".equalsIgnoreCase(String.valueOf(row.get("type")))) {
+                        fullScans++;
+                        log.warn("Query {} does a full scan on table {} (possible_keys={}): {}",
+                                entry.getKey(), row.get("table"), row.get("possible_keys"), sql);
+                    }
+                }
+            } catch (DataAccessException e) {
+                failures++;
+                log.warn("Failed to explain query {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        if (fullScans > 0) {
+            operationLog.warn("DATABASE - {} hot query plan(s) use a full table scan, check migrations and indexes", fullScans);
+        } else if (failures == 0) {
+            operationLog.info("DATABASE - All {} hot queries use an index", HOT_QUERIES.size());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.kirakira.repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.kirakira.entity.SolveStats;
+import com.kirakira.mapper.SolveStatsRowMapper;
+
+@Repository
+public class SolveStatsRepository {
+    // 以下为热点查询，启动时由 QueryPlanVerifier 检查执行计划
+    // 先按 idx_group_user_group_qq 取出群内用户名，再按主键逐个读取统计行
+    static final String QUERY_GROUP_LEADERBOARD_SQL =
+            "SELECT s.bucket_type, s.bucket_start, s.codeforces_id_lower, s.solve_count, s.rating_sum, s.max_rating "
+            + "FROM group_user g JOIN solve_stats s "
+            + "ON s.bucket_type = ? AND s.bucket_start = ? AND s.codeforces_id_lower = g.codeforces_id_lower "
+            + "WHERE g.group_id = ? "
+            + "ORDER BY s.solve_count DESC, s.rating_sum DESC, s.codeforces_id_lower LIMIT ?";
+
+    // 按主键前缀取出一个时间段的全部统计行，再按 idx_group_user_handle 找到所在的群
+    static final String ENUMERATE_BUCKET_WITH_GROUPS_SQL =
+            "SELECT g.group_id, s.bucket_type, s.bucket_start, s.codeforces_id_lower, s.solve_count, s.rating_sum, s.max_rating "
+            + "FROM solve_stats s JOIN group_user g ON g.codeforces_id_lower = s.codeforces_id_lower "
+            + "WHERE s.bucket_type = ? AND s.bucket_start = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SolveStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 批量累加过题统计，统计行不存在时创建
+     * @param increments 每个用户、每个时间段的增量，最高难度取较大值
+     */
+    public void batchIncrement(List<SolveStats> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO solve_stats (bucket_type, bucket_start, codeforces_id_lower, solve_count, rating_sum, max_rating) "
+                + "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                + "solve_count = solve_count + VALUES(solve_count), "
+                + "rating_sum = rating_sum + VALUES(rating_sum), "
+                + "max_rating = GREATEST(max_rating, VALUES(max_rating))";
+        List<Object[]> batchArgs = new ArrayList<>(increments.size());
+        for (SolveStats increment : increments) {
+            batchArgs.add(new Object[] { increment.getBucketType(), Date.valueOf(increment.getBucketStart()),
+                increment.getCodeforcesId(), increment.getSolveCount(), increment.getRatingSum(), increment.getMaxRating() });
+        }
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
+    /**
+     * 读取划分时间段所用的时区并锁定该行，需要在事务中调用，同一时间只有一个节点能重建统计
+     * @return 时区 ID，没有记录时返回 null
+     */
+    public String lockBucketZone() {
+        List<String> zones = jdbcTemplate.queryForList("SELECT zone_id FROM solve_stats_zone WHERE id = 1 FOR UPDATE", String.class);
+        return zones.isEmpty() ? null : zones.get(0);
+    }
+
+    /**
+     * 记录划分时间段所用的时区
+     * @param zoneId 时区 ID
+     */
+    public void updateBucketZone(String zoneId) {
+        jdbcTemplate.update("INSERT INTO solve_stats_zone (id, zone_id) VALUES (1, ?) ON DUPLICATE KEY UPDATE zone_id = VALUES(zone_id)", zoneId);
+    }
+
+    /**
+     * 删除所有统计行，用于按新的时区重建
+     * @return 删除的行数
+     */
+    public int deleteAll() {
+        return jdbcTemplate.update("DELETE FROM solve_stats");
+    }
+
+    /**
+     * 查询群内用户在一个时间段内的过题排行
+     * @param groupId 群组 ID
+     * @param bucketType 时间段类型
+     * @param bucketStart 时间段第一天
+     * @param limit 最多返回的用户数
+     * @return 按过题数、难度之和从高到低排列的统计，没有过题的用户不在其中
+     */
+    public List<SolveStats> queryGroupLeaderboard(String groupId, String bucketType, LocalDate bucketStart, int limit) {
+        return jdbcTemplate.query(QUERY_GROUP_LEADERBOARD_SQL, new SolveStatsRowMapper(),
+                bucketType, Date.valueOf(bucketStart), groupId, limit);
+    }
+
+    /**
+     * 遍历一个时间段内所有有过题的用户及其所在的群，逐行回调而不一次性加载到内存
+     * @param bucketType 时间段类型
+     * @param bucketStart 时间段第一天
+     * @param consumer 回调参数依次为群组 ID 和该用户的统计，用户在多个群中时每个群回调一次
+     */
+    public void forEachGroupStats(String bucketType, LocalDate bucketStart, BiConsumer<String, SolveStats> consumer) {
+        SolveStatsRowMapper rowMapper = new SolveStatsRowMapper();
+        jdbcTemplate.query(ENUMERATE_BUCKET_WITH_GROUPS_SQL, rs -> {
+            consumer.accept(rs.getString("group_id"), rowMapper.mapRow(rs, 0));
+        }, bucketType, Date.valueOf(bucketStart));
+    }
+}
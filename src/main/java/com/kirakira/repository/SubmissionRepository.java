@@ -1,5 +1,17 @@
 package com.kirakira.repository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -7,6 +19,16 @@ import com.kirakira.entity.Submission;
 
 @Repository
 public class SubmissionRepository {
+    // 以下为热点查询，启动时由 QueryPlanVerifier 检查执行计划
+    static final String CHECK_SUBMISSION_EXISTS_SQL = "SELECT COUNT(*) FROM submission WHERE submission_id = ?";
+    static final String CHECK_USER_FINISHED_PROBLEM_SQL =
+            "SELECT COUNT(*) FROM submission WHERE problem_id = ? AND codeforces_id_lower = ?";
+
+    // 按用户批量查询时每条 SQL 携带的用户数
+    private static final int HANDLES_PER_QUERY = 500;
+    // 批量查询已存在的提交时每条 SQL 携带的 ID 数
+    private static final int IDS_PER_QUERY = 500;
+
     private final JdbcTemplate jdbcTemplate;
 
     public SubmissionRepository(JdbcTemplate jdbcTemplate) {
@@ -19,8 +41,7 @@ public class SubmissionRepository {
      * @return 如果存在返回 true，否则返回 false
      */
     public boolean checkIfSubmissionExists(String submissionId) {
-        String sql = "SELECT COUNT(*) FROM submission WHERE submission_id = ?";
-        Long count = jdbcTemplate.queryForObject(sql, Long.class, submissionId);
+        Long count = jdbcTemplate.queryForObject(CHECK_SUBMISSION_EXISTS_SQL, Long.class, submissionId);
         return count != null && count > 0;
     }
     
@@ -31,11 +52,60 @@ public class SubmissionRepository {
      * @return 如果已完成返回 true，否则返回 false
      */
     public boolean checkIfUserFinishedProblem(String problemId, String codeforcesId) {
-        String sql = "SELECT COUNT(*) FROM submission WHERE problem_id = ? AND codeforces_id = ?";
-        Long count = jdbcTemplate.queryForObject(sql, Long.class, problemId, codeforcesId.toLowerCase());
+        Long count = jdbcTemplate.queryForObject(CHECK_USER_FINISHED_PROBLEM_SQL, Long.class, problemId,
+                codeforcesId.toLowerCase());
         return count != null && count > 0;
     }
 
+    /**
+     * 遍历所有用户已完成的题目，逐行回调而不一次性加载到内存
+     * @param consumer 回调参数依次为 Codeforces ID 和题目 ID
+     */
+    public void forEachFinishedProblem(BiConsumer<String, String> consumer) {
+        // 只读取索引中的列，扫描 idx_submission_handle_problem 而不回表
+        String sql = "SELECT codeforces_id_lower, problem_id FROM submission";
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(rs.getString("codeforces_id_lower"), rs.getString("problem_id"));
+        });
+    }
+
+    /**
+     * 遍历所有有提交时间的过题记录，逐行回调而不一次性加载到内存，用于重建过题统计
+     * @param consumer 回调参数为提交，Codeforces ID 为小写，难度取自 problem 表，未知时为 null
+     */
+    public void forEachSolvedSubmission(Consumer<Submission> consumer) {
+        String sql = "SELECT s.codeforces_id_lower, s.problem_id, s.submission_id, s.submission_time, p.rating "
+                + "FROM submission s LEFT JOIN problem p ON p.problem_id = s.problem_id "
+                + "WHERE s.submission_time IS NOT NULL";
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(Submission.builder()
+                .codeforcesId(rs.getString("codeforces_id_lower"))
+                .problemId(rs.getString("problem_id"))
+                .submissionId(rs.getString("submission_id"))
+                .submissionTime(rs.getObject("submission_time", LocalDateTime.class))
+                .rating(rs.getObject("rating", Integer.class))
+                .build());
+        });
+    }
+
+    /**
+     * 遍历指定用户已完成的题目，每次查询最多携带 {@link #HANDLES_PER_QUERY} 个用户
+     * @param codeforcesIds Codeforces ID 列表（不区分大小写）
+     * @param consumer 回调参数依次为 Codeforces ID（小写）和题目 ID
+     */
+    public void forEachFinishedProblem(List<String> codeforcesIds, BiConsumer<String, String> consumer) {
+        for (int from = 0; from < codeforcesIds.size(); from += HANDLES_PER_QUERY) {
+            List<String> batch = codeforcesIds.subList(from, Math.min(from + HANDLES_PER_QUERY, codeforcesIds.size()));
+            // 按 idx_submission_handle_problem 的前缀查找，不回表
+            String sql = "SELECT codeforces_id_lower, problem_id FROM submission WHERE codeforces_id_lower IN ("
+                    + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")";
+            Object[] args = batch.stream().map(String::toLowerCase).toArray();
+            jdbcTemplate.query(sql, rs -> {
+                consumer.accept(rs.getString("codeforces_id_lower"), rs.getString("problem_id"));
+            }, args);
+        }
+    }
+
     /**
      * 插入新的提交记录
      * @param submission 提交对象
@@ -52,4 +122,69 @@ public class SubmissionRepository {
         );
         return affectedRows > 0;
     }
+
+    /**
+     * 批量插入提交记录，已存在的 submission_id 会被跳过
+     * <p>
+     * 开启 rewriteBatchedStatements 后驱动不返回逐行的影响行数，因此先用锁定读找出已存在的 ID，
+     * 只插入其余的提交。锁定读会锁住这些唯一键（包括尚不存在的），其他事务插入同一提交时要等本事务提交，
+     * 所以必须在事务中调用。除主键重复以外的错误照常抛出。
+     * @param submissions 提交对象列表
+     * @return 实际插入的提交记录（不含重复项）
+     * @throws org.springframework.dao.DataAccessException 当数据库写入失败时
+     */
+    public List<Submission> batchInsertSubmissions(List<Submission> submissions) {
+        if (submissions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> existing = lockExistingSubmissionIds(submissions);
+        List<Submission> toInsert = new ArrayList<>();
+        for (Submission submission : submissions) {
+            // add 同时去掉本批次内重复的提交
+            if (existing.add(submission.getSubmissionId())) {
+                toInsert.add(submission);
+            }
+        }
+        if (toInsert.isEmpty()) {
+            return toInsert;
+        }
+
+        String sql = "INSERT INTO submission (codeforces_id, problem_id, submission_id, submission_time) VALUES (?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE submission_id = submission_id";
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Submission submission = toInsert.get(i);
+                ps.setString(1, submission.getCodeforcesId());
+                ps.setString(2, submission.getProblemId());
+                ps.setString(3, submission.getSubmissionId());
+                ps.setObject(4, submission.getSubmissionTime());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return toInsert.size();
+            }
+        });
+        return toInsert;
+    }
+
+    /**
+     * 以锁定读查询已存在的提交 ID，每次查询最多携带 {@link #IDS_PER_QUERY} 个 ID
+     * @param submissions 提交对象列表
+     * @return 已存在的提交 ID
+     */
+    private Set<String> lockExistingSubmissionIds(List<Submission> submissions) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < submissions.size(); from += IDS_PER_QUERY) {
+            List<Submission> batch = submissions.subList(from, Math.min(from + IDS_PER_QUERY, submissions.size()));
+            String sql = "SELECT submission_id FROM submission WHERE submission_id IN ("
+                    + String.join(", ", Collections.nCopies(batch.size(), "?")) + ") FOR UPDATE";
+            Object[] args = batch.stream().map(Submission::getSubmissionId).toArray();
+            jdbcTemplate.query(sql, rs -> {
+                existing.add(rs.getString("submission_id"));
+            }, args);
+        }
+        return existing;
+    }
 }
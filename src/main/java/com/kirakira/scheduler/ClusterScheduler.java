@@ -0,0 +1,46 @@
+package com.kirakira.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.service.BindingRegistry;
+import com.kirakira.service.ClusterMembership;
+
+@Component
+public class ClusterScheduler {
+    private final ClusterMembership clusterMembership;
+    private final BindingRegistry bindingRegistry;
+    private static final Logger log = LoggerFactory.getLogger(ClusterScheduler.class);
+
+    public ClusterScheduler(ClusterMembership clusterMembership, BindingRegistry bindingRegistry) {
+        this.clusterMembership = clusterMembership;
+        this.bindingRegistry = bindingRegistry;
+        // 新的 leader 开始处理指令前先同步其他节点上的绑定变更；续约本身在 ClusterMembership 的独立线程上执行
+        clusterMembership.addLeaderListener(() -> {
+            try {
+                bindingRegistry.load();
+            } catch (Exception e) {
+                log.error("Error reloading bindings after acquiring the leader lease", e);
+            }
+        });
+    }
+
+    /**
+     * 多实例部署时定期从数据库重新加载绑定关系，获取其他节点上 /bind、/unbind 的结果
+     */
+    @Scheduled(initialDelayString = "${cluster.binding.refresh.interval.ms:60000}",
+               fixedDelayString = "${cluster.binding.refresh.interval.ms:60000}")
+    public void refreshBindings() {
+        if (!clusterMembership.isEnabled()) {
+            return;
+        }
+        try {
+            bindingRegistry.load();
+            clusterMembership.purgeExpiredNodes();
+        } catch (Exception e) {
+            log.error("Error during binding refresh", e);
+        }
+    }
+}
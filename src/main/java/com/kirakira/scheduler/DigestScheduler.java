@@ -0,0 +1,50 @@
+package com.kirakira.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.service.ClusterMembership;
+import com.kirakira.service.GroupDigest;
+import com.kirakira.service.SolveStatistics;
+
+@Component
+public class DigestScheduler {
+    private final GroupDigest groupDigest;
+    private final ClusterMembership clusterMembership;
+    private static final Logger log = LoggerFactory.getLogger(DigestScheduler.class);
+
+    public DigestScheduler(GroupDigest groupDigest, ClusterMembership clusterMembership) {
+        this.groupDigest = groupDigest;
+        this.clusterMembership = clusterMembership;
+    }
+
+    /**
+     * 按 digest.daily.cron 向各群组发送今日的过题汇总，cron 为 "-" 时不发送
+     */
+    @Scheduled(cron = "${digest.daily.cron:0 0 22 * * *}", zone = "${rank.time.zone:Asia/Shanghai}")
+    public void postDailyDigest() {
+        post(SolveStatistics.Period.DAY);
+    }
+
+    /**
+     * 按 digest.weekly.cron 向各群组发送本周的过题汇总，cron 为 "-" 时不发送
+     */
+    @Scheduled(cron = "${digest.weekly.cron:0 30 22 * * SUN}", zone = "${rank.time.zone:Asia/Shanghai}")
+    public void postWeeklyDigest() {
+        post(SolveStatistics.Period.WEEK);
+    }
+
+    private void post(SolveStatistics.Period period) {
+        // 多实例部署时只由 leader 发送
+        if (!clusterMembership.isLeader()) {
+            return;
+        }
+        try {
+            groupDigest.post(period);
+        } catch (Exception e) {
+            log.error("Error during scheduled {} digest", period.getBucketType(), e);
+        }
+    }
+}
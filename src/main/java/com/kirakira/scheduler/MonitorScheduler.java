@@ -1,27 +1,63 @@
 package com.kirakira.scheduler;
 
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import com.kirakira.service.MonitorService;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 @Component
 public class MonitorScheduler {
     private final MonitorService monitorService;
+    private final MeterRegistry meterRegistry;
+    private final long intervalMs;
+    private final Counter overruns;
     private static final Logger log = LoggerFactory.getLogger(MonitorScheduler.class);
 
-    public MonitorScheduler(MonitorService monitorService) {
+    public MonitorScheduler(MonitorService monitorService,
+                            MeterRegistry meterRegistry,
+                            @Value("${scheduler.monitor.interval.ms:30000}") long intervalMs) {
         this.monitorService = monitorService;
+        this.meterRegistry = meterRegistry;
+        this.intervalMs = intervalMs;
+        this.overruns = Counter.builder("monitor.cycle.overruns")
+            .description("耗时超过调度间隔的监控周期数")
+            .register(meterRegistry);
     }
 
-    @Scheduled(fixedRateString = "${scheduler.monitor.interval.ms:300000}")
+    /**
+     * 定期检查到期的用户，各用户的实际轮询频率由 {@link com.kirakira.service.AdaptivePollSchedule} 决定
+     */
+    @Scheduled(fixedDelayString = "${scheduler.monitor.interval.ms:30000}")
     public void monitorSubmissions() {
+        long startTime = System.nanoTime();
+        String outcome = "success";
         try {
             monitorService.checkRecentSubmissionsAndNotify();
         } catch (Exception e) {
+            outcome = "error";
             log.error("Error during scheduled submission monitoring", e);
+        } finally {
+            long elapsedNanos = System.nanoTime() - startTime;
+            Timer.builder("monitor.cycle.duration")
+                .description("单个监控周期（拉取阶段）的耗时")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if (TimeUnit.NANOSECONDS.toMillis(elapsedNanos) > intervalMs) {
+                overruns.increment();
+                log.warn("Monitor cycle took {} ms, longer than the {} ms interval",
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), intervalMs);
+            }
         }
     }
 }
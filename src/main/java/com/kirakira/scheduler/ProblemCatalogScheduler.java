@@ -0,0 +1,31 @@
+package com.kirakira.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.service.ProblemCatalog;
+
+@Component
+public class ProblemCatalogScheduler {
+    private final ProblemCatalog problemCatalog;
+    private static final Logger log = LoggerFactory.getLogger(ProblemCatalogScheduler.class);
+
+    public ProblemCatalogScheduler(ProblemCatalog problemCatalog) {
+        this.problemCatalog = problemCatalog;
+    }
+
+    /**
+     * 定期从 Codeforces 题库刷新题目难度和标签
+     */
+    @Scheduled(initialDelayString = "${problem.catalog.refresh.initial.delay.ms:60000}",
+               fixedDelayString = "${problem.catalog.refresh.interval.ms:21600000}")
+    public void refreshProblemCatalog() {
+        try {
+            problemCatalog.refresh();
+        } catch (Exception e) {
+            log.error("Error during scheduled problem catalog refresh", e);
+        }
+    }
+}
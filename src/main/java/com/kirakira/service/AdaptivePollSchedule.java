@@ -0,0 +1,122 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按用户活跃度自适应调整轮询间隔的调度队列
+ * <p>
+ * 每个 Codeforces ID 有自己的下次轮询时间，保存在按时间排序的优先队列中。
+ * 轮询发现新提交后间隔重置为最短间隔；没有新提交时间隔翻倍，直到最长间隔。
+ * 这样 API 请求集中在近期活跃的用户上，长期不活跃的用户只偶尔检查一次。
+ */
+@Component
+public class AdaptivePollSchedule {
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingLong((Entry e) -> e.nextPollAt));
+
+    public AdaptivePollSchedule(@Value("${monitor.poll.interval.min.ms:120000}") long minIntervalMs,
+                                @Value("${monitor.poll.interval.max.ms:21600000}") long maxIntervalMs) {
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = Math.max(minIntervalMs, maxIntervalMs);
+    }
+
+    /**
+     * 同步需要监控的用户，并取出已到期的用户
+     * <p>
+     * 新增的用户立即到期；已不再监控的用户被移除。取出的用户在调用 {@link #reschedule} 之前不会再次到期。
+     * @param trackedHandles 当前需要监控的全部 Codeforces ID
+     * @param now 当前时间（毫秒）
+     * @param limit 最多取出的用户数
+     * @return 到期的 Codeforces ID，最早到期的在前
+     */
+    public synchronized List<String> takeDue(Collection<String> trackedHandles, long now, int limit) {
+        Set<String> tracked = new HashSet<>(trackedHandles);
+        entries.values().removeIf(entry -> {
+            if (!tracked.contains(entry.handle)) {
+                queue.remove(entry);
+                return true;
+            }
+            return false;
+        });
+        for (String handle : tracked) {
+            if (!entries.containsKey(handle)) {
+                Entry entry = new Entry(handle, now, minIntervalMs);
+                entries.put(handle, entry);
+                queue.add(entry);
+            }
+        }
+
+        List<String> due = new ArrayList<>();
+        while (due.size() < limit && !queue.isEmpty() && queue.peek().nextPollAt <= now) {
+            due.add(queue.poll().handle);
+        }
+        return due;
+    }
+
+    /**
+     * 轮询完成后重新安排用户的下次轮询时间
+     * @param handle Codeforces ID
+     * @param active 本次轮询是否发现了新提交
+     * @param now 当前时间（毫秒）
+     */
+    public synchronized void reschedule(String handle, boolean active, long now) {
+        Entry entry = entries.get(handle);
+        if (entry == null) {
+            // 轮询期间已被移除
+            return;
+        }
+        queue.remove(entry);
+        entry.intervalMs = active ? minIntervalMs : Math.min(entry.intervalMs * 2, maxIntervalMs);
+        entry.nextPollAt = now + entry.intervalMs;
+        queue.add(entry);
+    }
+
+    /**
+     * 轮询失败后按当前间隔重试，不改变退避状态
+     * @param handle Codeforces ID
+     * @param now 当前时间（毫秒）
+     */
+    public synchronized void retryLater(String handle, long now) {
+        Entry entry = entries.get(handle);
+        if (entry == null) {
+            return;
+        }
+        queue.remove(entry);
+        entry.nextPollAt = now + entry.intervalMs;
+        queue.add(entry);
+    }
+
+    /**
+     * 获取当前调度中的用户数
+     * @return 用户数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final String handle;
+        private long nextPollAt;
+        private long intervalMs;
+
+        Entry(String handle, long nextPollAt, long intervalMs) {
+            this.handle = handle;
+            this.nextPollAt = nextPollAt;
+            this.intervalMs = intervalMs;
+        }
+    }
+}
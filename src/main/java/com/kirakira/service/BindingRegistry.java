@@ -0,0 +1,326 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kirakira.entity.GroupUser;
+import com.kirakira.repository.GroupUserRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 群组与 Codeforces 账号绑定关系的内存注册表
+ * <p>
+ * 启动时从 group_user 表加载一次，之后所有写操作先写数据库再同步更新内存，
+ * 所有读操作（监控循环、/list、/listall、/bind 检查）都只访问内存。
+ * 内存中的 Codeforces ID 一律以小写作为键，与数据库中 codeforces_id_lower 的匹配方式一致；
+ * 同时保留绑定时的原大小写，供 /list、/listall 显示。
+ * <p>
+ * 写操作之间由 writeMutex 串行化，数据库写入在读写锁之外完成，只有更新内存时才持有写锁，
+ * 读操作不会等待数据库。
+ */
+@Component
+public class BindingRegistry {
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    private final GroupUserRepository groupUserRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 串行化写操作（包括重新加载），保证内存的更新顺序与数据库写入顺序一致
+    private final Object writeMutex = new Object();
+
+    // Codeforces ID（小写）-> 群组 ID 集合
+    private final Map<String, Set<String>> groupsByHandle = new HashMap<>();
+    // 群组 ID -> (QQ 号 -> (Codeforces ID（小写）-> 绑定时的原大小写))
+    private final Map<String, Map<String, Map<String, String>>> handlesByGroup = new LinkedHashMap<>();
+
+    public BindingRegistry(GroupUserRepository groupUserRepository, TransactionTemplate transactionTemplate) {
+        this.groupUserRepository = groupUserRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<GroupUser> groupUsers;
+        synchronized (writeMutex) {
+            groupUsers = groupUserRepository.enumerateAllGroupUsers();
+            lock.writeLock().lock();
+            try {
+                groupsByHandle.clear();
+                handlesByGroup.clear();
+                for (GroupUser groupUser : groupUsers) {
+                    put(groupUser.getGroupId(), groupUser.getUserQqId(), groupUser.getCodeforcesId());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        operationLog.info("REGISTRY - Loaded {} binding(s), {} handle(s) in {} group(s)",
+                groupUsers.size(), groupsByHandle.size(), handlesByGroup.size());
+    }
+
+    /**
+     * 检查 Codeforces ID 是否已在指定群组中绑定
+     * @param groupId 目标群组 ID
+     * @param codeforcesId Codeforces ID
+     * @return 如果已绑定返回 true，否则返回 false
+     */
+    public boolean checkIfCodeforcesIdExists(String groupId, String codeforcesId) {
+        lock.readLock().lock();
+        try {
+            Set<String> groups = groupsByHandle.get(normalize(codeforcesId));
+            return groups != null && groups.contains(groupId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 检查 Codeforces ID 是否已绑定到该 QQ 号
+     * @param groupId 群号
+     * @param qqId QQ 号
+     * @param codeforcesId Codeforces ID
+     * @return 如果存在绑定，则返回 true，否则返回 false
+     */
+    public boolean checkIfBindingExists(String groupId, String qqId, String codeforcesId) {
+        lock.readLock().lock();
+        try {
+            Map<String, Map<String, String>> users = handlesByGroup.get(groupId);
+            Map<String, String> handles = users != null ? users.get(qqId) : null;
+            return handles != null && handles.containsKey(normalize(codeforcesId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取所有不重复的 Codeforces ID
+     * @return Codeforces ID 列表（小写）
+     */
+    public List<String> enumerateAllCodeforcesId() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(groupsByHandle.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 根据 Codeforces ID 获取关联的所有群组
+     * @param codeforcesId Codeforces ID（不区分大小写）
+     * @return 群组 ID 列表
+     */
+    public List<String> enumerateGroupsByCodeforcesId(String codeforcesId) {
+        lock.readLock().lock();
+        try {
+            Set<String> groups = groupsByHandle.get(normalize(codeforcesId));
+            return groups != null ? new ArrayList<>(groups) : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取指定群组中的所有 Codeforces 用户 ID
+     * @param groupId 目标群组 ID
+     * @return QQ 号 -> Codeforces ID 列表（绑定时的原大小写，可能为空）
+     */
+    public Map<String, List<String>> enumerateCodeforcesIdFromGroup(String groupId) {
+        lock.readLock().lock();
+        try {
+            Map<String, List<String>> userCodeforcesMap = new LinkedHashMap<>();
+            Map<String, Map<String, String>> users = handlesByGroup.get(groupId);
+            if (users != null) {
+                users.forEach((qqId, handles) -> userCodeforcesMap.put(qqId, new ArrayList<>(handles.values())));
+            }
+            return userCodeforcesMap;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取指定用户在指定群组中绑定的所有 Codeforces ID
+     * @param groupId 群组 ID
+     * @param qqId QQ 号
+     * @return Codeforces ID 列表（绑定时的原大小写）
+     */
+    public List<String> enumerateCodeforcesIdOfSingleUser(String groupId, String qqId) {
+        lock.readLock().lock();
+        try {
+            Map<String, Map<String, String>> users = handlesByGroup.get(groupId);
+            Map<String, String> handles = users != null ? users.get(qqId) : null;
+            return handles != null ? new ArrayList<>(handles.values()) : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取所有群组 ID 列表
+     * @return 群组 ID 列表
+     */
+    public List<String> enumerateGroupList() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(handlesByGroup.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 添加群组用户，写入数据库成功后更新内存
+     * @param groupUser 用户对象
+     * @return 插入是否成功
+     */
+    public boolean addGroupUser(GroupUser groupUser) {
+        synchronized (writeMutex) {
+            boolean success = groupUserRepository.addGroupUser(groupUser);
+            if (success) {
+                lock.writeLock().lock();
+                try {
+                    put(groupUser.getGroupId(), groupUser.getUserQqId(), groupUser.getCodeforcesId());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            return success;
+        }
+    }
+
+    /**
+     * 在一个事务中批量添加群组用户，写入数据库成功后更新内存
+     * @param groupUsers 用户对象列表
+     * @throws org.springframework.dao.DataAccessException 当数据库写入失败时，整个事务回滚
+     */
+    public void addGroupUsers(List<GroupUser> groupUsers) {
+        if (groupUsers.isEmpty()) {
+            return;
+        }
+        synchronized (writeMutex) {
+            transactionTemplate.executeWithoutResult(status -> groupUserRepository.batchAddGroupUsers(groupUsers));
+            lock.writeLock().lock();
+            try {
+                for (GroupUser groupUser : groupUsers) {
+                    put(groupUser.getGroupId(), groupUser.getUserQqId(), groupUser.getCodeforcesId());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 删除指定群组中的 Codeforces 绑定（不论绑定到哪个 QQ 号）
+     * @param groupId 群号
+     * @param codeforcesId Codeforces ID
+     * @return 如果删除成功，返回 true；否则返回 false
+     */
+    public boolean removeGroupUser(String groupId, String codeforcesId) {
+        synchronized (writeMutex) {
+            boolean success = groupUserRepository.removeGroupUser(groupId, codeforcesId);
+            if (success) {
+                lock.writeLock().lock();
+                try {
+                    Map<String, Map<String, String>> users = handlesByGroup.get(groupId);
+                    if (users != null) {
+                        for (String qqId : new ArrayList<>(users.keySet())) {
+                            remove(groupId, qqId, codeforcesId);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            return success;
+        }
+    }
+
+    /**
+     * 删除指定用户的 Codeforces 绑定
+     * @param groupId 群号
+     * @param qqId QQ 号
+     * @param codeforcesId Codeforces ID
+     * @return 如果删除成功，返回 true；否则返回 false
+     */
+    public boolean removeGroupUserBinding(String groupId, String qqId, String codeforcesId) {
+        synchronized (writeMutex) {
+            boolean success = groupUserRepository.removeGroupUserBinding(groupId, qqId, codeforcesId);
+            if (success) {
+                lock.writeLock().lock();
+                try {
+                    remove(groupId, qqId, codeforcesId);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            return success;
+        }
+    }
+
+    private void put(String groupId, String qqId, String codeforcesId) {
+        if (groupId == null || qqId == null || codeforcesId == null) {
+            return;
+        }
+        String handle = normalize(codeforcesId);
+        groupsByHandle.computeIfAbsent(handle, k -> new LinkedHashSet<>()).add(groupId);
+        handlesByGroup.computeIfAbsent(groupId, k -> new LinkedHashMap<>())
+                .computeIfAbsent(qqId, k -> new LinkedHashMap<>())
+                .putIfAbsent(handle, codeforcesId);
+    }
+
+    private void remove(String groupId, String qqId, String codeforcesId) {
+        String handle = normalize(codeforcesId);
+        Map<String, Map<String, String>> users = handlesByGroup.get(groupId);
+        if (users != null) {
+            Map<String, String> handles = users.get(qqId);
+            if (handles != null) {
+                handles.remove(handle);
+                if (handles.isEmpty()) {
+                    users.remove(qqId);
+                }
+            }
+            if (users.isEmpty()) {
+                handlesByGroup.remove(groupId);
+            }
+        }
+
+        // 该账号在本群已没有任何绑定时，才从反向索引中移除群组
+        boolean stillBound = false;
+        if (users != null) {
+            for (Map<String, String> handles : users.values()) {
+                if (handles.containsKey(handle)) {
+                    stillBound = true;
+                    break;
+                }
+            }
+        }
+        if (!stillBound) {
+            Set<String> groups = groupsByHandle.get(handle);
+            if (groups != null) {
+                groups.remove(groupId);
+                if (groups.isEmpty()) {
+                    groupsByHandle.remove(handle);
+                }
+            }
+        }
+    }
+
+    private static String normalize(String codeforcesId) {
+        return codeforcesId == null ? null : codeforcesId.toLowerCase();
+    }
+}
@@ -1,40 +1,57 @@
 package com.kirakira.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
 
-import com.kirakira.client.CodeforcesClient;
 import com.kirakira.entity.GroupUser;
+import com.kirakira.entity.SolveStats;
 import com.kirakira.entity.exception.CodeforcesApiException;
-import com.kirakira.entity.exception.UserNotFoundException;
-import com.kirakira.repository.GroupUserRepository;
 
 @Component
 public class BotService {
 
     private static final Logger log = LoggerFactory.getLogger(BotService.class);
     private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+    // Codeforces 用户名只能包含拉丁字母、数字、下划线和短横线
+    private static final String HANDLE_REGEX = "^[a-zA-Z0-9_-]+$";
 
-    private final GroupUserRepository groupUserRepository;
-    private final CodeforcesClient codeforcesClient;
+    private final BindingRegistry bindingRegistry;
+    private final HandleValidator handleValidator;
+    private final SolveStatistics solveStatistics;
+    private final int rankTopSize;
 
     @Autowired
-    public BotService(GroupUserRepository groupUserRepository, CodeforcesClient codeforcesClient) {
-        this.groupUserRepository = groupUserRepository;
-        this.codeforcesClient = codeforcesClient;
+    public BotService(BindingRegistry bindingRegistry,
+                      HandleValidator handleValidator,
+                      SolveStatistics solveStatistics,
+                      @Value("${rank.top.size:10}") int rankTopSize) {
+        this.bindingRegistry = bindingRegistry;
+        this.handleValidator = handleValidator;
+        this.solveStatistics = solveStatistics;
+        this.rankTopSize = rankTopSize;
     }
 
     public String getHelp() {
         StringBuilder sb = new StringBuilder();
         sb.append("/bind cf [codeforces_id]: 绑定CF账号\n");
+        sb.append("/bind cf [id1] [id2] ...: 一次绑定多个CF账号\n");
+        sb.append("/bind cf @成员 [id1] ... @成员 [id2] ...: 为群成员绑定CF账号（管理员）\n");
         sb.append("/unbind cf [codeforces_id]: 解绑CF账号\n");
         sb.append("/list cf: 列出自己绑定的CF账号\n");
         sb.append("/listall cf: 列出所有人绑定的CF账号\n");
+        sb.append("/rank [day|week|month]: 查看群内今日/本周/本月的过题排行，默认为本周\n");
         return sb.toString();
     }
 
@@ -42,22 +59,19 @@ public class BotService {
         operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - START", groupId, qqId, codeforcesId);
         
         // 1. 检查 Codeforces ID 是否已存在
-        if (groupUserRepository.checkIfCodeforcesIdExists(groupId, codeforcesId)) {
+        if (bindingRegistry.checkIfCodeforcesIdExists(groupId, codeforcesId)) {
             operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - FAILED: Already bound", groupId, qqId, codeforcesId);
             return "Codeforces ID 已被绑定";
         }
-        if (codeforcesId == null || !codeforcesId.matches("^[a-zA-Z0-9_-]+$")) {
+        if (codeforcesId == null || !codeforcesId.matches(HANDLE_REGEX)) {
             operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - FAILED: Invalid handle format", groupId, qqId, codeforcesId);
             return "账号绑定失败：handle should contain only Latin letters, digits, underscore or dash characters";
         }
 
         // check if user exists
+        String canonicalId;
         try {
-            // Call API to verify user exists (result intentionally discarded)
-            codeforcesClient.getRecentSubmissions(codeforcesId);
-        } catch (UserNotFoundException e) {
-            operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - FAILED: User not found", groupId, qqId, codeforcesId);
-            return "账号绑定失败：用户不存在";
+            canonicalId = handleValidator.validate(codeforcesId);
         } catch (CodeforcesApiException e) {
             operationLog.error("BIND - Group: {}, QQ: {}, CF: {} - FAILED: API error - {}", groupId, qqId, codeforcesId, e.getMessage());
             return "账号绑定失败：" + (e.getMessage() != null ? e.getMessage() : "API 请求失败");
@@ -65,27 +79,124 @@ public class BotService {
             operationLog.error("BIND - Group: {}, QQ: {}, CF: {} - FAILED: Unknown error - {}", groupId, qqId, codeforcesId, e.getLocalizedMessage());
             return "账号绑定失败：" + (e.getLocalizedMessage() != null ? e.getLocalizedMessage() : "未知错误");
         }
+        if (canonicalId == null) {
+            operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - FAILED: User not found", groupId, qqId, codeforcesId);
+            return "账号绑定失败：用户不存在";
+        }
+        // 改过名的用户按新用户名判断是否已绑定
+        if (bindingRegistry.checkIfCodeforcesIdExists(groupId, canonicalId)) {
+            operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - FAILED: Already bound as {}", groupId, qqId, codeforcesId, canonicalId);
+            return "Codeforces ID 已被绑定";
+        }
 
         // 2. 创建用户对象
         GroupUser user = new GroupUser();
         user.setGroupId(groupId);
         user.setUserQqId(qqId);
-        user.setCodeforcesId(codeforcesId);
+        user.setCodeforcesId(canonicalId);
 
-        // 3. 写入数据库
-        boolean success = groupUserRepository.addGroupUser(user);
+        // 3. 写入数据库；并发绑定同一账号时检查会同时通过，由唯一键拦下后来的一个
+        boolean success;
+        try {
+            success = bindingRegistry.addGroupUser(user);
+        } catch (DuplicateKeyException e) {
+            operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - FAILED: Already bound as {}", groupId, qqId, codeforcesId, canonicalId);
+            return "Codeforces ID 已被绑定";
+        } catch (DataAccessException e) {
+            log.error("Failed to bind {} in group {}", canonicalId, groupId, e);
+            operationLog.error("BIND - Group: {}, QQ: {}, CF: {} - FAILED: Database error", groupId, qqId, codeforcesId);
+            return "账号绑定失败";
+        }
         if (success) {
-            operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - SUCCESS", groupId, qqId, codeforcesId);
+            operationLog.info("BIND - Group: {}, QQ: {}, CF: {} - SUCCESS", groupId, qqId, canonicalId);
         } else {
             operationLog.error("BIND - Group: {}, QQ: {}, CF: {} - FAILED: Database error", groupId, qqId, codeforcesId);
         }
-        return success ? "账号绑定成功" : "账号绑定失败";
+        return success ? "账号绑定成功：" + canonicalId : "账号绑定失败";
+    }
+
+    /**
+     * 批量绑定 Codeforces 账号：所有账号合并为尽量少的 user.info 请求校验（有不存在的账号时需要重试），并在一个事务中写入
+     * @param groupId 群号
+     * @param bindings QQ 号 -> 要绑定的 Codeforces ID 列表
+     * @return 每个账号的绑定结果汇总
+     */
+    public String linkAccounts(String groupId, Map<String, List<String>> bindings) {
+        operationLog.info("BIND - Group: {}, Bulk: {} - START", groupId, bindings);
+
+        // 账号 -> 结果，按指令中的顺序输出
+        Map<String, String> results = new LinkedHashMap<>();
+        // 通过本地检查、等待校验的账号 -> QQ 号
+        Map<String, String> candidates = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (Map.Entry<String, List<String>> entry : bindings.entrySet()) {
+            String qqId = entry.getKey();
+            for (String codeforcesId : entry.getValue()) {
+                if (!seen.add(codeforcesId.toLowerCase())) {
+                    continue;
+                }
+                if (!codeforcesId.matches(HANDLE_REGEX)) {
+                    results.put(codeforcesId, "失败：格式错误");
+                } else if (bindingRegistry.checkIfCodeforcesIdExists(groupId, codeforcesId)) {
+                    results.put(codeforcesId, "失败：已被绑定");
+                } else {
+                    results.put(codeforcesId, null);
+                    candidates.put(codeforcesId, qqId);
+                }
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            try {
+                HandleValidator.Result validation = handleValidator.validate(candidates.keySet());
+                List<GroupUser> users = new ArrayList<>();
+                for (String codeforcesId : validation.getMissing()) {
+                    results.put(codeforcesId, "失败：用户不存在");
+                }
+                // 按规范用户名（小写）判断是否已绑定或重复：改过名的用户可能以旧用户名输入
+                Map<String, String> accepted = new LinkedHashMap<>();
+                Set<String> canonicalSeen = new HashSet<>();
+                validation.getCanonical().forEach((codeforcesId, canonicalId) -> {
+                    if (!canonicalSeen.add(canonicalId.toLowerCase())) {
+                        results.put(codeforcesId, "失败：与 " + canonicalId + " 重复");
+                    } else if (bindingRegistry.checkIfCodeforcesIdExists(groupId, canonicalId)) {
+                        results.put(codeforcesId, "失败：已被绑定");
+                    } else {
+                        accepted.put(codeforcesId, canonicalId);
+                        GroupUser user = new GroupUser();
+                        user.setGroupId(groupId);
+                        user.setUserQqId(candidates.get(codeforcesId));
+                        user.setCodeforcesId(canonicalId);
+                        users.add(user);
+                    }
+                });
+
+                bindingRegistry.addGroupUsers(users);
+                accepted.forEach((codeforcesId, canonicalId) ->
+                        results.put(codeforcesId, "成功：" + canonicalId + " (QQ: " + candidates.get(codeforcesId) + ")"));
+            } catch (CodeforcesApiException e) {
+                operationLog.error("BIND - Group: {}, Bulk - FAILED: API error - {}", groupId, e.getMessage());
+                String reason = "失败：" + (e.getMessage() != null ? e.getMessage() : "API 请求失败");
+                candidates.keySet().forEach(codeforcesId -> results.put(codeforcesId, reason));
+            } catch (DataAccessException e) {
+                log.error("Failed to bind {} account(s) in group {}", candidates.size(), groupId, e);
+                results.replaceAll((codeforcesId, result) -> result != null ? result : "失败：数据库错误");
+            }
+        }
+
+        long successCount = results.values().stream().filter(result -> result.startsWith("成功")).count();
+        StringBuilder sb = new StringBuilder();
+        sb.append("批量绑定完成：成功 ").append(successCount).append(" 个，失败 ").append(results.size() - successCount).append(" 个\n");
+        results.forEach((codeforcesId, result) -> sb.append(codeforcesId).append(" -> ").append(result).append("\n"));
+
+        operationLog.info("BIND - Group: {}, Bulk - DONE: {} succeeded, {} failed", groupId, successCount, results.size() - successCount);
+        return sb.toString().trim();
     }
 
     public String queryAllUserList(String groupId) {
         operationLog.info("LISTALL - Group: {}, Requesting user list", groupId);
         
-        Map<String, List<String>> userList = groupUserRepository.enumerateCodeforcesIdFromGroup(groupId);
+        Map<String, List<String>> userList = bindingRegistry.enumerateCodeforcesIdFromGroup(groupId);
 
         if (userList.isEmpty()) {
             operationLog.info("LISTALL - Group: {}, Result: No bindings found", groupId);
@@ -108,7 +219,7 @@ public class BotService {
     public String querySingleUserList(String groupId, String qqId) {
         operationLog.info("LIST - Group: {}, QQ: {}, Requesting bindings", groupId, qqId);
         
-        List<String> codeforcesIds = groupUserRepository.enumerateCodeforcesIdOfSingleUser(groupId, qqId);
+        List<String> codeforcesIds = bindingRegistry.enumerateCodeforcesIdOfSingleUser(groupId, qqId);
 
         if (codeforcesIds.isEmpty()) {
             operationLog.info("LIST - Group: {}, QQ: {}, Result: No bindings", groupId, qqId);
@@ -123,6 +234,43 @@ public class BotService {
         return sb.toString();
     }
 
+    /**
+     * 查询群内的过题排行
+     * @param groupId 群号
+     * @param period 时间段
+     * @return 排行榜
+     */
+    public String queryLeaderboard(String groupId, SolveStatistics.Period period) {
+        operationLog.info("RANK - Group: {}, Period: {}, Requesting leaderboard", groupId, period.getBucketType());
+
+        List<SolveStats> leaderboard;
+        try {
+            leaderboard = solveStatistics.queryLeaderboard(groupId, period, rankTopSize);
+        } catch (DataAccessException e) {
+            log.error("Failed to query leaderboard of group {}", groupId, e);
+            return "查询排行榜失败，请稍后再试。";
+        }
+
+        if (leaderboard.isEmpty()) {
+            operationLog.info("RANK - Group: {}, Period: {}, Result: No solves", groupId, period.getBucketType());
+            return "群内" + period.getDisplayName() + "还没有人过题。";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("群内").append(period.getDisplayName()).append("过题排行：\n");
+        int rank = 1;
+        for (SolveStats stats : leaderboard) {
+            sb.append(rank++).append(". ").append(stats.getCodeforcesId())
+                .append(" 过题 ").append(stats.getSolveCount())
+                .append("，难度总和 ").append(stats.getRatingSum())
+                .append("，最高 ").append(stats.getMaxRating() > 0 ? Integer.toString(stats.getMaxRating()) : "未知")
+                .append("\n");
+        }
+
+        operationLog.info("RANK - Group: {}, Period: {}, Result: {} user(s)", groupId, period.getBucketType(), leaderboard.size());
+        return sb.toString();
+    }
+
     /**
      * 解绑 Codeforces 账号
      * @param groupId 群号
@@ -134,13 +282,13 @@ public class BotService {
         operationLog.info("UNBIND - Group: {}, QQ: {}, CF: {} - START", groupId, qqId, codeforcesId);
         
         // 1. 检查是否存在该绑定
-        if (!groupUserRepository.checkIfBindingExists(groupId, qqId, codeforcesId)) {
+        if (!bindingRegistry.checkIfBindingExists(groupId, qqId, codeforcesId)) {
             operationLog.info("UNBIND - Group: {}, QQ: {}, CF: {} - FAILED: Binding does not exist", groupId, qqId, codeforcesId);
             return "该 Codeforces ID 未绑定到此 QQ 号";
         }
 
         // 2. 执行删除操作，只删除该用户的绑定
-        boolean success = groupUserRepository.removeGroupUserBinding(groupId, qqId, codeforcesId);
+        boolean success = bindingRegistry.removeGroupUserBinding(groupId, qqId, codeforcesId);
         if (success) {
             operationLog.info("UNBIND - Group: {}, QQ: {}, CF: {} - SUCCESS", groupId, qqId, codeforcesId);
         } else {
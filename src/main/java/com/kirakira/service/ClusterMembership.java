@@ -0,0 +1,246 @@
+package com.kirakira.service;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.repository.ClusterLeaseRepository;
+import com.kirakira.util.ConsistentHashRing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 多实例部署时的节点成员和用户分片
+ * <p>
+ * 各节点定期在共享数据库的 cluster_node 表中续约，租约未过期的节点构成一致性哈希环，
+ * 每个节点只轮询环上归属自己的 Codeforces ID，API 请求量按节点数分摊到各自的出口 IP 上。
+ * 节点加入或租约过期后，其余节点在下次续约时重建哈希环，只有约 1/N 的用户改变归属。
+ * <p>
+ * 群指令和汇总只需要处理一次，由持有 leader 租约的节点负责。
+ * 节点连续一个租约周期未能续约时视为已失去租约，不再轮询任何用户，也不再处理指令，避免与接管的节点重复。
+ * 未启用时（cluster.enabled=false）本节点负责全部用户，并总是视为 leader。
+ * <p>
+ * 续约在独立的线程上按 cluster.heartbeat.interval.ms 执行，不与 @Scheduled 任务共用调度线程，
+ * 否则一次耗时超过租约有效期的监控循环就会让租约过期。续约间隔不得超过租约有效期的 1/3，启动时检查。
+ */
+@Component
+public class ClusterMembership implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+    static final String LEADER_LEASE = "leader";
+
+    private final ClusterLeaseRepository clusterLeaseRepository;
+    private final boolean enabled;
+    private final String nodeId;
+    private final String host;
+    private final long leaseTtlMs;
+    private final long heartbeatIntervalMs;
+    private final int virtualNodes;
+    private final List<Runnable> leaderListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService heartbeatExecutor;
+
+    private volatile List<String> liveNodes = new ArrayList<>();
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(new ArrayList<>(), 0);
+    private volatile boolean leader;
+    // 本地估计的租约到期时间（System.nanoTime），以发出续约请求的时间计算，不晚于数据库中的到期时间
+    private volatile long leaseValidUntilNanos = System.nanoTime();
+
+    public ClusterMembership(ClusterLeaseRepository clusterLeaseRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${cluster.enabled:false}") boolean enabled,
+                             @Value("${cluster.node.id:}") String nodeId,
+                             @Value("${cluster.lease.ttl.ms:30000}") long leaseTtlMs,
+                             @Value("${cluster.heartbeat.interval.ms:10000}") long heartbeatIntervalMs,
+                             @Value("${cluster.virtual.nodes:128}") int virtualNodes) {
+        if (enabled && (heartbeatIntervalMs <= 0 || heartbeatIntervalMs * 3 > leaseTtlMs)) {
+            throw new IllegalStateException("cluster.heartbeat.interval.ms (" + heartbeatIntervalMs
+                + ") must be positive and at most a third of cluster.lease.ttl.ms (" + leaseTtlMs + ")");
+        }
+        this.clusterLeaseRepository = clusterLeaseRepository;
+        this.enabled = enabled;
+        this.host = localHostName();
+        this.nodeId = nodeId == null || nodeId.isEmpty() ? host + "-" + ManagementFactory.getRuntimeMXBean().getPid() : nodeId;
+        this.leaseTtlMs = leaseTtlMs;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.virtualNodes = Math.max(1, virtualNodes);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cluster-heartbeat-");
+        threadFactory.setDaemon(true);
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        Gauge.builder("cluster.nodes.live", this, membership -> membership.liveNodes.size())
+            .description("存活的节点数")
+            .register(meterRegistry);
+        Gauge.builder("cluster.leader", this, membership -> membership.isLeader() ? 1 : 0)
+            .description("本节点是否持有 leader 租约")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void join() {
+        if (!enabled) {
+            return;
+        }
+        heartbeat();
+        heartbeatExecutor.scheduleWithFixedDelay(() -> {
+            // 任务抛出异常后不会再被调度，这里兜住所有异常
+            try {
+                heartbeat();
+            } catch (RuntimeException e) {
+                log.error("Error during cluster heartbeat", e);
+            }
+        }, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 注册本节点取得 leader 租约时的回调，在续约线程上执行
+     * @param listener 回调
+     */
+    public void addLeaderListener(Runnable listener) {
+        leaderListeners.add(listener);
+    }
+
+    /**
+     * 续约本节点和 leader 租约，并按最新的存活节点重建哈希环
+     */
+    public synchronized void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            clusterLeaseRepository.renewNode(nodeId, host, leaseTtlMs);
+            List<String> nodes = clusterLeaseRepository.enumerateLiveNodes();
+            if (!nodes.contains(nodeId)) {
+                nodes.add(nodeId);
+            }
+            boolean acquired = clusterLeaseRepository.tryAcquireLease(LEADER_LEASE, nodeId, leaseTtlMs);
+            leaseValidUntilNanos = startedAt + TimeUnit.MILLISECONDS.toNanos(leaseTtlMs);
+
+            if (!nodes.equals(liveNodes)) {
+                operationLog.info("CLUSTER - Membership changed: {} -> {}, this node: {}", liveNodes, nodes, nodeId);
+                ring = new ConsistentHashRing(nodes, virtualNodes);
+                liveNodes = nodes;
+            }
+            if (acquired != leader) {
+                operationLog.info("CLUSTER - Node {} {} the leader lease", nodeId, acquired ? "acquired" : "lost");
+                leader = acquired;
+                if (acquired) {
+                    leaderListeners.forEach(Runnable::run);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to renew cluster lease of node {}", nodeId, e);
+        }
+    }
+
+    /**
+     * 删除租约过期已久的节点记录
+     */
+    public void purgeExpiredNodes() {
+        if (!enabled) {
+            return;
+        }
+        int removed = clusterLeaseRepository.removeExpiredNodes(leaseTtlMs * 10);
+        if (removed > 0) {
+            log.info("Removed {} expired cluster node record(s)", removed);
+        }
+    }
+
+    /**
+     * 判断 Codeforces ID 是否由本节点负责
+     * @param codeforcesId Codeforces ID（不区分大小写）
+     * @return 未启用多实例时总是返回 true；租约失效时总是返回 false
+     */
+    public boolean owns(String codeforcesId) {
+        if (!enabled) {
+            return true;
+        }
+        return leaseValid() && nodeId.equals(ring.ownerOf(codeforcesId.toLowerCase()));
+    }
+
+    /**
+     * 筛选由本节点负责的 Codeforces ID
+     * @param codeforcesIds Codeforces ID 列表
+     * @return 由本节点负责的部分，顺序不变
+     */
+    public List<String> filterOwned(List<String> codeforcesIds) {
+        if (!enabled) {
+            return codeforcesIds;
+        }
+        List<String> owned = new ArrayList<>();
+        for (String codeforcesId : codeforcesIds) {
+            if (owns(codeforcesId)) {
+                owned.add(codeforcesId);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * 判断本节点是否负责处理群指令和发送汇总
+     * @return 未启用多实例时总是返回 true
+     */
+    public boolean isLeader() {
+        return !enabled || (leader && leaseValid());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<String> getLiveNodes() {
+        return liveNodes;
+    }
+
+    private boolean leaseValid() {
+        return System.nanoTime() - leaseValidUntilNanos < 0;
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * 正常退出时主动释放租约，其余节点下次续约时即可接管，不必等待租约过期
+     */
+    @Override
+    public void destroy() {
+        heartbeatExecutor.shutdownNow();
+        if (!enabled) {
+            return;
+        }
+        leader = false;
+        leaseValidUntilNanos = System.nanoTime();
+        try {
+            clusterLeaseRepository.releaseLease(LEADER_LEASE, nodeId);
+            clusterLeaseRepository.removeNode(nodeId);
+            operationLog.info("CLUSTER - Node {} left the cluster", nodeId);
+        } catch (DataAccessException e) {
+            log.warn("Failed to leave the cluster, leases of node {} will expire in {} ms", nodeId, leaseTtlMs, e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.client.CodeforcesClient;
+import com.kirakira.entity.SubmissionPage;
+import com.kirakira.entity.dto.codeforces.CfContestDto;
+import com.kirakira.entity.dto.codeforces.CfMemberDto;
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+import com.kirakira.entity.exception.CodeforcesApiException;
+import com.kirakira.util.SubmissionCursors;
+
+/**
+ * 比赛模式：在有被监控用户参加的比赛进行期间，按比赛批量拉取提交
+ * <p>
+ * 定期通过 contest.list 查找正在进行的比赛，并用 contest.standings 检查是否有被监控用户参赛。
+ * 对这些比赛，每轮按提交 ID 增量拉取 contest.status，每场比赛只需一次（或几次）请求，
+ * 然后按用户拆分成 {@link SubmissionPage}。
+ * 比赛模式只是加速比赛期间的通知，不会推进用户的个人游标，比赛外的提交仍由常规轮询负责。
+ */
+@Component
+public class ContestTracker {
+    private static final Logger log = LoggerFactory.getLogger(ContestTracker.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    private final CodeforcesClient codeforcesClient;
+    private final long detectIntervalMs;
+    private final int handlesPerStandingsRequest;
+    private final int pageSize;
+    private final int maxPages;
+
+    // 正在跟踪的比赛 ID -> 比赛提交流游标（null 表示尚未拉取过）
+    private final Map<Integer, Long> contestCursors = new LinkedHashMap<>();
+    private long lastDetectAt;
+
+    public ContestTracker(CodeforcesClient codeforcesClient,
+                          @Value("${monitor.contest.detect.interval.ms:600000}") long detectIntervalMs,
+                          @Value("${monitor.contest.standings.handles.per.request:200}") int handlesPerStandingsRequest,
+                          @Value("${codeforces.contest.status.page.size:1000}") int pageSize,
+                          @Value("${codeforces.contest.status.max.pages:5}") int maxPages) {
+        this.codeforcesClient = codeforcesClient;
+        this.detectIntervalMs = detectIntervalMs;
+        this.handlesPerStandingsRequest = handlesPerStandingsRequest;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * 拉取所有被跟踪比赛的新提交并按用户分组，必要时先重新检测进行中的比赛
+     * @param trackedHandles 被监控的全部 Codeforces ID（小写）
+     * @param now 当前时间（毫秒）
+     * @return 有新提交的被监控用户 -> 提交页（nextCursor 始终为 null）
+     * @throws CodeforcesApiException 当 API 请求失败时
+     */
+    public synchronized Map<String, SubmissionPage> poll(Set<String> trackedHandles, long now) {
+        if (now - lastDetectAt >= detectIntervalMs) {
+            // 先记录检测时间，检测失败时等到下个检测周期再重试，避免 contest.list 被频繁请求
+            lastDetectAt = now;
+            detect(trackedHandles);
+        }
+
+        Map<String, List<CfSubmissionDto>> acceptedByHandle = new HashMap<>();
+        Map<String, Integer> freshCountByHandle = new HashMap<>();
+        for (Map.Entry<Integer, Long> entry : contestCursors.entrySet()) {
+            int contestId = entry.getKey();
+            Long cursor = entry.getValue();
+            entry.setValue(pollContest(contestId, cursor, trackedHandles, acceptedByHandle, freshCountByHandle));
+        }
+
+        Map<String, SubmissionPage> pages = new HashMap<>();
+        freshCountByHandle.forEach((handle, count) -> pages.put(handle, SubmissionPage.builder()
+                .handle(handle)
+                .accepted(acceptedByHandle.getOrDefault(handle, new ArrayList<>()))
+                .newSubmissionCount(count)
+                .nextCursor(null)
+                .build()));
+        return pages;
+    }
+
+    /**
+     * 获取正在跟踪的比赛数
+     * @return 比赛数
+     */
+    public synchronized int getTrackedContestCount() {
+        return contestCursors.size();
+    }
+
+    /**
+     * 查找有被监控用户参加的进行中比赛，已结束的比赛停止跟踪
+     */
+    private void detect(Set<String> trackedHandles) {
+        List<CfContestDto> running = codeforcesClient.getRunningContests();
+        Map<Integer, Long> detected = new LinkedHashMap<>();
+        List<String> handles = new ArrayList<>(trackedHandles);
+        for (CfContestDto contest : running) {
+            if (contestCursors.containsKey(contest.getId())) {
+                detected.put(contest.getId(), contestCursors.get(contest.getId()));
+                continue;
+            }
+            for (int i = 0; i < handles.size(); i += handlesPerStandingsRequest) {
+                List<String> chunk = handles.subList(i, Math.min(handles.size(), i + handlesPerStandingsRequest));
+                if (codeforcesClient.hasParticipants(contest.getId(), chunk)) {
+                    detected.put(contest.getId(), null);
+                    operationLog.info("CONTEST - Tracking running contest {} ({})", contest.getId(), contest.getName());
+                    break;
+                }
+            }
+        }
+        for (Integer contestId : contestCursors.keySet()) {
+            if (!detected.containsKey(contestId)) {
+                operationLog.info("CONTEST - Contest {} is no longer running, stop tracking", contestId);
+            }
+        }
+        contestCursors.clear();
+        contestCursors.putAll(detected);
+    }
+
+    /**
+     * 增量拉取一场比赛在游标之后的提交，并按被监控用户分组
+     * @return 新的比赛提交流游标
+     */
+    private Long pollContest(int contestId, Long cursor, Set<String> trackedHandles,
+                             Map<String, List<CfSubmissionDto>> acceptedByHandle,
+                             Map<String, Integer> freshCountByHandle) {
+        List<CfSubmissionDto> trackedFresh = new ArrayList<>();
+        long maxSeenId = cursor != null ? cursor : 0L;
+        int from = 1;
+        boolean reachedCursor = false;
+        for (int page = 0; page < maxPages && !reachedCursor; page++) {
+            List<CfSubmissionDto> submissions = codeforcesClient.getContestStatus(contestId, from, pageSize);
+            for (CfSubmissionDto submission : submissions) {
+                long id = Long.parseLong(submission.getId());
+                if (cursor != null && id <= cursor) {
+                    reachedCursor = true;
+                    break;
+                }
+                maxSeenId = Math.max(maxSeenId, id);
+                List<String> handles = trackedAuthors(submission, trackedHandles);
+                if (handles.isEmpty()) {
+                    continue;
+                }
+                trackedFresh.add(submission);
+                for (String handle : handles) {
+                    freshCountByHandle.merge(handle, 1, Integer::sum);
+                    if ("OK".equals(submission.getVerdict())) {
+                        acceptedByHandle.computeIfAbsent(handle, k -> new ArrayList<>()).add(submission);
+                    }
+                }
+            }
+            // 首次拉取只取最新一页，更早的提交由常规轮询负责
+            if (cursor == null || submissions.size() < pageSize) {
+                reachedCursor = true;
+            }
+            from += pageSize;
+        }
+        if (!reachedCursor) {
+            log.warn("Contest {} cursor not reached after {} pages, older submissions left to regular polling", contestId, maxPages);
+        }
+        return SubmissionCursors.nextShared(maxSeenId, trackedFresh, cursor);
+    }
+
+    private static List<String> trackedAuthors(CfSubmissionDto submission, Set<String> trackedHandles) {
+        List<String> handles = new ArrayList<>();
+        if (submission.getAuthor() == null || submission.getAuthor().getMembers() == null) {
+            return handles;
+        }
+        for (CfMemberDto member : submission.getAuthor().getMembers()) {
+            String handle = member.getHandle() != null ? member.getHandle().toLowerCase() : null;
+            if (handle != null && trackedHandles.contains(handle)) {
+                handles.add(handle);
+            }
+        }
+        return handles;
+    }
+}
@@ -0,0 +1,143 @@
+package com.kirakira.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.client.OverflowClient;
+import com.kirakira.entity.SolveStats;
+import com.kirakira.repository.SolveStatsRepository;
+
+/**
+ * 各群组的过题汇总
+ * <p>
+ * 由 solve_stats 中当前时间段的统计生成，一次查询遍历所有群组，不扫描 submission 表。
+ * 汇总只按日、周发送，所以直接使用写入提交时累加的 day、week 统计行，不另设按小时汇总的统计：
+ * 小时粒度不会被任何汇总读取，却会让每次写入提交多累加一行。
+ * 没有人过题的群组不发送汇总；汇总作为批量消息交给 {@link OverflowClient}，按群组的发送间隔发送。
+ */
+@Component
+public class GroupDigest {
+    private static final Logger log = LoggerFactory.getLogger(GroupDigest.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    private final SolveStatsRepository solveStatsRepository;
+    private final OverflowClient overflowClient;
+    private final ZoneId zoneId;
+    private final int topSize;
+
+    public GroupDigest(SolveStatsRepository solveStatsRepository,
+                       OverflowClient overflowClient,
+                       @Value("${rank.time.zone:Asia/Shanghai}") String timeZone,
+                       @Value("${digest.top.size:3}") int topSize) {
+        this.solveStatsRepository = solveStatsRepository;
+        this.overflowClient = overflowClient;
+        this.zoneId = ZoneId.of(timeZone);
+        this.topSize = topSize;
+    }
+
+    /**
+     * 向所有有人过题的群组发送当前时间段的汇总
+     * @param period 时间段
+     * @return 发送了汇总的群组数
+     */
+    public int post(SolveStatistics.Period period) {
+        long startTime = System.currentTimeMillis();
+        Map<String, List<String>> digests = build(period, LocalDate.now(zoneId));
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(digests.size());
+        digests.forEach((groupId, lines) -> futures.add(overflowClient.sendLinesToGroup(groupId, lines)
+            .exceptionally(e -> {
+                log.error("Failed to send {} digest to group {}", period.getBucketType(), groupId, e);
+                return null;
+            })));
+        operationLog.info("DIGEST - Period: {}, {} group(s) queued, built in {} ms",
+                period.getBucketType(), digests.size(), System.currentTimeMillis() - startTime);
+        return futures.size();
+    }
+
+    /**
+     * 生成各群组的汇总
+     * @param period 时间段
+     * @param date 时间段内的任意一天
+     * @return 群组 ID -> 汇总的各行
+     */
+    Map<String, List<String>> build(SolveStatistics.Period period, LocalDate date) {
+        Map<String, GroupSummary> summaries = new LinkedHashMap<>();
+        solveStatsRepository.forEachGroupStats(period.getBucketType(), period.bucketStart(date), (groupId, stats) -> {
+            if (stats.getSolveCount() > 0) {
+                summaries.computeIfAbsent(groupId, k -> new GroupSummary()).add(stats, topSize);
+            }
+        });
+
+        Map<String, List<String>> digests = new LinkedHashMap<>();
+        summaries.forEach((groupId, summary) -> digests.put(groupId, summary.format(period)));
+        return digests;
+    }
+
+    /**
+     * 单个群组的汇总，只保留过题最多的几名用户和最难的题目
+     */
+    private static class GroupSummary {
+        private int solveCount;
+        private int activeUsers;
+        private final List<SolveStats> top = new ArrayList<>();
+        private final List<String> hardestBy = new ArrayList<>();
+        private int hardestRating;
+
+        void add(SolveStats stats, int topSize) {
+            solveCount += stats.getSolveCount();
+            activeUsers++;
+
+            if (stats.getMaxRating() > hardestRating) {
+                hardestRating = stats.getMaxRating();
+                hardestBy.clear();
+            }
+            if (stats.getMaxRating() > 0 && stats.getMaxRating() == hardestRating) {
+                hardestBy.add(stats.getCodeforcesId());
+            }
+
+            // 插入到按过题数、难度之和排序的位置，超出名额的丢弃
+            int index = 0;
+            while (index < top.size() && compare(top.get(index), stats) <= 0) {
+                index++;
+            }
+            if (index < topSize) {
+                top.add(index, stats);
+                if (top.size() > topSize) {
+                    top.remove(top.size() - 1);
+                }
+            }
+        }
+
+        private static int compare(SolveStats a, SolveStats b) {
+            if (a.getSolveCount() != b.getSolveCount()) {
+                return Integer.compare(b.getSolveCount(), a.getSolveCount());
+            }
+            return Long.compare(b.getRatingSum(), a.getRatingSum());
+        }
+
+        List<String> format(SolveStatistics.Period period) {
+            List<String> lines = new ArrayList<>();
+            lines.add(period.getDisplayName() + "过题汇总：" + activeUsers + " 人共通过 " + solveCount + " 题");
+            if (hardestRating > 0) {
+                lines.add("最难的题目：" + hardestRating + "，由 " + String.join(", ", hardestBy) + " 通过");
+            }
+            for (int i = 0; i < top.size(); i++) {
+                SolveStats stats = top.get(i);
+                lines.add((i + 1) + ". " + stats.getCodeforcesId() + " 过题 " + stats.getSolveCount()
+                    + "，难度总和 " + stats.getRatingSum());
+            }
+            return lines;
+        }
+    }
+}
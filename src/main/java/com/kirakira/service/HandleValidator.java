@@ -0,0 +1,155 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.client.CodeforcesClient;
+import com.kirakira.entity.dto.codeforces.CfUserDto;
+import com.kirakira.entity.exception.UserNotFoundException;
+
+import lombok.Getter;
+
+/**
+ * 通过 user.info 校验 Codeforces 用户名是否存在
+ * <p>
+ * 一次请求可以校验多个用户名；请求中有用户不存在时整个请求失败，Codeforces 只返回第一个不存在的用户名，
+ * 此时把它剔除后重试剩余的用户名。因为每次失败的请求只能识别出一个不存在的用户名，一批中有 k 个不存在的
+ * 用户名时需要 k + 1 次请求，这是 user.info 能做到的下限；为此重试前会先剔除缓存中已知不存在的用户名
+ * （包括其他并发校验刚刚识别出的），已知不存在的用户名在有效期内也不会再次请求。
+ * 存在和不存在的结果都会按各自的有效期缓存，存在的用户名同时记录 Codeforces 上的规范大小写。
+ */
+@Component
+public class HandleValidator {
+    private static final Logger log = LoggerFactory.getLogger(HandleValidator.class);
+
+    private final CodeforcesClient codeforcesClient;
+    private final long validTtlMs;
+    private final long missingTtlMs;
+    private final int batchSize;
+
+    // 用户名（小写） -> 校验结果
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    public HandleValidator(CodeforcesClient codeforcesClient,
+                           @Value("${codeforces.handle.cache.valid.ttl.ms:86400000}") long validTtlMs,
+                           @Value("${codeforces.handle.cache.missing.ttl.ms:600000}") long missingTtlMs,
+                           @Value("${codeforces.user.info.batch.size:100}") int batchSize) {
+        this.codeforcesClient = codeforcesClient;
+        this.validTtlMs = validTtlMs;
+        this.missingTtlMs = missingTtlMs;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 校验单个用户名
+     * @param handle Codeforces 用户名
+     * @return 规范大小写的用户名，用户不存在时返回 null
+     * @throws com.kirakira.entity.exception.CodeforcesApiException 当 API 请求失败时
+     */
+    public String validate(String handle) {
+        return validate(List.of(handle)).getCanonical().get(handle);
+    }
+
+    /**
+     * 批量校验用户名，未缓存的用户名合并为尽量少的 user.info 请求
+     * @param handles Codeforces 用户名
+     * @return 校验结果
+     * @throws com.kirakira.entity.exception.CodeforcesApiException 当 API 请求失败时
+     */
+    public Result validate(Collection<String> handles) {
+        long now = System.currentTimeMillis();
+        Result result = new Result();
+        Set<String> uncached = new LinkedHashSet<>();
+        for (String handle : handles) {
+            CacheEntry entry = cache.get(handle.toLowerCase());
+            if (entry == null || entry.expiresAt < now) {
+                uncached.add(handle);
+            }
+        }
+
+        List<String> pending = new ArrayList<>(uncached);
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            query(new ArrayList<>(pending.subList(from, Math.min(from + batchSize, pending.size()))));
+        }
+
+        for (String handle : handles) {
+            CacheEntry entry = cache.get(handle.toLowerCase());
+            if (entry != null && entry.canonical != null) {
+                result.canonical.put(handle, entry.canonical);
+            } else {
+                result.missing.add(handle);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询一批用户名并写入缓存，剔除不存在的用户名后重试，每次重试至少少一个用户名
+     */
+    private void query(List<String> handles) {
+        while (!handles.isEmpty()) {
+            List<CfUserDto> users;
+            try {
+                users = codeforcesClient.getUserInfo(handles);
+            } catch (UserNotFoundException e) {
+                String missing = e.getHandle();
+                if (missing == null || !handles.removeIf(handle -> handle.equalsIgnoreCase(missing))) {
+                    throw e;
+                }
+                log.debug("Codeforces handle {} not found", missing);
+                long now = System.currentTimeMillis();
+                cache.put(missing.toLowerCase(), new CacheEntry(null, now + missingTtlMs));
+                handles.removeIf(handle -> isKnownMissing(handle, now));
+                continue;
+            }
+
+            long expiresAt = System.currentTimeMillis() + validTtlMs;
+            for (int i = 0; i < handles.size(); i++) {
+                // 结果与请求顺序一致；改过名的用户返回的是新用户名
+                String canonical = i < users.size() ? users.get(i).getHandle() : null;
+                if (canonical != null) {
+                    cache.put(handles.get(i).toLowerCase(), new CacheEntry(canonical, expiresAt));
+                }
+            }
+            return;
+        }
+    }
+
+    private boolean isKnownMissing(String handle, long now) {
+        CacheEntry entry = cache.get(handle.toLowerCase());
+        return entry != null && entry.canonical == null && entry.expiresAt >= now;
+    }
+
+    /**
+     * 批量校验的结果
+     */
+    @Getter
+    public static class Result {
+        // 输入的用户名 -> 规范大小写的用户名
+        private final Map<String, String> canonical = new LinkedHashMap<>();
+        // 不存在的用户名
+        private final List<String> missing = new ArrayList<>();
+    }
+
+    private static class CacheEntry {
+        // 规范大小写的用户名，用户不存在时为 null
+        private final String canonical;
+        private final long expiresAt;
+
+        CacheEntry(String canonical, long expiresAt) {
+            this.canonical = canonical;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
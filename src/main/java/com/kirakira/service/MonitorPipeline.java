@@ -0,0 +1,500 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.client.OverflowClient;
+import com.kirakira.entity.OutboxNotification;
+import com.kirakira.entity.Submission;
+import com.kirakira.entity.dto.codeforces.CfMemberDto;
+import com.kirakira.entity.dto.codeforces.CfProblemDto;
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 监控流水线：拉取 → 去重 → 写库 → 通知
+ * <p>
+ * 拉取由 {@link MonitorService} 在调度线程上完成，每拿到一个用户的提交页就放入去重队列；
+ * 去重、写库、通知各自在独立线程上运行，阶段之间用有界队列连接。某个用户的通知可以在其他用户
+ * 仍在拉取时发出，发送消息的耗时也不会推迟下一轮轮询。下游处理不过来时上游的 put 会阻塞，
+ * 由此形成显式的背压。
+ * <p>
+ * 写库阶段会把队列中已积压的条目合并到同一个事务中，过题通知在同一事务中写入发件箱，
+ * 事务提交后由 {@link NotificationOutbox} 发送，发送失败或进程退出都不会丢失通知。
+ * 通知阶段只发送错误消息，会把同一群组的积压消息合并发送。
+ * <p>
+ * 各阶段队列深度以 monitor.pipeline.queue.depth 指标暴露。
+ */
+@Component
+public class MonitorPipeline implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(MonitorPipeline.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    // 错误摘要中最多列出的用户数
+    private static final int ERROR_PREVIEW_HANDLES = 5;
+
+    private final BindingRegistry bindingRegistry;
+    private final SolvedProblemIndex solvedProblemIndex;
+    private final ProblemCatalog problemCatalog;
+    private final SubmissionRecorder submissionRecorder;
+    private final NotificationOutbox notificationOutbox;
+    private final OverflowClient overflowClient;
+    private final int persistBatchSize;
+
+    private final BlockingQueue<FetchedPage> dedupeQueue;
+    private final BlockingQueue<PersistTask> persistQueue;
+    private final BlockingQueue<GroupMessage> notifyQueue;
+    private final ExecutorService executor;
+
+    // 已通过去重、尚未写库完成的 (用户, 题目)，避免同一题在写库前被重复收集
+    private final Set<String> inFlightKeys = ConcurrentHashMap.newKeySet();
+
+    public MonitorPipeline(BindingRegistry bindingRegistry,
+                           SolvedProblemIndex solvedProblemIndex,
+                           ProblemCatalog problemCatalog,
+                           SubmissionRecorder submissionRecorder,
+                           NotificationOutbox notificationOutbox,
+                           OverflowClient overflowClient,
+                           MeterRegistry meterRegistry,
+                           @Value("${monitor.pipeline.queue.capacity:1000}") int queueCapacity,
+                           @Value("${monitor.pipeline.persist.batch.size:200}") int persistBatchSize) {
+        this.bindingRegistry = bindingRegistry;
+        this.solvedProblemIndex = solvedProblemIndex;
+        this.problemCatalog = problemCatalog;
+        this.submissionRecorder = submissionRecorder;
+        this.notificationOutbox = notificationOutbox;
+        this.overflowClient = overflowClient;
+        this.persistBatchSize = Math.max(1, persistBatchSize);
+        this.dedupeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.persistQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.notifyQueue = new ArrayBlockingQueue<>(queueCapacity);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("monitor-pipeline-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(3, threadFactory);
+
+        registerQueueDepth(meterRegistry, "dedupe", dedupeQueue);
+        registerQueueDepth(meterRegistry, "persist", persistQueue);
+        registerQueueDepth(meterRegistry, "notify", notifyQueue);
+    }
+
+    private static void registerQueueDepth(MeterRegistry meterRegistry, String stage, BlockingQueue<?> queue) {
+        Gauge.builder("monitor.pipeline.queue.depth", queue, BlockingQueue::size)
+            .description("监控流水线各阶段队列中等待处理的条目数")
+            .tag("stage", stage)
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.execute(() -> runStage("dedupe", dedupeQueue, this::dedupe));
+        executor.execute(() -> runStage("persist", persistQueue, this::persist));
+        executor.execute(() -> runStage("notify", notifyQueue, this::notifyGroups));
+    }
+
+    /**
+     * 提交一个用户新拉取到的提交页，去重队列已满时阻塞
+     * @param cfId Codeforces ID
+     * @param accepted 游标之后新通过的提交
+     * @param cursorUpdate 需要推进到的提交游标，不需要推进时为 null
+     * @throws InterruptedException 等待队列空间时被中断
+     */
+    public void submitPage(String cfId, List<CfSubmissionDto> accepted, Long cursorUpdate) throws InterruptedException {
+        if (accepted.isEmpty() && cursorUpdate == null) {
+            return;
+        }
+        put("dedupe", dedupeQueue, new FetchedPage(cfId, accepted, cursorUpdate));
+    }
+
+    /**
+     * 提交一条需要发送到群组的错误消息，通知队列已满时阻塞
+     * @param groupId 群组 ID，为空时忽略
+     * @param message 错误消息
+     * @throws InterruptedException 等待队列空间时被中断
+     */
+    public void submitError(String groupId, String message) throws InterruptedException {
+        if (groupId == null || groupId.isEmpty()) {
+            return;
+        }
+        GroupMessage groupMessage = new GroupMessage(groupId);
+        groupMessage.errorMessages.put(message, 1);
+        put("notify", notifyQueue, groupMessage);
+    }
+
+    /**
+     * 提交一条单个用户的请求失败消息，同一原因的失败在发送前会合并为一条摘要
+     * @param groupId 群组 ID，为空时忽略
+     * @param cfId 请求失败的 Codeforces ID
+     * @param reason 失败原因
+     * @throws InterruptedException 等待队列空间时被中断
+     */
+    public void submitHandleError(String groupId, String cfId, String reason) throws InterruptedException {
+        if (groupId == null || groupId.isEmpty()) {
+            return;
+        }
+        GroupMessage groupMessage = new GroupMessage(groupId);
+        groupMessage.addHandleError(reason, cfId);
+        put("notify", notifyQueue, groupMessage);
+    }
+
+    /**
+     * 获取各阶段队列中等待处理的条目数
+     * @return 阶段名 -> 队列深度
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        depths.put("dedupe", dedupeQueue.size());
+        depths.put("persist", persistQueue.size());
+        depths.put("notify", notifyQueue.size());
+        return depths;
+    }
+
+    private <T> void put(String stage, BlockingQueue<T> queue, T item) throws InterruptedException {
+        if (!queue.offer(item)) {
+            log.warn("Pipeline queue {} is full ({} item(s)), waiting for downstream", stage, queue.size());
+            queue.put(item);
+        }
+    }
+
+    private <T> void runStage(String stage, BlockingQueue<T> queue, Consumer<T> handler) {
+        while (!Thread.currentThread().isInterrupted()) {
+            T item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                handler.accept(item);
+            } catch (RuntimeException e) {
+                log.error("Pipeline stage {} failed", stage, e);
+            }
+        }
+        log.info("Pipeline stage {} stopped", stage);
+    }
+
+    /**
+     * 去重阶段：筛选尚未通过的题目，交给写库阶段
+     */
+    private void dedupe(FetchedPage page) {
+        List<String> groupList = bindingRegistry.enumerateGroupsByCodeforcesId(page.cfId);
+        List<NewSubmission> newSubmissions = collectNewSubmissions(page.cfId, groupList, page.accepted);
+        if (newSubmissions.isEmpty() && page.cursorUpdate == null) {
+            return;
+        }
+        try {
+            put("persist", persistQueue, new PersistTask(page.cfId, newSubmissions, page.cursorUpdate));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseKeys(newSubmissions);
+        }
+    }
+
+    /**
+     * 写库阶段：把积压的条目合并到一个事务中写入，通知随提交一起写入发件箱
+     */
+    private void persist(PersistTask first) {
+        List<PersistTask> tasks = new ArrayList<>();
+        tasks.add(first);
+        persistQueue.drainTo(tasks, persistBatchSize - 1);
+
+        List<NewSubmission> newSubmissions = new ArrayList<>();
+        List<Submission> submissions = new ArrayList<>();
+        List<OutboxNotification> notifications = new ArrayList<>();
+        Map<String, Long> cursorUpdates = new HashMap<>();
+        for (PersistTask task : tasks) {
+            for (NewSubmission newSubmission : task.newSubmissions) {
+                newSubmissions.add(newSubmission);
+                submissions.add(newSubmission.submission);
+                for (String groupId : newSubmission.groupList) {
+                    notifications.add(OutboxNotification.builder()
+                            .groupId(groupId)
+                            .submissionId(newSubmission.submission.getSubmissionId())
+                            .codeforcesId(newSubmission.realCfId)
+                            .problemInfo(newSubmission.problemInfo)
+                            .submissionTime(newSubmission.submission.getSubmissionTime())
+                            .build());
+                }
+            }
+            if (task.cursorUpdate != null) {
+                cursorUpdates.merge(task.cfId, task.cursorUpdate, Math::max);
+            }
+        }
+
+        // 新提交、通知与游标在同一事务中写入，失败时全部回滚，下一轮会重新拉取
+        Set<String> insertedIds = new HashSet<>();
+        try {
+            for (Submission inserted : submissionRecorder.persist(submissions, cursorUpdates, notifications)) {
+                insertedIds.add(inserted.getSubmissionId());
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to persist {} new submission(s), will retry next cycle", submissions.size(), e);
+        } finally {
+            // 写入成功时已通过题目索引已经更新，失败时需要允许下一轮重新收集
+            releaseKeys(newSubmissions);
+        }
+
+        for (NewSubmission newSubmission : newSubmissions) {
+            Submission submission = newSubmission.submission;
+            // 已被其他周期写入的提交不再重复通知
+            if (insertedIds.contains(submission.getSubmissionId())) {
+                operationLog.info("MONITOR - New submission recorded: CF: {}, Problem: {}, Submission ID: {}",
+                                submission.getCodeforcesId(), submission.getProblemId(), submission.getSubmissionId());
+            }
+        }
+        if (!insertedIds.isEmpty()) {
+            notificationOutbox.wake();
+        }
+    }
+
+    /**
+     * 通知阶段：合并同一群组积压的错误消息后交给发送队列
+     */
+    private void notifyGroups(GroupMessage first) {
+        List<GroupMessage> pending = new ArrayList<>();
+        pending.add(first);
+        notifyQueue.drainTo(pending);
+
+        Map<String, GroupMessage> merged = new LinkedHashMap<>();
+        for (GroupMessage message : pending) {
+            GroupMessage target = merged.computeIfAbsent(message.groupId, GroupMessage::new);
+            message.errorMessages.forEach((error, count) -> target.errorMessages.merge(error, count, Integer::sum));
+            message.handleErrors.forEach((reason, handles) -> handles.forEach(handle -> target.addHandleError(reason, handle)));
+        }
+
+        // 每个群组的错误摘要合并为尽量少的消息，由 MessageDispatcher 并发发送；
+        // 等待本批发送完成后再处理下一批，使背压延续到发送端
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (GroupMessage message : merged.values()) {
+            String groupId = message.groupId;
+            List<String> lines = summarizeErrors(message);
+            if (lines.isEmpty()) {
+                continue;
+            }
+            futures.add(overflowClient.sendLinesToGroup(groupId, lines)
+                .thenAccept(response -> {
+                    JSONObject responseJson = new JSONObject(response);
+                    if (responseJson.optInt("retcode", -1) == 0) {
+                        log.info("Successfully sent message to group " + groupId);
+                    } else {
+                        log.warn("Error sending message to group " + groupId + ": " + response);
+                    }
+                }));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Message sending interrupted");
+        } catch (ExecutionException e) {
+            log.error("Failed to send notifications", e.getCause());
+        }
+    }
+
+    /**
+     * 合并群组的错误消息：相同的消息只保留一条，同一原因的用户请求失败合并为一条摘要
+     * @param message 群组消息
+     * @return 错误消息行
+     */
+    private static List<String> summarizeErrors(GroupMessage message) {
+        List<String> lines = new ArrayList<>();
+        message.handleErrors.forEach((reason, handles) -> {
+            if (handles.size() == 1) {
+                lines.add("CodeForces API请求失败 (用户 " + handles.iterator().next() + ")：" + reason);
+            } else {
+                List<String> preview = new ArrayList<>(handles).subList(0, Math.min(handles.size(), ERROR_PREVIEW_HANDLES));
+                String more = handles.size() > preview.size() ? " 等" : "";
+                lines.add("CodeForces API请求失败：" + handles.size() + " 个用户 (" + String.join(", ", preview) + more + ")：" + reason);
+            }
+        });
+        message.errorMessages.forEach((error, count) ->
+                lines.add(count > 1 ? error + "（共 " + count + " 次）" : error));
+        return lines;
+    }
+
+    /**
+     * 筛选单个用户的新通过提交
+     * @param cfId Codeforces ID
+     * @param groupList 该用户所在的群组列表
+     * @param submissions 游标之后新通过的提交
+     * @return 需要写入的新提交，其 (用户, 题目) 已登记为处理中
+     */
+    private List<NewSubmission> collectNewSubmissions(String cfId, List<String> groupList, List<CfSubmissionDto> submissions) {
+        List<NewSubmission> newSubmissions = new ArrayList<>();
+        for (CfSubmissionDto submission : submissions) {
+            // 检查 problem 是否为 null
+            CfProblemDto problem = submission.getProblem();
+            if (problem == null) {
+                log.warn("Submission {} has null problem, skipping", submission.getId());
+                continue;
+            }
+
+            String problemId = problem.getContestId() + problem.getIndex();
+
+            // 如果提交已经存在，则跳过
+            if (solvedProblemIndex.isSolved(cfId, problem.getContestId(), problem.getIndex())) {
+                continue;
+            }
+            log.debug("Get submission " + submission.getId());
+
+            // 检查 author 和 members 是否为 null
+            if (submission.getAuthor() == null) {
+                log.warn("Submission {} has null author, skipping", submission.getId());
+                continue;
+            }
+
+            List<CfMemberDto> members = submission.getAuthor().getMembers();
+            if (members == null || members.isEmpty()) {
+                log.warn("Submission {} has null or empty members, skipping", submission.getId());
+                continue;
+            }
+
+            // 获取题目作者的成员信息，找出匹配的 cfId
+            String realCfId = null;
+            for (CfMemberDto member : members) {
+                String handle = member.getHandle();
+                if (handle != null && handle.equalsIgnoreCase(cfId)) {
+                    realCfId = handle;
+                    break;
+                }
+            }
+
+            // 如果没有找到匹配的 cfId，跳过此提交
+            if (realCfId == null) {
+                log.warn("No matching cfId found for submission {}", submission.getId());
+                continue;
+            }
+
+            // 获取题目信息，提交中没有难度时使用题库中的难度
+            Integer rating = problem.getRating() != null ? problem.getRating() : problemCatalog.getRating(problemId);
+            String problemInfo = problemId + " (" + (rating != null ? rating.toString() : "未知rating") + ")";
+
+            // 尚未写库的同一题的多次通过只记录一次
+            String key = cfId.toLowerCase() + "/" + problemId;
+            if (!inFlightKeys.add(key)) {
+                continue;
+            }
+
+            Submission submissionDb = Submission.builder()
+                    .codeforcesId(cfId)
+                    .problemId(problemId)
+                    .submissionId(submission.getId())
+                    .submissionTime(submission.getCreationTime())
+                    .rating(rating)
+                    .build();
+            newSubmissions.add(new NewSubmission(submissionDb, realCfId, problemInfo, groupList, key));
+        }
+        return newSubmissions;
+    }
+
+    private void releaseKeys(List<NewSubmission> newSubmissions) {
+        for (NewSubmission newSubmission : newSubmissions) {
+            inFlightKeys.remove(newSubmission.key);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        Map<String, Integer> depths = getQueueDepths();
+        if (depths.values().stream().anyMatch(depth -> depth > 0)) {
+            // 未写库的条目没有推进游标，重启后会重新拉取
+            log.warn("Monitor pipeline stopped with pending items: {}", depths);
+        }
+    }
+
+    /**
+     * 拉取阶段产出的单个用户提交页
+     */
+    private static class FetchedPage {
+        private final String cfId;
+        private final List<CfSubmissionDto> accepted;
+        private final Long cursorUpdate;
+
+        FetchedPage(String cfId, List<CfSubmissionDto> accepted, Long cursorUpdate) {
+            this.cfId = cfId;
+            this.accepted = accepted;
+            this.cursorUpdate = cursorUpdate;
+        }
+    }
+
+    /**
+     * 去重后待写入的新提交及游标
+     */
+    private static class PersistTask {
+        private final String cfId;
+        private final List<NewSubmission> newSubmissions;
+        private final Long cursorUpdate;
+
+        PersistTask(String cfId, List<NewSubmission> newSubmissions, Long cursorUpdate) {
+            this.cfId = cfId;
+            this.newSubmissions = newSubmissions;
+            this.cursorUpdate = cursorUpdate;
+        }
+    }
+
+    /**
+     * 尚未写入数据库的新提交及其通知信息
+     */
+    private static class NewSubmission {
+        private final Submission submission;
+        private final String realCfId;
+        private final String problemInfo;
+        private final List<String> groupList;
+        private final String key;
+
+        NewSubmission(Submission submission, String realCfId, String problemInfo, List<String> groupList, String key) {
+            this.submission = submission;
+            this.realCfId = realCfId;
+            this.problemInfo = problemInfo;
+            this.groupList = groupList;
+            this.key = key;
+        }
+    }
+
+    /**
+     * 发往单个群组的错误消息
+     */
+    private static class GroupMessage {
+        private final String groupId;
+        // 错误消息 -> 出现次数
+        private final Map<String, Integer> errorMessages = new LinkedHashMap<>();
+        // 失败原因 -> 请求失败的用户
+        private final Map<String, Set<String>> handleErrors = new LinkedHashMap<>();
+
+        GroupMessage(String groupId) {
+            this.groupId = groupId;
+        }
+
+        void addHandleError(String reason, String cfId) {
+            handleErrors.computeIfAbsent(reason, k -> new LinkedHashSet<>()).add(cfId);
+        }
+    }
+}
@@ -1,217 +1,301 @@
 package com.kirakira.service;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.kirakira.client.CodeforcesClient;
-import com.kirakira.client.OverflowClient;
-import com.kirakira.entity.Submission;
-import com.kirakira.entity.dto.codeforces.CfMemberDto;
-import com.kirakira.entity.dto.codeforces.CfProblemDto;
-import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+import com.kirakira.entity.SubmissionPage;
 import com.kirakira.entity.exception.CodeforcesApiException;
 import com.kirakira.entity.exception.UserNotFoundException;
-import com.kirakira.repository.GroupUserRepository;
-import com.kirakira.repository.SubmissionRepository;
+import com.kirakira.repository.PollCursorRepository;
 
+/**
+ * 监控流水线的拉取阶段：每轮从 Codeforces 拉取到期用户的提交，交给 {@link MonitorPipeline} 完成去重、写库和通知
+ */
 @Service
 public class MonitorService {
     
-    private final GroupUserRepository groupUserRepository;
-    private final SubmissionRepository submissionRepository;
-    private final CodeforcesClient codeforcesClient;
-    private final OverflowClient overflowClient;
+    private final BindingRegistry bindingRegistry;
+    private final MonitorPipeline monitorPipeline;
+    private final PollCursorRepository pollCursorRepository;
+    private final SubmissionPoller submissionPoller;
+    private final AdaptivePollSchedule pollSchedule;
+    private final RecentStatusFeed recentStatusFeed;
+    private final ContestTracker contestTracker;
+    private final SolvedProblemIndex solvedProblemIndex;
+    private final ClusterMembership clusterMembership;
     private final String errorNotificationGroupId;
-    private final long messageSendIntervalMs;
+    private final int pollBatchSize;
+    private final String monitorMode;
+    private final boolean contestModeEnabled;
+    // 上一轮由本节点负责的 Codeforces ID，用于发现新接管的用户；第一轮之前为 null
+    private Set<String> ownedCfIds;
 
     private static final Logger log = LoggerFactory.getLogger(MonitorService.class);
     private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
 
+    // 逐用户轮询 user.status
+    private static final String MODE_HANDLE = "handle";
+    // 轮询全站 problemset.recentStatus
+    private static final String MODE_FEED = "feed";
 
-    public MonitorService(GroupUserRepository groupUserRepository, 
-                         SubmissionRepository submissionRepository, 
-                         OverflowClient overflowClient, 
-                         CodeforcesClient codeforcesClient,
+
+    public MonitorService(BindingRegistry bindingRegistry, 
+                         MonitorPipeline monitorPipeline,
+                         PollCursorRepository pollCursorRepository,
+                         SubmissionPoller submissionPoller,
+                         AdaptivePollSchedule pollSchedule,
+                         RecentStatusFeed recentStatusFeed,
+                         ContestTracker contestTracker,
+                         SolvedProblemIndex solvedProblemIndex,
+                         ClusterMembership clusterMembership,
                          @Value("${bot.error.notification.group.id:}") String errorNotificationGroupId,
-                         @Value("${message.send.interval.ms:1000}") long messageSendIntervalMs) {
-        this.groupUserRepository = groupUserRepository;
-        this.codeforcesClient = codeforcesClient;
-        this.overflowClient = overflowClient;
-        this.submissionRepository = submissionRepository;
+                         @Value("${monitor.poll.batch.size:30}") int pollBatchSize,
+                         @Value("${monitor.mode:" + MODE_HANDLE + "}") String monitorMode,
+                         @Value("${monitor.contest.enabled:false}") boolean contestModeEnabled) {
+        this.bindingRegistry = bindingRegistry;
+        this.submissionPoller = submissionPoller;
+        this.pollSchedule = pollSchedule;
+        this.recentStatusFeed = recentStatusFeed;
+        this.contestTracker = contestTracker;
+        this.solvedProblemIndex = solvedProblemIndex;
+        this.clusterMembership = clusterMembership;
+        this.monitorPipeline = monitorPipeline;
+        this.pollCursorRepository = pollCursorRepository;
         this.errorNotificationGroupId = errorNotificationGroupId;
-        this.messageSendIntervalMs = messageSendIntervalMs;
+        this.pollBatchSize = pollBatchSize;
+        this.monitorMode = monitorMode;
+        this.contestModeEnabled = contestModeEnabled;
     }
 
 
     public void checkRecentSubmissionsAndNotify() {
-        operationLog.info("MONITOR - Starting submission check");
-        
-        // 存储每个群组对应的 Codeforces IDs 和 ProblemInfos
-        Map<String, List<String>> groupCodeforcesIds = new HashMap<>();
-        Map<String, List<String>> groupProblemInfos = new HashMap<>();
-        Map<String, List<String>> groupErrorMessages = new HashMap<>();
-
-        // 获取所有的 codeforces_id
-        List<String> allCfIds = groupUserRepository.enumerateAllCodeforcesId();
-
-        // 遍历每个 Codeforces ID
-        log.info("Checking submissions");
-        operationLog.info("MONITOR - Checking {} Codeforces accounts", allCfIds.size());
-        
-        for (String cfId : allCfIds) {
-            // 获取此 Codeforces ID 所在的所有群组
-            List<String> groupList = groupUserRepository.enumerateGroupsByCodeforcesId(cfId);
-
-            try {
-                List<CfSubmissionDto> submissions = codeforcesClient.getRecentSubmissions(cfId);
-
-                for (CfSubmissionDto submission : submissions) {
-                    // 检查 problem 是否为 null
-                    CfProblemDto problem = submission.getProblem();
-                    if (problem == null) {
-                        log.warn("Submission {} has null problem, skipping", submission.getId());
-                        continue;
-                    }
-                    
-                    String problemId = problem.getContestId() + problem.getIndex();
-
-                    // 如果提交已经存在，则跳过
-                    if (submissionRepository.checkIfUserFinishedProblem(problemId, cfId)) {
-                        continue;
-                    }
-                    log.debug("Get submission " + submission.getId());
-
-                    // 检查 author 和 members 是否为 null
-                    if (submission.getAuthor() == null) {
-                        log.warn("Submission {} has null author, skipping", submission.getId());
-                        continue;
-                    }
-                    
-                    List<CfMemberDto> members = submission.getAuthor().getMembers();
-                    if (members == null || members.isEmpty()) {
-                        log.warn("Submission {} has null or empty members, skipping", submission.getId());
-                        continue;
-                    }
-
-                    // 获取题目作者的成员信息，找出匹配的 cfId
-                    String realCfId = null;
-                    for (CfMemberDto member : members) {
-                        String handle = member.getHandle();
-                        if (handle != null && handle.equalsIgnoreCase(cfId)) {
-                            realCfId = handle;
-                            break;
-                        }
-                    }
-
-                    // 如果没有找到匹配的 cfId，跳过此提交
-                    if (realCfId == null) {
-                        log.warn("No matching cfId found for submission {}", submission.getId());
-                        continue;
-                    }
-
-                    // 获取题目信息
-                    String problemInfo = problemId + " (" + problem.getRatingStr() + ")";
-
-                    for (String groupId : groupList) {
-                        // 维护群组的 Codeforces ID 列表
-                        groupCodeforcesIds.putIfAbsent(groupId, new ArrayList<>());
-                        groupProblemInfos.putIfAbsent(groupId, new ArrayList<>());
-
-                        groupCodeforcesIds.get(groupId).add(realCfId);
-                        groupProblemInfos.get(groupId).add(problemInfo);
-                    }
-
-                    // 将提交信息插入数据库
-                    Submission submissionDb = Submission.builder()
-                            .codeforcesId(cfId)
-                            .problemId(problem.getContestId() + problem.getIndex())
-                            .submissionId(submission.getId())
-                            .submissionTime(submission.getCreationTime())
-                            .build();
-                    submissionRepository.insertSubmission(submissionDb);
-                    operationLog.info("MONITOR - New submission recorded: CF: {}, Problem: {}, Submission ID: {}", 
-                                    cfId, problemId, submission.getId());
-                }
-            } catch (UserNotFoundException e) {
-                log.warn("User not found: {}", cfId, e);
-                for (String groupId : groupList) {
-                    groupErrorMessages.putIfAbsent(groupId, new ArrayList<>());
-                    groupErrorMessages.get(groupId).add("CodeForces API请求失败：用户 " + cfId + " 不存在！已将其从数据库中移除。");
-                    groupUserRepository.removeGroupUser(groupId, cfId);
-                }
-            } catch (CodeforcesApiException e) {
-                // 记录 API 错误到日志，并发送到配置的错误通知群组
-                log.error("CodeForces API请求失败 (用户: {}): {}", cfId, e.getMessage(), e);
-                if (errorNotificationGroupId != null && !errorNotificationGroupId.isEmpty()) {
-                    groupErrorMessages.putIfAbsent(errorNotificationGroupId, new ArrayList<>());
-                    groupErrorMessages.get(errorNotificationGroupId).add("CodeForces API请求失败：" + e.getMessage());
-                }
+        List<String> trackedCfIds = enumerateOwnedCodeforcesIds();
+        long now = System.currentTimeMillis();
+
+        // 逐用户模式下只有用户到期时才进行本轮检查；全站提交流和比赛模式每轮都会请求
+        Map<String, Long> cursors;
+        List<String> dueCfIds;
+        if (MODE_FEED.equals(monitorMode)) {
+            cursors = pollCursorRepository.enumerateAllCursors();
+            ingestFeed(trackedCfIds, cursors);
+            dueCfIds = recentStatusFeed.takeResyncBatch(trackedCfIds, pollBatchSize);
+        } else {
+            dueCfIds = pollSchedule.takeDue(trackedCfIds, now, pollBatchSize);
+            if (dueCfIds.isEmpty() && !contestModeEnabled) {
+                log.debug("No Codeforces accounts due for polling");
+                return;
             }
+            cursors = pollCursorRepository.enumerateAllCursors();
         }
-        
-        log.info("Check submissions done.");
-        operationLog.info("MONITOR - Submission check completed");
-        
-        // 对每个群组发送消息，并控制消息发送间隔
-        for (String groupId : groupCodeforcesIds.keySet()) {
-            List<String> codeforcesIds = groupCodeforcesIds.get(groupId);
-            List<String> problemInfos = groupProblemInfos.get(groupId);
-            if (!codeforcesIds.isEmpty() && !problemInfos.isEmpty()) {
-                try {
-                    Thread.sleep(messageSendIntervalMs);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.error("Message sending interrupted", e);
+        if (contestModeEnabled) {
+            ingestContests(trackedCfIds, now, cursors);
+        }
+
+        if (!dueCfIds.isEmpty()) {
+            operationLog.info("MONITOR - Starting submission check");
+
+            // 遍历每个 Codeforces ID
+            log.info("Checking submissions");
+            operationLog.info("MONITOR - Checking {} of {} Codeforces accounts", dueCfIds.size(), trackedCfIds.size());
+            pollHandles(dueCfIds, cursors);
+
+            log.info("Check submissions done.");
+            operationLog.info("MONITOR - Submission check completed");
+        }
+
+        log.debug("Monitor pipeline queue depths: {}", monitorPipeline.getQueueDepths());
+    }
+
+    /**
+     * 获取由本节点负责的 Codeforces ID
+     * <p>
+     * 多实例部署时只返回哈希环上归属本节点的部分。新接管的用户可能已由其他节点写入了提交，
+     * 先从数据库同步这些用户的已通过题目，避免重复通知。
+     * @return Codeforces ID 列表
+     */
+    private List<String> enumerateOwnedCodeforcesIds() {
+        List<String> allCfIds = bindingRegistry.enumerateAllCodeforcesId();
+        if (!clusterMembership.isEnabled()) {
+            return allCfIds;
+        }
+
+        List<String> owned = clusterMembership.filterOwned(allCfIds);
+        Set<String> current = new HashSet<>(owned);
+        if (ownedCfIds != null) {
+            List<String> acquired = new ArrayList<>();
+            for (String cfId : owned) {
+                if (!ownedCfIds.contains(cfId)) {
+                    acquired.add(cfId);
                 }
-                String response = overflowClient.sendSubmissionToGroup(groupId, codeforcesIds, problemInfos);
-                JSONObject responseJson = new JSONObject(response);
-                if (responseJson.optInt("retcode", -1) == 0) {
-                    log.info("Successfully sent submission to group " + groupId);
-                    operationLog.info("MONITOR - Notifications sent to group: {}, {} submission(s)", groupId, codeforcesIds.size());
-                } else {
-                    log.warn("Error sending submission to group " + groupId + ": " + response);
+            }
+            int released = 0;
+            for (String cfId : ownedCfIds) {
+                if (!current.contains(cfId)) {
+                    released++;
                 }
             }
-            
-            sendErrorMessagesToGroup(groupId, groupErrorMessages.get(groupId));
-        }
-        
-        // 处理未在 groupCodeforcesIds 中但有错误消息的群组（如错误通知群组）
-        for (String groupId : groupErrorMessages.keySet()) {
-            if (!groupCodeforcesIds.containsKey(groupId)) {
-                sendErrorMessagesToGroup(groupId, groupErrorMessages.get(groupId));
+            if (!acquired.isEmpty() || released > 0) {
+                operationLog.info("CLUSTER - Shard of node {} changed: {} acquired, {} released, {} of {} handle(s) owned",
+                        clusterMembership.getNodeId(), acquired.size(), released, owned.size(), allCfIds.size());
+                solvedProblemIndex.reload(acquired);
             }
         }
+        ownedCfIds = current;
+        return owned;
     }
 
     /**
-     * 向指定群组发送错误消息
-     * @param groupId 群组 ID
-     * @param errorMessages 错误消息列表
+     * 全站提交流模式：一次请求获取所有被监控用户的新提交
+     * @param trackedCfIds 被监控的全部 Codeforces ID
+     * @param cursors 本轮开始时的提交游标
      */
-    private void sendErrorMessagesToGroup(String groupId, List<String> errorMessages) {
-        if (errorMessages != null && !errorMessages.isEmpty()) {
-            try {
-                Thread.sleep(messageSendIntervalMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Error message sending interrupted for group {}", groupId, e);
+    private void ingestFeed(List<String> trackedCfIds, Map<String, Long> cursors) {
+        // 尚无游标的用户（如新绑定的用户）需要先逐用户拉取一次
+        List<String> withoutCursor = new ArrayList<>();
+        for (String cfId : trackedCfIds) {
+            if (!cursors.containsKey(cfId.toLowerCase())) {
+                withoutCursor.add(cfId);
             }
-            String response = overflowClient.sendErrorMessageToGroup(groupId, errorMessages);
-            JSONObject responseJson = new JSONObject(response);
-            if (responseJson.optInt("retcode", -1) == 0) {
-                log.info("Successfully sent error message to group " + groupId);
+        }
+        recentStatusFeed.requestResync(withoutCursor);
+
+        Map<String, SubmissionPage> pages;
+        try {
+            pages = recentStatusFeed.poll(new HashSet<>(trackedCfIds), cursors);
+        } catch (CodeforcesApiException e) {
+            log.error("CodeForces API请求失败 (全站提交): {}", e.getMessage(), e);
+            reportError(errorNotificationGroupId, "CodeForces API请求失败：" + e.getMessage());
+            return;
+        }
+        if (!pages.isEmpty()) {
+            operationLog.info("FEED - {} tracked account(s) with new submissions", pages.size());
+        }
+        pages.forEach((cfId, page) -> collectPage(cfId, page, cursors));
+    }
+
+    /**
+     * 比赛模式：对有被监控用户参加的进行中比赛，按比赛批量获取提交
+     * @param trackedCfIds 被监控的全部 Codeforces ID
+     * @param now 当前时间（毫秒）
+     * @param cursors 本轮开始时的提交游标
+     */
+    private void ingestContests(List<String> trackedCfIds, long now, Map<String, Long> cursors) {
+        Map<String, SubmissionPage> pages;
+        try {
+            pages = contestTracker.poll(new HashSet<>(trackedCfIds), now);
+        } catch (CodeforcesApiException e) {
+            log.error("CodeForces API请求失败 (比赛提交): {}", e.getMessage(), e);
+            reportError(errorNotificationGroupId, "CodeForces API请求失败：" + e.getMessage());
+            return;
+        }
+        if (!pages.isEmpty()) {
+            operationLog.info("CONTEST - {} tracked account(s) with new submissions in {} contest(s)",
+                    pages.size(), contestTracker.getTrackedContestCount());
+        }
+        pages.forEach((cfId, page) -> collectPage(cfId, page, cursors));
+    }
+
+    /**
+     * 逐用户并发拉取提交
+     * @param dueCfIds 需要拉取的 Codeforces ID
+     * @param cursors 本轮开始时的提交游标
+     */
+    private void pollHandles(List<String> dueCfIds, Map<String, Long> cursors) {
+        Set<String> unfinishedCfIds = new HashSet<>(dueCfIds);
+        submissionPoller.pollAll(dueCfIds, cursors, result -> {
+            String cfId = result.getHandle();
+            unfinishedCfIds.remove(cfId);
+
+            if (result.getError() == null) {
+                SubmissionPage page = result.getPage();
+                collectPage(cfId, page, cursors);
+                if (!MODE_FEED.equals(monitorMode)) {
+                    pollSchedule.reschedule(cfId, page.getNewSubmissionCount() > 0, System.currentTimeMillis());
+                }
+            } else if (result.getError() instanceof UserNotFoundException) {
+                log.warn("User not found: {}", cfId, result.getError());
+                retryLater(cfId);
+                // 获取此 Codeforces ID 所在的所有群组
+                List<String> groupList = bindingRegistry.enumerateGroupsByCodeforcesId(cfId);
+                for (String groupId : groupList) {
+                    reportError(groupId, "CodeForces API请求失败：用户 " + cfId + " 不存在！已将其从数据库中移除。");
+                    bindingRegistry.removeGroupUser(groupId, cfId);
+                }
             } else {
-                log.warn("Error sending error message to group " + groupId + ": " + response);
+                // 记录 API 错误到日志，并发送到配置的错误通知群组
+                RuntimeException e = result.getError();
+                log.error("CodeForces API请求失败 (用户: {}): {}", cfId, e.getMessage(), e);
+                retryLater(cfId);
+                reportHandleError(cfId, e.getMessage());
             }
+        });
+        // 拉取被中断时，未完成的用户按原间隔重新排队
+        for (String cfId : unfinishedCfIds) {
+            retryLater(cfId);
+        }
+    }
+
+    private void retryLater(String cfId) {
+        if (MODE_FEED.equals(monitorMode)) {
+            recentStatusFeed.requestResync(List.of(cfId));
+        } else {
+            pollSchedule.retryLater(cfId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 把单个用户的提交页交给去重阶段，并计算需要推进的游标
+     * @param cfId Codeforces ID
+     * @param page 提交页
+     * @param cursors 本轮开始时的提交游标
+     */
+    private void collectPage(String cfId, SubmissionPage page, Map<String, Long> cursors) {
+        Long cursor = cursors.get(cfId.toLowerCase());
+        Long cursorUpdate = null;
+        if (page.getNextCursor() != null && (cursor == null || page.getNextCursor() > cursor)) {
+            cursorUpdate = page.getNextCursor();
+        }
+        try {
+            monitorPipeline.submitPage(cfId, page.getAccepted(), cursorUpdate);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Submission page of {} dropped, monitor interrupted", cfId);
+        }
+    }
+
+    /**
+     * 把单个用户的请求失败交给通知阶段，同一原因的失败会合并为一条摘要发送到错误通知群组
+     * @param cfId Codeforces ID
+     * @param reason 失败原因
+     */
+    private void reportHandleError(String cfId, String reason) {
+        try {
+            monitorPipeline.submitHandleError(errorNotificationGroupId, cfId, reason);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Error message of {} dropped, monitor interrupted", cfId);
+        }
+    }
+
+    /**
+     * 把错误消息交给通知阶段
+     * @param groupId 群组 ID
+     * @param message 错误消息
+     */
+    private void reportError(String groupId, String message) {
+        try {
+            monitorPipeline.submitError(groupId, message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Error message to group {} dropped, monitor interrupted", groupId);
         }
     }
 }
@@ -0,0 +1,326 @@
+package com.kirakira.service;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.client.OverflowClient;
+import com.kirakira.entity.OutboxNotification;
+import com.kirakira.repository.NotificationOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 发送发件箱中的过题通知
+ * <p>
+ * 通知由 {@link SubmissionRecorder} 在写入提交的同一事务中写入 notification_outbox，这里在独立线程上按 id 顺序
+ * 分批读取，同一群组的通知合并发送，超过消息长度上限时按顺序拆成多条消息逐条发送。发送前先把通知标记为发送中
+ * 并写入本次尝试的凭证，发送结束后凭凭证把已送达的消息中的通知标记为已发送，失败的消息及其后的通知不会重复已送达的部分。
+ * 发送失败时该群组的所有待发送通知一起按指数退避推迟，群组内的顺序保持不变；单条通知失败次数达到上限后放弃。
+ * <p>
+ * 进程在写库和发送之间退出时通知仍是待发送，重启后补发。进程在发送和标记之间退出时通知停留在发送中，OneBot 没有
+ * 去重键，无法得知这次发送是否已送达，接手的发送线程把它们恢复为待发送并重新发送：每条通知至少送达一次，
+ * 只有这段中断的通知可能重复送达，并计入 outcome=interrupted。
+ * <p>
+ * 写库阶段写入通知后调用 {@link #wake()} 立即发送，其余时间按 notification.outbox.poll.interval.ms 轮询，
+ * 以便发送其他节点写入的通知和到期的重试。多实例部署时只由 leader 发送。
+ */
+@Component
+public class NotificationOutbox implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(NotificationOutbox.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    // 清理已发送通知的间隔
+    private static final long PURGE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final OverflowClient overflowClient;
+    private final ClusterMembership clusterMembership;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long retryInitialMs;
+    private final long retryMaxMs;
+    private final int maxAttempts;
+    private final long retentionMs;
+
+    private final BlockingQueue<Boolean> wakeups = new ArrayBlockingQueue<>(1);
+    private final ExecutorService executor;
+    private final Timer notificationLag;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter abandoned;
+    private final Counter interrupted;
+    private long lastPurgeAt;
+
+    public NotificationOutbox(NotificationOutboxRepository notificationOutboxRepository,
+                              OverflowClient overflowClient,
+                              ClusterMembership clusterMembership,
+                              MeterRegistry meterRegistry,
+                              @Value("${notification.outbox.batch.size:200}") int batchSize,
+                              @Value("${notification.outbox.poll.interval.ms:2000}") long pollIntervalMs,
+                              @Value("${notification.outbox.retry.initial.ms:5000}") long retryInitialMs,
+                              @Value("${notification.outbox.retry.max.ms:600000}") long retryMaxMs,
+                              @Value("${notification.outbox.max.attempts:12}") int maxAttempts,
+                              @Value("${notification.outbox.retention.hours:72}") long retentionHours) {
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.overflowClient = overflowClient;
+        this.clusterMembership = clusterMembership;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollIntervalMs = pollIntervalMs;
+        this.retryInitialMs = retryInitialMs;
+        this.retryMaxMs = Math.max(retryInitialMs, retryMaxMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retentionMs = TimeUnit.HOURS.toMillis(retentionHours);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("notification-outbox-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newSingleThreadExecutor(threadFactory);
+
+        this.notificationLag = Timer.builder("monitor.notification.lag")
+            .description("从提交创建到通知送达群组的延迟")
+            .publishPercentileHistogram()
+            .maximumExpectedValue(Duration.ofHours(6))
+            .register(meterRegistry);
+        this.sent = deliveryCounter(meterRegistry, "sent");
+        this.retried = deliveryCounter(meterRegistry, "retry");
+        this.abandoned = deliveryCounter(meterRegistry, "abandoned");
+        this.interrupted = deliveryCounter(meterRegistry, "interrupted");
+    }
+
+    private static Counter deliveryCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("notification.outbox.deliveries")
+            .description("发件箱中的通知发送结果，按通知条数计")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // 启动后立即补发上次退出时未发送的通知
+        wake();
+        executor.execute(this::run);
+    }
+
+    /**
+     * 通知发送线程有新的待发送通知
+     */
+    public void wake() {
+        wakeups.offer(Boolean.TRUE);
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                wakeups.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (!clusterMembership.isLeader()) {
+                continue;
+            }
+            try {
+                drain();
+                purgeFinished();
+            } catch (RuntimeException e) {
+                log.error("Failed to drain notification outbox", e);
+            }
+        }
+        log.info("Notification outbox stopped");
+    }
+
+    /**
+     * 分批发送所有到期的通知，直到没有可以发送的通知
+     */
+    void drain() {
+        int requeued = notificationOutboxRepository.requeueInterrupted();
+        if (requeued > 0) {
+            interrupted.increment(requeued);
+            log.warn("Requeued {} notification(s) interrupted while sending, they may be delivered twice", requeued);
+            operationLog.info("MONITOR - {} interrupted notification(s) requeued", requeued);
+        }
+        // 失去 leader 租约后不再读取下一批，避免与新的 leader 同时发送
+        while (!Thread.currentThread().isInterrupted() && clusterMembership.isLeader()) {
+            List<OutboxNotification> due = notificationOutboxRepository.enumerateDue(batchSize);
+            if (due.isEmpty() || dispatch(due) == 0 || due.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按群组发送一批通知，等待本批全部发送完成后再更新发送状态
+     * @param due 到期的通知，按 id 排列
+     * @return 发送成功的通知数
+     */
+    private int dispatch(List<OutboxNotification> due) {
+        Map<String, List<OutboxNotification>> byGroup = new LinkedHashMap<>();
+        for (OutboxNotification notification : due) {
+            byGroup.computeIfAbsent(notification.getGroupId(), k -> new ArrayList<>()).add(notification);
+        }
+
+        // 群组中更早的通知仍在等待重试时，本批的通知不能越过它先发送
+        Map<String, OutboxNotification> heads = notificationOutboxRepository.enumerateGroupHeads(byGroup.keySet());
+        Map<String, CompletableFuture<Integer>> deliveries = new LinkedHashMap<>();
+        Map<String, String> claimTokens = new LinkedHashMap<>();
+        byGroup.forEach((groupId, notifications) -> {
+            OutboxNotification head = heads.get(groupId);
+            if (head != null && head.getId() < notifications.get(0).getId()) {
+                if (!head.isDue()) {
+                    notificationOutboxRepository.deferGroupUntil(groupId, head.getNextAttemptAt());
+                }
+                return;
+            }
+            // 先写入凭证再发送；有通知已不是待发送状态时本轮跳过该群组
+            String claimToken = UUID.randomUUID().toString();
+            List<Long> ids = idsOf(notifications);
+            if (notificationOutboxRepository.claim(ids, claimToken) < ids.size()) {
+                notificationOutboxRepository.release(ids, claimToken);
+                return;
+            }
+            claimTokens.put(groupId, claimToken);
+            deliveries.put(groupId, send(groupId, notifications));
+        });
+
+        int delivered = 0;
+        for (Map.Entry<String, CompletableFuture<Integer>> entry : deliveries.entrySet()) {
+            String groupId = entry.getKey();
+            List<OutboxNotification> notifications = byGroup.get(groupId);
+            // 拆成多条消息时前面的消息可能已经送达，只有其后的通知需要重试
+            int sentCount = entry.getValue().join();
+            if (sentCount > 0) {
+                markSent(groupId, notifications.subList(0, sentCount), claimTokens.get(groupId));
+                delivered += sentCount;
+            }
+            if (sentCount < notifications.size()) {
+                recordFailure(groupId, notifications.subList(sentCount, notifications.size()), claimTokens.get(groupId));
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * 把同一群组的通知合并发送，消息按顺序逐条发送
+     * @return 从第一条起已送达的通知数，发送失败或抛出异常时不含失败及其后的通知
+     */
+    private CompletableFuture<Integer> send(String groupId, List<OutboxNotification> notifications) {
+        List<String> codeforcesIds = new ArrayList<>(notifications.size());
+        List<String> problemInfos = new ArrayList<>(notifications.size());
+        for (OutboxNotification notification : notifications) {
+            codeforcesIds.add(notification.getCodeforcesId());
+            problemInfos.add(notification.getProblemInfo());
+        }
+        try {
+            // 每条通知一行，送达的行数即送达的通知数
+            return overflowClient.sendLinesInOrder(groupId, OverflowClient.formatSubmissionLines(codeforcesIds, problemInfos))
+                .exceptionally(e -> {
+                    log.warn("Error sending message to group {}", groupId, e);
+                    return 0;
+                });
+        } catch (RuntimeException e) {
+            log.warn("Error sending message to group {}", groupId, e);
+            return CompletableFuture.completedFuture(0);
+        }
+    }
+
+    private static List<Long> idsOf(List<OutboxNotification> notifications) {
+        List<Long> ids = new ArrayList<>(notifications.size());
+        for (OutboxNotification notification : notifications) {
+            ids.add(notification.getId());
+        }
+        return ids;
+    }
+
+    private void markSent(String groupId, List<OutboxNotification> notifications, String claimToken) {
+        long nowMs = System.currentTimeMillis();
+        for (OutboxNotification notification : notifications) {
+            if (notification.getSubmissionTime() != null) {
+                long lagMs = nowMs - notification.getSubmissionTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+                notificationLag.record(Duration.ofMillis(Math.max(0, lagMs)));
+            }
+        }
+        notificationOutboxRepository.markSent(idsOf(notifications), claimToken);
+        sent.increment(notifications.size());
+        log.info("Successfully sent message to group " + groupId);
+        operationLog.info("MONITOR - Notifications sent to group: {}, {} submission(s)", groupId, notifications.size());
+    }
+
+    /**
+     * 记录发送失败：失败次数达到上限的通知放弃发送，其余通知连同群组中的后续通知按退避间隔推迟
+     */
+    private void recordFailure(String groupId, List<OutboxNotification> notifications, String claimToken) {
+        List<Long> retryIds = new ArrayList<>();
+        List<Long> abandonIds = new ArrayList<>();
+        int attempts = 0;
+        for (OutboxNotification notification : notifications) {
+            if (notification.getAttempts() + 1 >= maxAttempts) {
+                abandonIds.add(notification.getId());
+            } else {
+                retryIds.add(notification.getId());
+                attempts = Math.max(attempts, notification.getAttempts() + 1);
+            }
+        }
+
+        if (!abandonIds.isEmpty()) {
+            notificationOutboxRepository.markAbandoned(abandonIds, claimToken);
+            abandoned.increment(abandonIds.size());
+            log.error("Gave up {} notification(s) to group {} after {} failed attempts", abandonIds.size(), groupId, maxAttempts);
+            operationLog.info("MONITOR - Notifications to group {} abandoned: {}", groupId, abandonIds);
+        }
+        long delayMs = backoff(attempts);
+        notificationOutboxRepository.recordFailure(groupId, retryIds, claimToken, delayMs);
+        if (!retryIds.isEmpty()) {
+            retried.increment(retryIds.size());
+            log.warn("Failed to send {} notification(s) to group {}, retrying in {} ms", retryIds.size(), groupId, delayMs);
+        }
+    }
+
+    /**
+     * 第 n 次失败后的重试间隔：从 notification.outbox.retry.initial.ms 起逐次翻倍，不超过 notification.outbox.retry.max.ms
+     * @param attempts 已失败的次数
+     */
+    long backoff(int attempts) {
+        long delayMs = retryInitialMs;
+        for (int i = 1; i < attempts && delayMs < retryMaxMs; i++) {
+            delayMs *= 2;
+        }
+        return Math.min(delayMs, retryMaxMs);
+    }
+
+    private void purgeFinished() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurgeAt < PURGE_INTERVAL_MS) {
+            return;
+        }
+        lastPurgeAt = now;
+        int removed = notificationOutboxRepository.purgeFinished(retentionMs);
+        if (removed > 0) {
+            log.info("Removed {} finished notification(s) from outbox", removed);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // 未发送的通知仍在表中，重启后补发
+        executor.shutdownNow();
+    }
+}
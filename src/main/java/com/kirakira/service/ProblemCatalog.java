@@ -0,0 +1,129 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.client.CodeforcesClient;
+import com.kirakira.entity.Problem;
+import com.kirakira.entity.dto.codeforces.CfProblemDto;
+import com.kirakira.repository.ProblemRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 题目信息（难度、名称、标签）的内存目录
+ * <p>
+ * 启动时从 problem 表加载，之后定期从 problemset.problems 拉取整个题库，只把新增或有变化的题目批量写回数据库。
+ * 查询先查内存，未命中时回退到数据库一次，数据库中也没有的题目在下次刷新前不再重复查询。
+ */
+@Component
+public class ProblemCatalog {
+    private static final Logger log = LoggerFactory.getLogger(ProblemCatalog.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    private final ProblemRepository problemRepository;
+    private final CodeforcesClient codeforcesClient;
+
+    // 题目编号 -> 题目
+    private final Map<String, Problem> problems = new ConcurrentHashMap<>();
+    // 数据库中也没有的题目编号
+    private final Set<String> unknown = ConcurrentHashMap.newKeySet();
+
+    public ProblemCatalog(ProblemRepository problemRepository, CodeforcesClient codeforcesClient) {
+        this.problemRepository = problemRepository;
+        this.codeforcesClient = codeforcesClient;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Problem> rows = problemRepository.enumerateAllProblems();
+        for (Problem problem : rows) {
+            problems.put(problem.getProblemId(), problem);
+        }
+        operationLog.info("PROBLEM - Loaded {} problem(s)", problems.size());
+    }
+
+    /**
+     * 从 problemset.problems 刷新题库，只写入新增或有变化的题目
+     * @throws com.kirakira.entity.exception.CodeforcesApiException 当 API 请求失败时
+     * @throws org.springframework.dao.DataAccessException 当数据库写入失败时
+     */
+    public void refresh() {
+        long startTime = System.currentTimeMillis();
+        List<Problem> changed = new ArrayList<>();
+        for (CfProblemDto dto : codeforcesClient.getProblemset()) {
+            if (dto.getContestId() == null || dto.getIndex() == null) {
+                continue;
+            }
+            Problem problem = new Problem();
+            problem.setProblemId(dto.getContestId() + dto.getIndex());
+            problem.setContestId(dto.getContestId().toString());
+            problem.setRating(dto.getRating());
+            problem.setName(dto.getName());
+            problem.setTags(dto.getTags() != null ? dto.getTags() : new ArrayList<>());
+
+            Problem existing = problems.get(problem.getProblemId());
+            if (existing == null || !Objects.equals(existing.getRating(), problem.getRating())
+                    || !Objects.equals(existing.getName(), problem.getName())
+                    || !Objects.equals(existing.getTags(), problem.getTags())) {
+                changed.add(problem);
+            }
+        }
+
+        problemRepository.batchUpsertProblems(changed);
+        for (Problem problem : changed) {
+            problems.put(problem.getProblemId(), problem);
+        }
+        unknown.clear();
+        operationLog.info("PROBLEM - Refreshed catalog: {} new or changed problem(s), {} total, took {} ms",
+                changed.size(), problems.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 查询题目信息
+     * @param problemId 题目编号（如 "1234A"）
+     * @return 题目，未知的题目返回 null
+     */
+    public Problem get(String problemId) {
+        Problem problem = problems.get(problemId);
+        if (problem != null || unknown.contains(problemId)) {
+            return problem;
+        }
+        problem = problemRepository.queryProblemById(problemId);
+        if (problem != null) {
+            problems.put(problemId, problem);
+        } else {
+            log.debug("Problem {} not in catalog", problemId);
+            unknown.add(problemId);
+        }
+        return problem;
+    }
+
+    /**
+     * 查询题目难度
+     * @param problemId 题目编号
+     * @return 难度，未知或未评级时返回 null
+     */
+    public Integer getRating(String problemId) {
+        Problem problem = get(problemId);
+        return problem != null ? problem.getRating() : null;
+    }
+
+    /**
+     * 查询题目标签
+     * @param problemId 题目编号
+     * @return 标签列表，未知时返回空列表
+     */
+    public List<String> getTags(String problemId) {
+        Problem problem = get(problemId);
+        return problem != null && problem.getTags() != null ? problem.getTags() : new ArrayList<>();
+    }
+}
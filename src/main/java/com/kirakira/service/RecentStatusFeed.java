@@ -0,0 +1,148 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.client.CodeforcesClient;
+import com.kirakira.entity.SubmissionPage;
+import com.kirakira.entity.dto.codeforces.CfMemberDto;
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+import com.kirakira.util.SubmissionCursors;
+
+/**
+ * 基于 problemset.recentStatus 的全站提交流
+ * <p>
+ * 每次请求拉取全站最近的提交，用哈希集合筛选出被监控用户的提交，整理成与逐用户拉取相同的 {@link SubmissionPage}。
+ * 全站提交流有自己的游标；如果两次请求之间的提交数超过窗口大小（本次结果中没有不大于游标的提交），
+ * 说明可能有提交被遗漏，此时所有用户被加入重新同步队列，由调用方逐用户拉取补齐。
+ * 处于重新同步队列中的用户不会通过全站提交流推进个人游标，避免越过尚未检查的提交。
+ */
+@Component
+public class RecentStatusFeed {
+    private static final Logger log = LoggerFactory.getLogger(RecentStatusFeed.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    private final CodeforcesClient codeforcesClient;
+    private final int feedCount;
+
+    private Long feedCursor;
+    private final Set<String> resyncHandles = new LinkedHashSet<>();
+
+    public RecentStatusFeed(CodeforcesClient codeforcesClient,
+                            @Value("${codeforces.feed.count:1000}") int feedCount) {
+        this.codeforcesClient = codeforcesClient;
+        this.feedCount = feedCount;
+    }
+
+    /**
+     * 拉取全站最近提交并按用户分组
+     * @param trackedHandles 被监控的全部 Codeforces ID（小写）
+     * @param cursors 用户的提交游标；没有游标的用户不会被全站提交流推进游标
+     * @return 有新提交的被监控用户 -> 提交页
+     * @throws com.kirakira.entity.exception.CodeforcesApiException 当 API 请求失败时
+     */
+    public synchronized Map<String, SubmissionPage> poll(Set<String> trackedHandles, Map<String, Long> cursors) {
+        List<CfSubmissionDto> feed = codeforcesClient.getRecentStatus(feedCount);
+
+        boolean continuous = feedCursor != null && feed.size() < feedCount;
+        Map<String, List<CfSubmissionDto>> freshByHandle = new HashMap<>();
+        List<CfSubmissionDto> freshTracked = new ArrayList<>();
+        for (CfSubmissionDto submission : feed) {
+            long id = Long.parseLong(submission.getId());
+            if (feedCursor != null && id <= feedCursor) {
+                continuous = true;
+                continue;
+            }
+            if (submission.getAuthor() == null || submission.getAuthor().getMembers() == null) {
+                continue;
+            }
+            boolean tracked = false;
+            for (CfMemberDto member : submission.getAuthor().getMembers()) {
+                String handle = member.getHandle() != null ? member.getHandle().toLowerCase() : null;
+                if (handle != null && trackedHandles.contains(handle)) {
+                    freshByHandle.computeIfAbsent(handle, k -> new ArrayList<>()).add(submission);
+                    tracked = true;
+                }
+            }
+            if (tracked) {
+                freshTracked.add(submission);
+            }
+        }
+
+        if (!continuous) {
+            resyncHandles.addAll(trackedHandles);
+            log.warn("Recent status window overflowed (cursor {}), {} handle(s) queued for resync", feedCursor, resyncHandles.size());
+            operationLog.info("FEED - Window overflowed, {} handle(s) queued for per-handle resync", resyncHandles.size());
+        }
+        // 全站游标同样不能越过被监控用户仍在评测中的提交
+        long maxFeedId = feed.isEmpty() ? (feedCursor != null ? feedCursor : 0L) : Long.parseLong(feed.get(0).getId());
+        feedCursor = SubmissionCursors.nextShared(maxFeedId, freshTracked, feedCursor);
+
+        Map<String, SubmissionPage> pages = new HashMap<>();
+        freshByHandle.forEach((handle, fresh) -> {
+            Long cursor = cursors.get(handle);
+            List<CfSubmissionDto> newer = new ArrayList<>();
+            List<CfSubmissionDto> accepted = new ArrayList<>();
+            for (CfSubmissionDto submission : fresh) {
+                if (cursor == null || Long.parseLong(submission.getId()) > cursor) {
+                    newer.add(submission);
+                    if ("OK".equals(submission.getVerdict())) {
+                        accepted.add(submission);
+                    }
+                }
+            }
+            boolean canAdvance = cursor != null && !resyncHandles.contains(handle);
+            pages.put(handle, SubmissionPage.builder()
+                    .handle(handle)
+                    .accepted(accepted)
+                    .newSubmissionCount(newer.size())
+                    .nextCursor(canAdvance ? SubmissionCursors.next(newer, cursor) : null)
+                    .build());
+        });
+        return pages;
+    }
+
+    /**
+     * 将用户加入重新同步队列，例如新绑定尚无游标的用户
+     * @param handles Codeforces ID
+     */
+    public synchronized void requestResync(Collection<String> handles) {
+        resyncHandles.addAll(handles);
+    }
+
+    /**
+     * 取出一批需要逐用户拉取的重新同步用户，拉取失败的用户应通过 {@link #requestResync} 放回
+     * @param trackedHandles 当前被监控的全部 Codeforces ID，已不再监控的用户会被丢弃
+     * @param limit 最多取出的用户数
+     * @return Codeforces ID 列表
+     */
+    public synchronized List<String> takeResyncBatch(Collection<String> trackedHandles, int limit) {
+        resyncHandles.retainAll(new LinkedHashSet<>(trackedHandles));
+        List<String> batch = new ArrayList<>();
+        Iterator<String> iterator = resyncHandles.iterator();
+        while (batch.size() < limit && iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    /**
+     * 获取等待重新同步的用户数
+     * @return 用户数
+     */
+    public synchronized int getResyncBacklog() {
+        return resyncHandles.size();
+    }
+}
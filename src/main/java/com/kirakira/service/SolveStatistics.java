@@ -0,0 +1,188 @@
+package com.kirakira.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kirakira.entity.SolveStats;
+import com.kirakira.entity.Submission;
+import com.kirakira.repository.SolveStatsRepository;
+import com.kirakira.repository.SubmissionRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 按日、周、月汇总的过题统计
+ * <p>
+ * {@link SubmissionRecorder} 在写入新提交的同一事务中调用 {@link #record(List)} 累加统计，
+ * 排行榜只读取群内用户在当前时间段的统计行，不扫描 submission 表。
+ * 时间段按 rank.time.zone 划分，周从周一开始。数据库中记录了现有统计所用的时区（V4 回填时为 Asia/Shanghai），
+ * 启动时与配置不同则按配置的时区由 submission 表重建全部统计。
+ */
+@Component
+public class SolveStatistics {
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    // 重建统计时每累计多少条提交写入一次
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    private final SolveStatsRepository solveStatsRepository;
+    private final SubmissionRepository submissionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zoneId;
+
+    /**
+     * 统计的时间段
+     */
+    public enum Period {
+        DAY("day", "今日"),
+        WEEK("week", "本周"),
+        MONTH("month", "本月");
+
+        private final String bucketType;
+        private final String displayName;
+
+        Period(String bucketType, String displayName) {
+            this.bucketType = bucketType;
+            this.displayName = displayName;
+        }
+
+        public String getBucketType() {
+            return bucketType;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * 某天所在时间段的第一天
+         */
+        public LocalDate bucketStart(LocalDate date) {
+            switch (this) {
+                case WEEK:
+                    return date.with(DayOfWeek.MONDAY);
+                case MONTH:
+                    return date.withDayOfMonth(1);
+                default:
+                    return date;
+            }
+        }
+
+        /**
+         * 按名称查找时间段，不区分大小写
+         * @return 时间段，名称无效时返回 null
+         */
+        public static Period parse(String name) {
+            for (Period period : values()) {
+                if (period.bucketType.equalsIgnoreCase(name)) {
+                    return period;
+                }
+            }
+            return null;
+        }
+    }
+
+    public SolveStatistics(SolveStatsRepository solveStatsRepository,
+                           SubmissionRepository submissionRepository,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${rank.time.zone:Asia/Shanghai}") String timeZone) {
+        this.solveStatsRepository = solveStatsRepository;
+        this.submissionRepository = submissionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.zoneId = ZoneId.of(timeZone);
+    }
+
+    /**
+     * 现有统计所用的时区与 rank.time.zone 不同时，在一个事务中按配置的时区重建全部统计
+     * <p>
+     * 时区记录行在事务中保持锁定，多个节点同时启动时只有一个节点重建，其余节点等待后看到已更新的时区。
+     * 重建期间写入新提交的事务会等待，提交后在重建的结果上继续累加。
+     */
+    @PostConstruct
+    public void reconcileZone() {
+        transactionTemplate.executeWithoutResult(status -> {
+            String storedZone = solveStatsRepository.lockBucketZone();
+            if (zoneId.getId().equals(storedZone)) {
+                return;
+            }
+            operationLog.info("STATS - Rebuilding solve stats: bucket zone changed from {} to {}", storedZone, zoneId.getId());
+            int removed = solveStatsRepository.deleteAll();
+            List<Submission> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+            int[] replayed = new int[1];
+            submissionRepository.forEachSolvedSubmission(submission -> {
+                batch.add(submission);
+                if (batch.size() >= REBUILD_BATCH_SIZE) {
+                    replayed[0] += batch.size();
+                    record(batch);
+                    batch.clear();
+                }
+            });
+            replayed[0] += batch.size();
+            record(batch);
+            solveStatsRepository.updateBucketZone(zoneId.getId());
+            operationLog.info("STATS - Rebuilt solve stats in zone {}: {} row(s) removed, {} submission(s) replayed",
+                    zoneId.getId(), removed, replayed[0]);
+        });
+    }
+
+    /**
+     * 累加新写入的提交，需要在写入提交的事务中调用
+     * @param submissions 实际插入的提交，提交时间为 UTC
+     */
+    public void record(List<Submission> submissions) {
+        solveStatsRepository.batchIncrement(aggregate(submissions));
+    }
+
+    /**
+     * 查询群内用户在当前时间段的过题排行
+     * @param groupId 群组 ID
+     * @param period 时间段
+     * @param limit 最多返回的用户数
+     * @return 按过题数、难度之和从高到低排列的统计
+     */
+    public List<SolveStats> queryLeaderboard(String groupId, Period period, int limit) {
+        LocalDate today = LocalDate.now(zoneId);
+        return solveStatsRepository.queryGroupLeaderboard(groupId, period.getBucketType(), period.bucketStart(today), limit);
+    }
+
+    /**
+     * 把提交按用户和时间段合并为增量，同一批中的多条提交只产生一行
+     */
+    List<SolveStats> aggregate(List<Submission> submissions) {
+        Map<String, SolveStats> increments = new LinkedHashMap<>();
+        for (Submission submission : submissions) {
+            if (submission.getSubmissionTime() == null || submission.getCodeforcesId() == null) {
+                continue;
+            }
+            LocalDate date = submission.getSubmissionTime().atOffset(ZoneOffset.UTC).atZoneSameInstant(zoneId).toLocalDate();
+            int rating = submission.getRating() != null ? submission.getRating() : 0;
+            for (Period period : Period.values()) {
+                LocalDate bucketStart = period.bucketStart(date);
+                String codeforcesId = submission.getCodeforcesId().toLowerCase();
+                SolveStats increment = increments.computeIfAbsent(period.getBucketType() + "/" + bucketStart + "/" + codeforcesId, k -> {
+                    SolveStats stats = new SolveStats();
+                    stats.setBucketType(period.getBucketType());
+                    stats.setBucketStart(bucketStart);
+                    stats.setCodeforcesId(codeforcesId);
+                    return stats;
+                });
+                increment.setSolveCount(increment.getSolveCount() + 1);
+                increment.setRatingSum(increment.getRatingSum() + rating);
+                increment.setMaxRating(Math.max(increment.getMaxRating(), rating));
+            }
+        }
+        return new ArrayList<>(increments.values());
+    }
+}
@@ -0,0 +1,188 @@
+package com.kirakira.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.entity.Submission;
+import com.kirakira.repository.SubmissionRepository;
+import com.kirakira.util.LongHashSet;
+import com.kirakira.util.ProblemKey;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 用户已通过题目的内存索引
+ * <p>
+ * 启动时从 submission 表加载，之后由 {@link SubmissionRecorder} 在提交写入数据库后同步更新，
+ * 监控循环中的去重判断只需查内存。题目编号以 {@link ProblemKey} 编码为 long 保存，
+ * 无法编码的少数题目回退到数据库查询。
+ * <p>
+ * 索引的估算内存占用以 monitor.solved.index.* 指标暴露；为避免按用户名产生大量时间序列，
+ * 每个用户的占用只报告平均值和最大值，单个用户的明细见 {@link #getMemoryUsageByHandle()}。
+ */
+@Component
+public class SolvedProblemIndex {
+    private static final Logger log = LoggerFactory.getLogger(SolvedProblemIndex.class);
+    private static final Logger operationLog = LoggerFactory.getLogger("com.kirakira.operation");
+
+    private final SubmissionRepository submissionRepository;
+    private final Map<String, LongHashSet> solvedByHandle = new ConcurrentHashMap<>();
+
+    public SolvedProblemIndex(SubmissionRepository submissionRepository, MeterRegistry meterRegistry) {
+        this.submissionRepository = submissionRepository;
+
+        Gauge.builder("monitor.solved.index.handles", solvedByHandle, Map::size)
+            .description("已通过题目索引中的用户数")
+            .register(meterRegistry);
+        Gauge.builder("monitor.solved.index.bytes", this, SolvedProblemIndex::getTotalMemoryUsage)
+            .description("已通过题目索引的估算内存占用")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("monitor.solved.index.handle.bytes.mean", this, SolvedProblemIndex::getMeanMemoryUsage)
+            .description("已通过题目索引中每个用户的平均估算内存占用")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("monitor.solved.index.handle.bytes.max", this, SolvedProblemIndex::getMaxMemoryUsage)
+            .description("已通过题目索引中单个用户的最大估算内存占用")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        long startTime = System.currentTimeMillis();
+        int[] counts = new int[2];
+        submissionRepository.forEachFinishedProblem((codeforcesId, problemId) -> {
+            long key = ProblemKey.encode(problemId);
+            if (codeforcesId == null || key == ProblemKey.INVALID) {
+                counts[1]++;
+                return;
+            }
+            setOf(codeforcesId).add(key);
+            counts[0]++;
+        });
+
+        operationLog.info("SOLVED - Loaded {} solved problem(s) for {} handle(s), {} not indexable, ~{} KB, took {} ms",
+                counts[0], solvedByHandle.size(), counts[1], getTotalMemoryUsage() / 1024,
+                System.currentTimeMillis() - startTime);
+        if (log.isDebugEnabled()) {
+            solvedByHandle.forEach((codeforcesId, solved) ->
+                    log.debug("Solved index of {}: {} problem(s), ~{} bytes", codeforcesId, solved.size(), solved.estimatedBytes()));
+        }
+    }
+
+    /**
+     * 从数据库重新加载指定用户的已通过题目
+     * <p>
+     * 多实例部署时，用户改由本节点负责之前可能由其他节点写入了新的提交，接管时需要先同步这些用户的索引。
+     * @param codeforcesIds Codeforces ID 列表
+     */
+    public void reload(List<String> codeforcesIds) {
+        if (codeforcesIds.isEmpty()) {
+            return;
+        }
+        Map<String, LongHashSet> reloaded = new HashMap<>();
+        for (String codeforcesId : codeforcesIds) {
+            reloaded.put(codeforcesId.toLowerCase(), new LongHashSet());
+        }
+        submissionRepository.forEachFinishedProblem(codeforcesIds, (codeforcesId, problemId) -> {
+            long key = ProblemKey.encode(problemId);
+            LongHashSet solved = reloaded.get(codeforcesId);
+            if (key != ProblemKey.INVALID && solved != null) {
+                solved.add(key);
+            }
+        });
+        solvedByHandle.putAll(reloaded);
+        log.debug("Reloaded solved index of {} handle(s)", reloaded.size());
+    }
+
+    /**
+     * 检查用户是否已完成该题目
+     * @param codeforcesId Codeforces ID
+     * @param contestId 比赛 ID
+     * @param index 题号
+     * @return 如果已完成返回 true，否则返回 false
+     */
+    public boolean isSolved(String codeforcesId, Integer contestId, String index) {
+        long key = ProblemKey.encode(contestId, index);
+        if (key == ProblemKey.INVALID) {
+            return submissionRepository.checkIfUserFinishedProblem(contestId + index, codeforcesId);
+        }
+        LongHashSet solved = solvedByHandle.get(codeforcesId.toLowerCase());
+        if (solved == null) {
+            return false;
+        }
+        synchronized (solved) {
+            return solved.contains(key);
+        }
+    }
+
+    /**
+     * 将已写入数据库的提交加入索引
+     * @param submissions 已持久化的提交记录
+     */
+    public void markSolved(Collection<Submission> submissions) {
+        for (Submission submission : submissions) {
+            long key = ProblemKey.encode(submission.getProblemId());
+            if (key == ProblemKey.INVALID) {
+                continue;
+            }
+            LongHashSet solved = setOf(submission.getCodeforcesId());
+            synchronized (solved) {
+                solved.add(key);
+            }
+        }
+    }
+
+    /**
+     * 获取每个用户的索引内存占用
+     * @return Codeforces ID -> 估算字节数
+     */
+    public Map<String, Long> getMemoryUsageByHandle() {
+        Map<String, Long> usage = new HashMap<>();
+        solvedByHandle.forEach((codeforcesId, solved) -> {
+            synchronized (solved) {
+                usage.put(codeforcesId, solved.estimatedBytes());
+            }
+        });
+        return usage;
+    }
+
+    /**
+     * 获取索引总内存占用
+     * @return 估算字节数
+     */
+    public long getTotalMemoryUsage() {
+        return getMemoryUsageByHandle().values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * 获取每个用户的平均索引内存占用
+     * @return 估算字节数，索引为空时为 0
+     */
+    public double getMeanMemoryUsage() {
+        Map<String, Long> usage = getMemoryUsageByHandle();
+        return usage.isEmpty() ? 0 : (double) usage.values().stream().mapToLong(Long::longValue).sum() / usage.size();
+    }
+
+    /**
+     * 获取单个用户的最大索引内存占用
+     * @return 估算字节数，索引为空时为 0
+     */
+    public long getMaxMemoryUsage() {
+        return getMemoryUsageByHandle().values().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    private LongHashSet setOf(String codeforcesId) {
+        return solvedByHandle.computeIfAbsent(codeforcesId.toLowerCase(), k -> new LongHashSet());
+    }
+}
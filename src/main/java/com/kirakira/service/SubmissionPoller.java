@@ -0,0 +1,112 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.kirakira.client.CodeforcesClient;
+import com.kirakira.entity.SubmissionPage;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 并发拉取多个 Codeforces 用户的提交记录
+ * <p>
+ * 请求在固定大小的线程池中并发执行，实际发往 Codeforces 的速率由 {@link com.kirakira.client.CodeforcesRateLimiter}
+ * 统一控制。单个用户的失败只记录在对应的 {@link PollResult} 中，不影响其他用户。
+ */
+@Component
+public class SubmissionPoller implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(SubmissionPoller.class);
+
+    private final CodeforcesClient codeforcesClient;
+    private final ExecutorService executor;
+
+    public SubmissionPoller(CodeforcesClient codeforcesClient,
+                            @Value("${monitor.poll.concurrency:4}") int concurrency) {
+        this.codeforcesClient = codeforcesClient;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cf-poller-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), threadFactory);
+    }
+
+    /**
+     * 并发拉取所有用户在游标之后的提交，并按完成顺序在调用线程上依次回调
+     * @param handles Codeforces ID 列表
+     * @param cursors Codeforces ID（小写）-> 提交游标，没有记录的用户视为首次轮询
+     * @param consumer 结果回调，始终在调用线程上执行
+     */
+    public void pollAll(List<String> handles, Map<String, Long> cursors, Consumer<PollResult> consumer) {
+        CompletionService<PollResult> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<PollResult>> futures = new ArrayList<>(handles.size());
+        for (String handle : handles) {
+            Long cursor = cursors.get(handle.toLowerCase());
+            futures.add(completionService.submit(() -> poll(handle, cursor)));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                consumer.accept(completionService.take().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Polling interrupted, cancelling remaining requests");
+        } catch (ExecutionException e) {
+            // poll() 已捕获所有异常，正常情况下不会到达这里
+            log.error("Unexpected polling failure", e.getCause());
+        } finally {
+            for (Future<PollResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private PollResult poll(String handle, Long cursor) {
+        try {
+            SubmissionPage page = codeforcesClient.getSubmissionsAfter(handle, cursor);
+            return PollResult.success(handle, page);
+        } catch (RuntimeException e) {
+            return PollResult.failure(handle, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 单个用户的拉取结果，成功时 error 为 null，失败时 page 为 null
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class PollResult {
+        private final String handle;
+        private final SubmissionPage page;
+        private final RuntimeException error;
+
+        static PollResult success(String handle, SubmissionPage page) {
+            return new PollResult(handle, page, null);
+        }
+
+        static PollResult failure(String handle, RuntimeException error) {
+            return new PollResult(handle, null, error);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.kirakira.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kirakira.entity.OutboxNotification;
+import com.kirakira.entity.Submission;
+import com.kirakira.repository.NotificationOutboxRepository;
+import com.kirakira.repository.PollCursorRepository;
+import com.kirakira.repository.SubmissionRepository;
+
+/**
+ * 在一个事务中批量写入一轮监控发现的新提交和对应的提交游标
+ * <p>
+ * submission_id 上有唯一键，重复的提交会被忽略，因此监控周期重叠时也不会产生重复记录或重复通知。
+ * 实际插入的提交在同一事务中累加到 {@link SolveStatistics}，并写入发件箱等待 {@link NotificationOutbox} 发送，
+ * 重复的提交不会被重复计数或通知。事务提交后再更新 {@link SolvedProblemIndex}，事务失败时索引、统计、通知和游标
+ * 都保持不变，下一轮会重新处理。
+ */
+@Service
+public class SubmissionRecorder {
+    private final SubmissionRepository submissionRepository;
+    private final PollCursorRepository pollCursorRepository;
+    private final SolvedProblemIndex solvedProblemIndex;
+    private final SolveStatistics solveStatistics;
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public SubmissionRecorder(SubmissionRepository submissionRepository,
+                              PollCursorRepository pollCursorRepository,
+                              SolvedProblemIndex solvedProblemIndex,
+                              SolveStatistics solveStatistics,
+                              NotificationOutboxRepository notificationOutboxRepository,
+                              TransactionTemplate transactionTemplate) {
+        this.submissionRepository = submissionRepository;
+        this.pollCursorRepository = pollCursorRepository;
+        this.solvedProblemIndex = solvedProblemIndex;
+        this.solveStatistics = solveStatistics;
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 批量写入提交记录、对应的通知并推进提交游标
+     * @param submissions 新通过的提交
+     * @param cursorUpdates Codeforces ID -> 新的提交游标
+     * @param notifications 这些提交在各群组的通知，只有实际插入的提交对应的通知会写入发件箱
+     * @return 实际插入的提交记录
+     * @throws org.springframework.dao.DataAccessException 当数据库写入失败时，整个事务回滚
+     */
+    public List<Submission> persist(List<Submission> submissions, Map<String, Long> cursorUpdates,
+                                    List<OutboxNotification> notifications) {
+        if (submissions.isEmpty() && cursorUpdates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Submission> inserted = transactionTemplate.execute(status -> {
+            List<Submission> rows = submissionRepository.batchInsertSubmissions(submissions);
+            solveStatistics.record(rows);
+            notificationOutboxRepository.batchEnqueue(notificationsOf(rows, notifications));
+            pollCursorRepository.batchUpdateCursors(cursorUpdates);
+            return rows;
+        });
+        solvedProblemIndex.markSolved(inserted);
+        return inserted;
+    }
+
+    /**
+     * 筛选实际插入的提交对应的通知，顺序不变
+     */
+    private static List<OutboxNotification> notificationsOf(List<Submission> inserted, List<OutboxNotification> notifications) {
+        Set<String> insertedIds = new HashSet<>();
+        for (Submission submission : inserted) {
+            insertedIds.add(submission.getSubmissionId());
+        }
+        List<OutboxNotification> result = new ArrayList<>();
+        for (OutboxNotification notification : notifications) {
+            if (insertedIds.contains(notification.getSubmissionId())) {
+                result.add(notification);
+            }
+        }
+        return result;
+    }
+}
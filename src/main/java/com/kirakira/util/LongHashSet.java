@@ -0,0 +1,135 @@
+package com.kirakira.util;
+
+/**
+ * 基于开放寻址（线性探测）的 long 集合，元素不装箱
+ * <p>
+ * 只支持正数元素，0 被用作空槽标记。非线程安全，由调用方负责同步。
+ */
+public class LongHashSet {
+    private static final int MIN_CAPACITY = 8;
+    private static final long ARRAY_HEADER_BYTES = 16;
+    private static final long OBJECT_BYTES = 24;
+
+    private long[] slots;
+    private int size;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        this.slots = new long[capacity];
+    }
+
+    /**
+     * 添加元素
+     * @param key 正数元素
+     * @return 如果元素原本不存在返回 true，否则返回 false
+     */
+    public boolean add(long key) {
+        checkKey(key);
+        int mask = slots.length - 1;
+        int i = mix(key) & mask;
+        while (slots[i] != 0) {
+            if (slots[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = key;
+        if (++size > slots.length * 3 / 4) {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key <= 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int i = mix(key) & mask;
+        while (slots[i] != 0) {
+            if (slots[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 删除元素，删除后将后续探测链上的元素前移以保持查找正确
+     * @return 如果元素存在并被删除返回 true，否则返回 false
+     */
+    public boolean remove(long key) {
+        if (key <= 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int i = mix(key) & mask;
+        while (slots[i] != key) {
+            if (slots[i] == 0) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (slots[j] != 0) {
+            int home = mix(slots[j]) & mask;
+            // home 不在 (gap, j] 区间内时，元素可以移动到空位
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots[gap] = slots[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        slots[gap] = 0;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 估算集合占用的堆内存
+     * @return 字节数
+     */
+    public long estimatedBytes() {
+        return OBJECT_BYTES + ARRAY_HEADER_BYTES + (long) slots.length * Long.BYTES;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = slots;
+        slots = new long[newCapacity];
+        int mask = newCapacity - 1;
+        for (long key : old) {
+            if (key != 0) {
+                int i = mix(key) & mask;
+                while (slots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = key;
+            }
+        }
+    }
+
+    private static void checkKey(long key) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("LongHashSet only supports positive keys: " + key);
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,96 @@
+package com.kirakira.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按消息长度上限拆分多行文本
+ * <p>
+ * 尽量把多行合并到同一条消息中，只在超过长度上限时才在行边界处拆分；单行本身超过上限时按长度硬拆，
+ * 硬拆的位置不会落在代理对中间，以免拆坏 emoji 等补充平面字符。
+ */
+public final class MessageChunks {
+    private MessageChunks() {
+    }
+
+    /**
+     * 将多行文本合并为尽量少的消息
+     * @param lines 文本行，不含换行符
+     * @param maxLength 单条消息的最大字符数
+     * @return 每条消息的内容，行之间以换行符分隔
+     */
+    public static List<String> split(List<String> lines, int maxLength) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : lines) {
+            // 超长的单行按长度拆分
+            while (line.length() > maxLength) {
+                flush(current, chunks);
+                int end = cutPoint(line, maxLength);
+                chunks.add(line.substring(0, end));
+                line = line.substring(end);
+            }
+            int needed = current.length() == 0 ? line.length() : current.length() + 1 + line.length();
+            if (needed > maxLength) {
+                flush(current, chunks);
+            }
+            if (current.length() > 0) {
+                current.append('\n');
+            }
+            current.append(line);
+        }
+        flush(current, chunks);
+        return chunks;
+    }
+
+    /**
+     * 按与 {@link #split} 相同的规则把多行文本分组，每组的行合并后是一条消息
+     * <p>
+     * 单行本身超过上限时单独成组，发送时还要再用 {@link #split} 硬拆成多条消息。
+     * @param lines 文本行，不含换行符
+     * @param maxLength 单条消息的最大字符数
+     * @return 每条消息包含的行，按原顺序排列
+     */
+    public static List<List<String>> group(List<String> lines, int maxLength) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentLength = 0;
+        for (String line : lines) {
+            int needed = current.isEmpty() ? line.length() : currentLength + 1 + line.length();
+            if (needed > maxLength && !current.isEmpty()) {
+                groups.add(current);
+                current = new ArrayList<>();
+                needed = line.length();
+            }
+            current.add(line);
+            currentLength = needed;
+            if (line.length() > maxLength) {
+                groups.add(current);
+                current = new ArrayList<>();
+                currentLength = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            groups.add(current);
+        }
+        return groups;
+    }
+
+    /**
+     * 硬拆的位置：拆分点落在代理对中间时退回到代理对之前
+     */
+    private static int cutPoint(String line, int maxLength) {
+        if (maxLength > 1 && Character.isHighSurrogate(line.charAt(maxLength - 1))
+                && Character.isLowSurrogate(line.charAt(maxLength))) {
+            return maxLength - 1;
+        }
+        return maxLength;
+    }
+
+    private static void flush(StringBuilder current, List<String> chunks) {
+        if (current.length() > 0) {
+            chunks.add(current.toString());
+            current.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.kirakira.util;
+
+/**
+ * 将 Codeforces 题目编号（比赛 ID + 题号，如 "1234A"、"1850F2"）编码为正 long
+ * <p>
+ * 高位保存比赛 ID，低 35 位按 7 位 ASCII 保存最多 5 个题号字符。
+ * 无法编码的题目（缺少比赛 ID、题号过长或含非 ASCII 字符）返回 {@link #INVALID}。
+ */
+public final class ProblemKey {
+    public static final long INVALID = -1L;
+
+    private static final int INDEX_CHARS = 5;
+    private static final int INDEX_BITS = INDEX_CHARS * 7;
+    private static final long MAX_CONTEST_ID = (1L << (63 - INDEX_BITS)) - 1;
+
+    private ProblemKey() {
+    }
+
+    public static long encode(Integer contestId, String index) {
+        if (contestId == null || contestId <= 0 || contestId > MAX_CONTEST_ID
+                || index == null || index.isEmpty() || index.length() > INDEX_CHARS) {
+            return INVALID;
+        }
+        long packed = 0;
+        for (int i = 0; i < index.length(); i++) {
+            char c = index.charAt(i);
+            if (c == 0 || c > 0x7F) {
+                return INVALID;
+            }
+            packed = (packed << 7) | c;
+        }
+        return ((long) contestId << INDEX_BITS) | packed;
+    }
+
+    /**
+     * 编码数据库中保存的题目编号
+     * @param problemId 比赛 ID 与题号拼接的字符串，如 "1234A"
+     * @return 编码结果，无法编码时返回 {@link #INVALID}
+     */
+    public static long encode(String problemId) {
+        if (problemId == null) {
+            return INVALID;
+        }
+        int split = 0;
+        while (split < problemId.length() && Character.isDigit(problemId.charAt(split))) {
+            split++;
+        }
+        if (split == 0 || split > 9) {
+            return INVALID;
+        }
+        return encode(Integer.parseInt(problemId.substring(0, split)), problemId.substring(split));
+    }
+
+    /**
+     * 解码为题目编号字符串
+     * @param key 编码结果
+     * @return 题目编号，如 "1234A"
+     */
+    public static String decode(long key) {
+        long contestId = key >>> INDEX_BITS;
+        long packed = key & ((1L << INDEX_BITS) - 1);
+        StringBuilder index = new StringBuilder(INDEX_CHARS);
+        while (packed != 0) {
+            index.append((char) (packed & 0x7F));
+            packed >>>= 7;
+        }
+        return contestId + index.reverse().toString();
+    }
+}
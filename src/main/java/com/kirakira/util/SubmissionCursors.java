@@ -0,0 +1,66 @@
+package com.kirakira.util;
+
+import java.util.List;
+
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+
+/**
+ * 提交游标的计算规则
+ * <p>
+ * 游标表示“ID 不大于它的提交都已处理”。正在评测的提交稍后可能变为通过，因此游标不能越过它们。
+ */
+public final class SubmissionCursors {
+    private SubmissionCursors() {
+    }
+
+    /**
+     * 计算处理完一批新提交后的游标
+     * @param fresh 比原游标新的提交
+     * @param cursor 原游标，可能为 null
+     * @return 正在评测的提交之前的位置，或者所有新提交中最大的 ID
+     */
+    public static long next(List<CfSubmissionDto> fresh, Long cursor) {
+        long base = cursor != null ? cursor : 0L;
+        long maxId = base;
+        long minPendingId = Long.MAX_VALUE;
+        for (CfSubmissionDto submission : fresh) {
+            long id = Long.parseLong(submission.getId());
+            maxId = Math.max(maxId, id);
+            if (isPending(submission)) {
+                minPendingId = Math.min(minPendingId, id);
+            }
+        }
+        if (minPendingId != Long.MAX_VALUE) {
+            return Math.max(base, minPendingId - 1);
+        }
+        return maxId;
+    }
+
+    /**
+     * 计算全站或整场比赛提交流的游标
+     * <p>
+     * 提交流中大部分提交与被监控用户无关，游标可以直接推进到最大 ID；
+     * 只有被监控用户仍在评测中的提交需要在下一次请求时重新检查。
+     * @param maxSeenId 本次结果中最大的提交 ID
+     * @param trackedFresh 本次结果中属于被监控用户、且比原游标新的提交
+     * @param cursor 原游标，可能为 null
+     * @return 新游标
+     */
+    public static long nextShared(long maxSeenId, List<CfSubmissionDto> trackedFresh, Long cursor) {
+        long trackedCursor = next(trackedFresh, cursor);
+        if (trackedFresh.stream().anyMatch(SubmissionCursors::isPending)) {
+            return trackedCursor;
+        }
+        return Math.max(maxSeenId, trackedCursor);
+    }
+
+    /**
+     * 检查提交是否仍在评测中
+     * @param submission 提交
+     * @return 如果尚未得到最终结果返回 true
+     */
+    public static boolean isPending(CfSubmissionDto submission) {
+        String verdict = submission.getVerdict();
+        return verdict == null || "TESTING".equals(verdict) || "SUBMITTED".equals(verdict);
+    }
+}
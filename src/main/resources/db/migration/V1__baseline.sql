@@ -1,9 +1,8 @@
-DROP TABLE IF EXISTS group_user;
-DROP TABLE IF EXISTS submission;
-DROP TABLE IF EXISTS problem;
+-- 初始表结构（与原 src/sql/create.sql 一致，补上应用写入的 submission_time 列）
+-- 已有数据的库以此版本为基线，不会执行本脚本
 
 -- 群对应用户表
-CREATE TABLE group_user (
+CREATE TABLE IF NOT EXISTS group_user (
     id INT PRIMARY KEY AUTO_INCREMENT,
     group_id VARCHAR(50),
     user_qq_id VARCHAR(50),
@@ -11,17 +10,18 @@ CREATE TABLE group_user (
 );
 
 -- 用户过题表
-CREATE TABLE submission (
+CREATE TABLE IF NOT EXISTS submission (
     id INT PRIMARY KEY AUTO_INCREMENT,
     codeforces_id VARCHAR(50),
     problem_id VARCHAR(20),
-    submission_id VARCHAR(20)
+    submission_id VARCHAR(20),
+    submission_time DATETIME
 );
 
 -- 题目表
-CREATE TABLE problem (
+CREATE TABLE IF NOT EXISTS problem (
     id INT PRIMARY KEY AUTO_INCREMENT,
     problem_id VARCHAR(20) UNIQUE,
     contest_id VARCHAR(20),
     rating INT
-);
\ No newline at end of file
+);
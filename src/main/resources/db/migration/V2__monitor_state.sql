@@ -0,0 +1,44 @@
+-- 监控状态相关的表和列
+-- 旧库可能已按后来的 create.sql 手动建过其中一部分，因此每一步都先检查是否已存在
+
+-- 用户提交游标表（记录每个用户已处理的最大提交 ID）
+CREATE TABLE IF NOT EXISTS poll_cursor (
+    codeforces_id VARCHAR(50) PRIMARY KEY,
+    last_submission_id BIGINT NOT NULL
+);
+
+-- 提交时间
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'submission' AND COLUMN_NAME = 'submission_time') = 0,
+              'ALTER TABLE submission ADD COLUMN submission_time DATETIME',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 题目名称
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'problem' AND COLUMN_NAME = 'name') = 0,
+              'ALTER TABLE problem ADD COLUMN name VARCHAR(255)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 题目标签（逗号分隔）
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'problem' AND COLUMN_NAME = 'tags') = 0,
+              'ALTER TABLE problem ADD COLUMN tags VARCHAR(512)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 旧版 create.sql 在 submission_id 上建过一个自动命名的唯一索引，统一由 V3 中的 uk_submission_id 取代
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'submission' AND INDEX_NAME = 'submission_id') > 0,
+              'ALTER TABLE submission DROP INDEX submission_id',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,33 @@
+-- 小写用户名列与热点查询索引
+-- 用户名一律按小写比较：codeforces_id_lower 由数据库根据 codeforces_id 生成，
+-- 查询条件直接使用该列即可走索引，不再依赖列排序规则或 LOWER(...)
+
+ALTER TABLE group_user
+    ADD COLUMN codeforces_id_lower VARCHAR(50) AS (LOWER(codeforces_id)) STORED;
+
+ALTER TABLE submission
+    ADD COLUMN codeforces_id_lower VARCHAR(50) AS (LOWER(codeforces_id)) STORED;
+
+-- 清理重复数据：同一群内同一用户名（不区分大小写）只保留最早的绑定，同一提交只保留最早的一条
+DELETE later FROM group_user later
+    JOIN group_user earlier
+        ON later.group_id = earlier.group_id
+        AND later.codeforces_id_lower = earlier.codeforces_id_lower
+        AND later.id > earlier.id;
+
+DELETE later FROM submission later
+    JOIN submission earlier
+        ON later.submission_id = earlier.submission_id
+        AND later.id > earlier.id;
+
+-- 按群查用户名（/bind 去重检查、解绑）；同时覆盖按群、按 QQ 号的查询
+ALTER TABLE group_user
+    ADD UNIQUE KEY uk_group_user_group_handle (group_id, codeforces_id_lower),
+    ADD KEY idx_group_user_group_qq (group_id, user_qq_id, codeforces_id_lower),
+    -- 按用户名查群和 QQ 号（推送通知、全部用户名枚举）
+    ADD KEY idx_group_user_handle (codeforces_id_lower, group_id, user_qq_id);
+
+-- 按提交 ID 去重；按用户名、题目查询是否已通过（同时覆盖启动时加载已通过题目）
+ALTER TABLE submission
+    ADD UNIQUE KEY uk_submission_id (submission_id),
+    ADD KEY idx_submission_handle_problem (codeforces_id_lower, problem_id);
@@ -0,0 +1,40 @@
+-- 按时间段汇总的过题统计，供 /rank 排行榜查询
+-- 写入新提交时在同一事务中累加，查询排行榜只读取群内用户在当前时间段的各一行，与 submission 表的大小无关
+-- bucket_type 为 day、week、month；bucket_start 为该时间段第一天的日期（周从周一开始）
+CREATE TABLE IF NOT EXISTS solve_stats (
+    bucket_type VARCHAR(8) NOT NULL,
+    bucket_start DATE NOT NULL,
+    codeforces_id_lower VARCHAR(50) NOT NULL,
+    solve_count INT NOT NULL DEFAULT 0,
+    -- 题目难度之和与最大值，难度未知的题目计为 0
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    max_rating INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (bucket_type, bucket_start, codeforces_id_lower)
+);
+
+-- 由已有的过题记录回填统计，难度取自 problem 表
+-- 时间段按 UTC+8 划分，与 rank.time.zone 的默认值 Asia/Shanghai 一致
+INSERT INTO solve_stats (bucket_type, bucket_start, codeforces_id_lower, solve_count, rating_sum, max_rating)
+SELECT 'day', solved.solve_date, solved.codeforces_id_lower, COUNT(*), SUM(solved.rating), MAX(solved.rating)
+FROM (
+    SELECT s.codeforces_id_lower, DATE(DATE_ADD(s.submission_time, INTERVAL 8 HOUR)) AS solve_date,
+           COALESCE(p.rating, 0) AS rating
+    FROM submission s
+        LEFT JOIN problem p ON p.problem_id = s.problem_id
+    WHERE s.submission_time IS NOT NULL
+) solved
+GROUP BY solved.solve_date, solved.codeforces_id_lower;
+
+INSERT INTO solve_stats (bucket_type, bucket_start, codeforces_id_lower, solve_count, rating_sum, max_rating)
+SELECT 'week', DATE_SUB(bucket_start, INTERVAL WEEKDAY(bucket_start) DAY) AS week_start, codeforces_id_lower,
+       SUM(solve_count), SUM(rating_sum), MAX(max_rating)
+FROM solve_stats
+WHERE bucket_type = 'day'
+GROUP BY week_start, codeforces_id_lower;
+
+INSERT INTO solve_stats (bucket_type, bucket_start, codeforces_id_lower, solve_count, rating_sum, max_rating)
+SELECT 'month', DATE_SUB(bucket_start, INTERVAL DAYOFMONTH(bucket_start) - 1 DAY) AS month_start, codeforces_id_lower,
+       SUM(solve_count), SUM(rating_sum), MAX(max_rating)
+FROM solve_stats
+WHERE bucket_type = 'day'
+GROUP BY month_start, codeforces_id_lower;
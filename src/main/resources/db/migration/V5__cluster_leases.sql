@@ -0,0 +1,18 @@
+-- 多实例部署：节点成员与租约
+-- 时间一律取数据库的 NOW(3)，不依赖各节点的时钟
+
+-- 存活节点：每个节点定期续约，lease_expires_at 过期的节点视为已下线，其负责的用户由其余节点接管
+CREATE TABLE IF NOT EXISTS cluster_node (
+    node_id VARCHAR(100) PRIMARY KEY,
+    host VARCHAR(255),
+    started_at DATETIME(3) NOT NULL,
+    lease_expires_at DATETIME(3) NOT NULL,
+    KEY idx_cluster_node_lease (lease_expires_at)
+);
+
+-- 命名租约：同一时刻只有一个节点持有，如 leader 负责处理群指令和发送汇总
+CREATE TABLE IF NOT EXISTS cluster_lease (
+    name VARCHAR(50) PRIMARY KEY,
+    owner VARCHAR(100) NOT NULL,
+    expires_at DATETIME(3) NOT NULL
+);
@@ -0,0 +1,25 @@
+-- 过题通知发件箱
+-- 新提交写入 submission 的同一事务中，为其所在的每个群组写入一行待发送通知；由发送线程按 id 顺序读取并发送，
+-- 发送成功后标记为已发送，失败时按退避间隔重试。进程在写库与发送之间退出时，重启后仍会补发
+
+-- status：0 待发送，1 已发送，2 多次失败后放弃
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    group_id VARCHAR(50) NOT NULL,
+    submission_id VARCHAR(20) NOT NULL,
+    -- 通知中显示的用户名（保留原大小写）和题目信息，如 "1234A (1500)"
+    codeforces_id VARCHAR(50) NOT NULL,
+    problem_info VARCHAR(100) NOT NULL,
+    submission_time DATETIME,
+    status TINYINT NOT NULL DEFAULT 0,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(3) NOT NULL,
+    created_at DATETIME(3) NOT NULL,
+    sent_at DATETIME(3),
+    -- 同一提交在同一群组只通知一次
+    UNIQUE KEY uk_outbox_submission_group (submission_id, group_id),
+    -- 读取到期的待发送通知；清理已发送的通知
+    KEY idx_outbox_status_next_attempt (status, next_attempt_at),
+    -- 查询群组最早的待发送通知，保证同一群组按顺序发送
+    KEY idx_outbox_group_status (group_id, status, id)
+);
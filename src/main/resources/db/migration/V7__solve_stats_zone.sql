@@ -0,0 +1,9 @@
+-- 过题统计划分时间段所用的时区
+-- V4 按固定的 UTC+8 回填，与 rank.time.zone 的默认值 Asia/Shanghai 一致；
+-- 启动时如果 rank.time.zone 与这里记录的时区不同，SolveStatistics 会按配置的时区由 submission 表重建 solve_stats
+CREATE TABLE IF NOT EXISTS solve_stats_zone (
+    id TINYINT PRIMARY KEY,
+    zone_id VARCHAR(64) NOT NULL
+);
+
+INSERT IGNORE INTO solve_stats_zone (id, zone_id) VALUES (1, 'Asia/Shanghai');
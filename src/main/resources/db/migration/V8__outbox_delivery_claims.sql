@@ -0,0 +1,7 @@
+-- 发件箱投递凭证：发送前先把通知标记为发送中并写入本次尝试的凭证，收到响应后凭凭证改为已发送或待重试。
+-- 进程在发送和标记之间退出时，通知停留在发送中；接手的发送线程不再重发这些通知，而是标记为未确认，
+-- 避免同一通知送达两次（OneBot 没有去重键，无法判断上次是否已送达）
+
+-- status 新增：3 发送中，4 未确认（发送中断，可能已送达，不再重发）
+ALTER TABLE notification_outbox
+    ADD COLUMN claim_token CHAR(36) NULL AFTER attempts;
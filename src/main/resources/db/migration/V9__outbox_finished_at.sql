@@ -0,0 +1,10 @@
+-- 通知结束发送（已发送、已放弃或未确认）的时间，清理时按它计算保留期
+-- 已有的结束记录以 sent_at 为准，没有 sent_at 的以最后一次计划发送的时间近似
+ALTER TABLE notification_outbox
+    ADD COLUMN finished_at DATETIME(3) NULL AFTER sent_at;
+
+UPDATE notification_outbox SET finished_at = COALESCE(sent_at, next_attempt_at) WHERE status IN (1, 2, 4);
+
+-- 清理结束较久的通知
+ALTER TABLE notification_outbox
+    ADD KEY idx_outbox_status_finished (status, finished_at);
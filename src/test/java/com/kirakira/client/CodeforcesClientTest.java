@@ -0,0 +1,72 @@
+package com.kirakira.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import com.kirakira.entity.SubmissionPage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CodeforcesClientTest {
+
+    /**
+     * 总是返回同一响应体的 RestTemplate
+     */
+    private static class CannedRestTemplate extends RestTemplate {
+        private final byte[] body;
+
+        CannedRestTemplate(String body) {
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+            return (T) body;
+        }
+    }
+
+    private static CodeforcesClient client(String body) {
+        return new CodeforcesClient(new CannedRestTemplate(body), new CodeforcesRateLimiter(1000, 10),
+            new SimpleMeterRegistry(), "https://codeforces.com/api", 30, 5, 100, 5);
+    }
+
+    private static String submission(long id, long creationTimeSeconds, String verdict) {
+        return "{\"id\":" + id + ",\"creationTimeSeconds\":" + creationTimeSeconds
+            + ",\"problem\":{\"contestId\":1,\"index\":\"A\"},\"author\":{\"members\":[{\"handle\":\"petr\"}]}"
+            + ",\"verdict\":\"" + verdict + "\"}";
+    }
+
+    @Test
+    void firstPollWithNothingRecentStillAdvancesCursor() {
+        // 最近的提交也在一天之前，超出 30 分钟的时间范围
+        long dayAgo = System.currentTimeMillis() / 1000 - 86400;
+        String body = "{\"status\":\"OK\",\"result\":["
+            + submission(300, dayAgo, "OK") + ","
+            + submission(200, dayAgo - 60, "WRONG_ANSWER") + "]}";
+
+        SubmissionPage page = client(body).getSubmissionsAfter("petr", null);
+
+        assertTrue(page.getAccepted().isEmpty());
+        assertEquals(Long.valueOf(300), page.getNextCursor());
+    }
+
+    @Test
+    void firstPollOnlyAnnouncesRecentAccepted() {
+        long now = System.currentTimeMillis() / 1000;
+        String body = "{\"status\":\"OK\",\"result\":["
+            + submission(300, now - 60, "OK") + ","
+            + submission(200, now - 86400, "OK") + "]}";
+
+        SubmissionPage page = client(body).getSubmissionsAfter("petr", null);
+
+        assertEquals(1, page.getAccepted().size());
+        assertEquals("300", page.getAccepted().get(0).getId());
+        assertEquals(Long.valueOf(300), page.getNextCursor());
+    }
+}
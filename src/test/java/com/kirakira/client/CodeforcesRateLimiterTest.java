@@ -0,0 +1,70 @@
+package com.kirakira.client;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class CodeforcesRateLimiterTest {
+
+    @Test
+    void burstIsServedImmediately() {
+        CodeforcesRateLimiter rateLimiter = new CodeforcesRateLimiter(1, 3);
+
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire();
+        }
+        assertTrue(elapsedMillis(startedAt) < 500, "突发额度内的请求不应等待");
+    }
+
+    @Test
+    void waitsForNextPermitAfterBurst() {
+        CodeforcesRateLimiter rateLimiter = new CodeforcesRateLimiter(10, 1);
+
+        long startedAt = System.nanoTime();
+        rateLimiter.acquire();
+        rateLimiter.acquire();
+        rateLimiter.acquire();
+        long elapsed = elapsedMillis(startedAt);
+        // 第二、三个令牌各需等待 100 ms
+        assertTrue(elapsed >= 190, "elapsed " + elapsed + " ms");
+        assertTrue(elapsed < 1000, "elapsed " + elapsed + " ms");
+    }
+
+    @Test
+    void concurrentCallersShareTheRate() throws InterruptedException {
+        CodeforcesRateLimiter rateLimiter = new CodeforcesRateLimiter(20, 1);
+
+        long startedAt = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 3; j++) {
+                    rateLimiter.acquire();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = elapsedMillis(startedAt);
+        // 12 个令牌中除第一个外都需按 50 ms 的间隔预约，并发调用不能越过总速率
+        assertTrue(elapsed >= 540, "elapsed " + elapsed + " ms");
+    }
+
+    @Test
+    void rejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new CodeforcesRateLimiter(0, 1));
+    }
+
+    private static long elapsedMillis(long startedAt) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+}
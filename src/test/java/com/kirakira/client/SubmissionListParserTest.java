@@ -0,0 +1,99 @@
+package com.kirakira.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+
+class SubmissionListParserTest {
+    private static final String RESPONSE = """
+        {"status":"OK","result":[
+          {"id":300,"contestId":1850,"creationTimeSeconds":1700000300,"relativeTimeSeconds":2147483647,
+           "problem":{"contestId":1850,"index":"F2","name":"Ant","type":"PROGRAMMING","rating":1800,"tags":["dp","math"]},
+           "author":{"contestId":1850,"members":[{"handle":"Tourist"}],"participantType":"PRACTICE","ghost":false},
+           "programmingLanguage":"C++17","verdict":"OK","testset":"TESTS","passedTestCount":40,"timeConsumedMillis":31},
+          {"id":200,"creationTimeSeconds":1700000200,
+           "problem":{"contestId":1,"index":"A","name":"Theatre Square","rating":null},
+           "author":{"members":[{"handle":"petr","name":"Petr"}]},
+           "verdict":"TESTING"},
+          {"id":100,"creationTimeSeconds":1700000100,
+           "problem":{"contestId":1,"index":"B"},
+           "author":{"members":[{"handle":"petr"}]},
+           "verdict":"WRONG_ANSWER"}
+        ]}
+        """;
+
+    @Test
+    void readsMonitoredFields() throws IOException {
+        SubmissionListParser.Result result = parse(RESPONSE, submission -> false);
+
+        assertEquals("OK", result.getStatus());
+        assertFalse(result.isStopped());
+        List<CfSubmissionDto> submissions = result.getSubmissions();
+        assertEquals(3, submissions.size());
+
+        CfSubmissionDto first = submissions.get(0);
+        assertEquals("300", first.getId());
+        assertEquals(LocalDateTime.of(2023, 11, 14, 22, 18, 20), first.getCreationTime());
+        assertEquals("OK", first.getVerdict());
+        assertEquals(Integer.valueOf(1850), first.getProblem().getContestId());
+        assertEquals("F2", first.getProblem().getIndex());
+        assertEquals(Integer.valueOf(1800), first.getProblem().getRating());
+        assertNull(first.getProblem().getTags());
+        assertEquals("Tourist", first.getAuthor().getMembers().get(0).getHandle());
+
+        // null 字段保持未设置
+        assertNull(submissions.get(1).getProblem().getRating());
+        assertEquals("TESTING", submissions.get(1).getVerdict());
+    }
+
+    @Test
+    void stopsAtFirstMatchingSubmission() throws IOException {
+        SubmissionListParser.Result result = parse(RESPONSE, submission -> Long.parseLong(submission.getId()) <= 200);
+
+        assertTrue(result.isStopped());
+        assertEquals(1, result.getSubmissions().size());
+        assertEquals("300", result.getSubmissions().get(0).getId());
+    }
+
+    @Test
+    void stopsWithoutReadingTruncatedTail() throws IOException {
+        // 满足停止条件后不再读取剩余内容，即使剩余部分不完整
+        String truncated = RESPONSE.substring(0, RESPONSE.indexOf("{\"id\":100"));
+        SubmissionListParser.Result result = parse(truncated, submission -> "200".equals(submission.getId()));
+
+        assertTrue(result.isStopped());
+        assertEquals(1, result.getSubmissions().size());
+    }
+
+    @Test
+    void readsFailureComment() throws IOException {
+        SubmissionListParser.Result result = parse(
+            "{\"status\":\"FAILED\",\"comment\":\"handle: User with handle nobody not found\"}", submission -> false);
+
+        assertEquals("FAILED", result.getStatus());
+        assertEquals("handle: User with handle nobody not found", result.getComment());
+        assertTrue(result.getSubmissions().isEmpty());
+    }
+
+    @Test
+    void rejectsNonObjectResponse() {
+        assertThrows(IOException.class, () -> parse("[]", submission -> false));
+    }
+
+    private static SubmissionListParser.Result parse(String body, Predicate<CfSubmissionDto> stopAt)
+            throws IOException {
+        return SubmissionListParser.parse(body.getBytes(StandardCharsets.UTF_8), stopAt);
+    }
+}
@@ -0,0 +1,40 @@
+package com.kirakira.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ClusterMembershipTest {
+
+    @Test
+    void standaloneNodeOwnsEverythingAndLeads() {
+        ClusterMembership membership = new ClusterMembership(null, new SimpleMeterRegistry(), false, "", 30000, 10000, 128);
+
+        assertTrue(membership.isLeader());
+        assertTrue(membership.owns("tourist"));
+        assertEquals(List.of("a", "b"), membership.filterOwned(List.of("a", "b")));
+        membership.destroy();
+    }
+
+    @Test
+    void rejectsHeartbeatIntervalCloseToLeaseTtl() {
+        assertThrows(IllegalStateException.class,
+            () -> new ClusterMembership(null, new SimpleMeterRegistry(), true, "n1", 30000, 10001, 128));
+        assertThrows(IllegalStateException.class,
+            () -> new ClusterMembership(null, new SimpleMeterRegistry(), true, "n1", 30000, 0, 128));
+    }
+
+    @Test
+    void acceptsHeartbeatIntervalWithinThirdOfTtl() {
+        ClusterMembership membership = new ClusterMembership(null, new SimpleMeterRegistry(), true, "n1", 30000, 10000, 128);
+        // 尚未续约时租约无效，不负责任何用户
+        assertEquals(List.of(), membership.filterOwned(List.of("tourist")));
+        assertEquals("n1", membership.getNodeId());
+    }
+}
@@ -0,0 +1,296 @@
+package com.kirakira.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.kirakira.client.OverflowClient;
+import com.kirakira.entity.OutboxNotification;
+import com.kirakira.repository.NotificationOutboxRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NotificationOutboxTest {
+    private static final int PENDING = 0;
+    private static final int SENT = 1;
+    private static final int ABANDONED = 2;
+    private static final int SENDING = 3;
+
+    private FakeOutboxRepository repository;
+    private List<String> delivered;
+    private Map<String, Integer> failuresLeft;
+    private Map<String, Integer> partialLimit;
+    private NotificationOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        repository = new FakeOutboxRepository();
+        delivered = new ArrayList<>();
+        failuresLeft = new HashMap<>();
+        partialLimit = new HashMap<>();
+        OverflowClient overflowClient = new OverflowClient(null, 3000, 3) {
+            @Override
+            public CompletableFuture<Integer> sendLinesInOrder(String groupId, List<String> lines) {
+                if (failuresLeft.merge(groupId, -1, Integer::sum) >= 0) {
+                    return CompletableFuture.completedFuture(0);
+                }
+                // 只送达前 partialLimit 行，模拟拆分后后面的消息发送失败
+                int sentCount = Math.min(lines.size(), partialLimit.getOrDefault(groupId, lines.size()));
+                partialLimit.remove(groupId);
+                lines.subList(0, sentCount).forEach(line -> delivered.add(groupId + ":" + line));
+                return CompletableFuture.completedFuture(sentCount);
+            }
+        };
+        ClusterMembership standalone = new ClusterMembership(null, new SimpleMeterRegistry(), false, "", 30000, 10000, 128);
+        outbox = new NotificationOutbox(repository, overflowClient, standalone, new SimpleMeterRegistry(),
+            200, 1000, 5000, 60000, 3, 72);
+    }
+
+    @Test
+    void backoffDoublesUpToMaximum() {
+        assertEquals(5000, outbox.backoff(0));
+        assertEquals(5000, outbox.backoff(1));
+        assertEquals(10000, outbox.backoff(2));
+        assertEquals(40000, outbox.backoff(4));
+        assertEquals(60000, outbox.backoff(5));
+        assertEquals(60000, outbox.backoff(100));
+    }
+
+    @Test
+    void sendsAndMarksNotificationsSent() {
+        repository.enqueue("g1", "u1");
+        repository.enqueue("g2", "u2");
+        repository.enqueue("g1", "u3");
+
+        outbox.drain();
+
+        assertEquals(3, delivered.size());
+        assertTrue(delivered.get(0).startsWith("g1:") && delivered.get(1).startsWith("g1:"));
+        repository.rows.values().forEach(row -> assertEquals(SENT, row.status));
+    }
+
+    @Test
+    void failedGroupIsRetriedWithoutBlockingOthers() {
+        failuresLeft.put("g1", 1);
+        repository.enqueue("g1", "u1");
+        repository.enqueue("g2", "u2");
+
+        outbox.drain();
+
+        assertEquals(1, delivered.size());
+        assertTrue(delivered.get(0).startsWith("g2:"));
+        Row failed = repository.rows.get(1L);
+        assertEquals(PENDING, failed.status);
+        assertEquals(1, failed.attempts);
+        assertEquals(Long.valueOf(5000L), repository.deferredMs.get("g1"));
+
+        repository.makeAllDue();
+        outbox.drain();
+        assertEquals(SENT, repository.rows.get(1L).status);
+    }
+
+    @Test
+    void abandonsAfterMaxAttempts() {
+        failuresLeft.put("g1", 10);
+        repository.enqueue("g1", "u1");
+
+        for (int i = 0; i < 3; i++) {
+            repository.makeAllDue();
+            outbox.drain();
+        }
+
+        assertEquals(ABANDONED, repository.rows.get(1L).status);
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    void partiallyDeliveredBatchOnlyRetriesTheRest() {
+        partialLimit.put("g1", 1);
+        repository.enqueue("g1", "u1");
+        repository.enqueue("g1", "u2");
+
+        outbox.drain();
+
+        assertEquals(SENT, repository.rows.get(1L).status);
+        assertEquals(PENDING, repository.rows.get(2L).status);
+        assertEquals(1, repository.rows.get(2L).attempts);
+
+        repository.makeAllDue();
+        outbox.drain();
+        assertEquals(SENT, repository.rows.get(2L).status);
+        // 已送达的通知没有重发
+        assertEquals(2, delivered.size());
+        assertTrue(delivered.get(1).contains("u2"));
+    }
+
+    @Test
+    void interruptedSendIsResent() {
+        // 上次进程在发送后、标记前退出，留下发送中的通知
+        Row interrupted = repository.enqueue("g1", "u1");
+        interrupted.status = SENDING;
+        interrupted.claimToken = "stale";
+        repository.enqueue("g1", "u2");
+
+        outbox.drain();
+
+        assertEquals(SENT, repository.rows.get(1L).status);
+        assertEquals(SENT, repository.rows.get(2L).status);
+        assertEquals(2, delivered.size());
+        // 原发送线程的凭证已失效，不能再改动通知状态
+        assertEquals(0, repository.markSent(List.of(1L), "stale"));
+    }
+
+    private static class Row {
+        private final OutboxNotification notification;
+        private int status = PENDING;
+        private int attempts;
+        private String claimToken;
+        private boolean due = true;
+
+        Row(OutboxNotification notification) {
+            this.notification = notification;
+        }
+
+        OutboxNotification snapshot() {
+            return OutboxNotification.builder()
+                .id(notification.getId())
+                .groupId(notification.getGroupId())
+                .submissionId(notification.getSubmissionId())
+                .codeforcesId(notification.getCodeforcesId())
+                .problemInfo(notification.getProblemInfo())
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .due(due)
+                .build();
+        }
+    }
+
+    /**
+     * 按 SQL 的条件在内存中模拟发件箱表
+     */
+    private static class FakeOutboxRepository extends NotificationOutboxRepository {
+        private final TreeMap<Long, Row> rows = new TreeMap<>();
+        private final Map<String, Long> deferredMs = new HashMap<>();
+
+        FakeOutboxRepository() {
+            super(null);
+        }
+
+        Row enqueue(String groupId, String codeforcesId) {
+            long id = rows.size() + 1;
+            Row row = new Row(OutboxNotification.builder()
+                .id(id)
+                .groupId(groupId)
+                .submissionId(String.valueOf(id))
+                .codeforcesId(codeforcesId)
+                .problemInfo("1A")
+                .build());
+            rows.put(id, row);
+            return row;
+        }
+
+        void makeAllDue() {
+            rows.values().forEach(row -> row.due = true);
+        }
+
+        @Override
+        public List<OutboxNotification> enumerateDue(int limit) {
+            return rows.values().stream()
+                .filter(row -> row.status == PENDING && row.due)
+                .limit(limit)
+                .map(Row::snapshot)
+                .toList();
+        }
+
+        @Override
+        public Map<String, OutboxNotification> enumerateGroupHeads(Collection<String> groupIds) {
+            Map<String, OutboxNotification> heads = new HashMap<>();
+            for (Row row : rows.values()) {
+                if (row.status == PENDING && groupIds.contains(row.notification.getGroupId())) {
+                    heads.putIfAbsent(row.notification.getGroupId(), row.snapshot());
+                }
+            }
+            return heads;
+        }
+
+        @Override
+        public int claim(List<Long> ids, String claimToken) {
+            return update(ids, PENDING, null, row -> {
+                row.status = SENDING;
+                row.claimToken = claimToken;
+            });
+        }
+
+        @Override
+        public void release(List<Long> ids, String claimToken) {
+            update(ids, SENDING, claimToken, row -> {
+                row.status = PENDING;
+                row.claimToken = null;
+            });
+        }
+
+        @Override
+        public int markSent(List<Long> ids, String claimToken) {
+            return update(ids, SENDING, claimToken, row -> row.status = SENT);
+        }
+
+        @Override
+        public int markAbandoned(List<Long> ids, String claimToken) {
+            return update(ids, SENDING, claimToken, row -> row.status = ABANDONED);
+        }
+
+        @Override
+        public void recordFailure(String groupId, List<Long> ids, String claimToken, long delayMs) {
+            update(ids, SENDING, claimToken, row -> {
+                row.status = PENDING;
+                row.claimToken = null;
+                row.attempts++;
+            });
+            deferredMs.put(groupId, delayMs);
+            rows.values().stream()
+                .filter(row -> row.status == PENDING && row.notification.getGroupId().equals(groupId))
+                .forEach(row -> row.due = false);
+        }
+
+        @Override
+        public void deferGroupUntil(String groupId, LocalDateTime nextAttemptAt) {
+        }
+
+        @Override
+        public int requeueInterrupted() {
+            int requeued = 0;
+            for (Row row : rows.values()) {
+                if (row.status == SENDING) {
+                    row.status = PENDING;
+                    row.claimToken = null;
+                    requeued++;
+                }
+            }
+            return requeued;
+        }
+
+        private int update(List<Long> ids, int expectedStatus, String claimToken, Consumer<Row> change) {
+            int updated = 0;
+            for (Long id : ids) {
+                Row row = rows.get(id);
+                if (row != null && row.status == expectedStatus && (claimToken == null || claimToken.equals(row.claimToken))) {
+                    change.accept(row);
+                    updated++;
+                }
+            }
+            return updated;
+        }
+    }
+}
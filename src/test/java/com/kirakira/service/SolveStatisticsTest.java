@@ -0,0 +1,101 @@
+package com.kirakira.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.kirakira.entity.SolveStats;
+import com.kirakira.entity.Submission;
+import com.kirakira.service.SolveStatistics.Period;
+
+class SolveStatisticsTest {
+
+    @Test
+    void bucketStartOfEachPeriod() {
+        LocalDate thursday = LocalDate.of(2024, 2, 29);
+        assertEquals(thursday, Period.DAY.bucketStart(thursday));
+        assertEquals(LocalDate.of(2024, 2, 26), Period.WEEK.bucketStart(thursday));
+        assertEquals(LocalDate.of(2024, 2, 1), Period.MONTH.bucketStart(thursday));
+
+        // 周从周一开始，周日属于前一周
+        LocalDate sunday = LocalDate.of(2024, 3, 3);
+        assertEquals(LocalDate.of(2024, 2, 26), Period.WEEK.bucketStart(sunday));
+        LocalDate monday = LocalDate.of(2024, 3, 4);
+        assertEquals(monday, Period.WEEK.bucketStart(monday));
+    }
+
+    @Test
+    void parsesPeriodNames() {
+        assertEquals(Period.WEEK, Period.parse("Week"));
+        assertEquals(Period.DAY, Period.parse("day"));
+        assertNull(Period.parse("year"));
+    }
+
+    @Test
+    void bucketsByConfiguredZone() {
+        SolveStatistics statistics = new SolveStatistics(null, null, null, "Asia/Shanghai");
+        // UTC 周日 16:30 在 UTC+8 已是周一 00:30，UTC 周日 15:59 在 UTC+8 仍是周日 23:59
+        Map<String, SolveStats> stats = byKey(statistics.aggregate(List.of(
+            submission("Tourist", LocalDateTime.of(2024, 3, 3, 16, 30), 1800),
+            submission("tourist", LocalDateTime.of(2024, 3, 3, 15, 59), null))));
+
+        assertEquals(1, stats.get("day/2024-03-04/tourist").getSolveCount());
+        assertEquals(1, stats.get("day/2024-03-03/tourist").getSolveCount());
+        assertEquals(1, stats.get("week/2024-03-04/tourist").getSolveCount());
+        assertEquals(1, stats.get("week/2024-02-26/tourist").getSolveCount());
+        assertEquals(2, stats.get("month/2024-03-01/tourist").getSolveCount());
+        assertEquals(5, stats.size());
+    }
+
+    @Test
+    void sameZoneAsUtcKeepsUtcDates() {
+        SolveStatistics statistics = new SolveStatistics(null, null, null, "UTC");
+        Map<String, SolveStats> stats = byKey(statistics.aggregate(List.of(
+            submission("petr", LocalDateTime.of(2024, 3, 3, 16, 30), 1500))));
+
+        assertTrue(stats.containsKey("day/2024-03-03/petr"));
+        assertTrue(stats.containsKey("week/2024-02-26/petr"));
+    }
+
+    @Test
+    void mergesSubmissionsOfSameBucket() {
+        SolveStatistics statistics = new SolveStatistics(null, null, null, "Asia/Shanghai");
+        Map<String, SolveStats> stats = byKey(statistics.aggregate(List.of(
+            submission("petr", LocalDateTime.of(2024, 5, 1, 2, 0), 1500),
+            submission("Petr", LocalDateTime.of(2024, 5, 1, 3, 0), 2400),
+            submission("petr", LocalDateTime.of(2024, 5, 1, 4, 0), null),
+            submission("petr", null, 3000))));
+
+        SolveStats day = stats.get("day/2024-05-01/petr");
+        assertEquals(3, day.getSolveCount());
+        // 难度未知计为 0，没有提交时间的提交不计入
+        assertEquals(3900L, day.getRatingSum());
+        assertEquals(2400, day.getMaxRating());
+        assertEquals(3, stats.size());
+    }
+
+    private static Submission submission(String handle, LocalDateTime submissionTime, Integer rating) {
+        return Submission.builder()
+            .codeforcesId(handle)
+            .problemId("1A")
+            .submissionTime(submissionTime)
+            .rating(rating)
+            .build();
+    }
+
+    private static Map<String, SolveStats> byKey(List<SolveStats> stats) {
+        Map<String, SolveStats> byKey = new HashMap<>();
+        for (SolveStats row : stats) {
+            byKey.put(row.getBucketType() + "/" + row.getBucketStart() + "/" + row.getCodeforcesId(), row);
+        }
+        return byKey;
+    }
+}
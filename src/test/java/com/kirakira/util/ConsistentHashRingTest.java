@@ -0,0 +1,100 @@
+package com.kirakira.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+    private static final int KEYS = 20_000;
+    private static final int VIRTUAL_NODES = 128;
+
+    @Test
+    void emptyRingHasNoOwner() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), VIRTUAL_NODES);
+        assertTrue(ring.isEmpty());
+        assertNull(ring.ownerOf("tourist"));
+    }
+
+    @Test
+    void singleNodeOwnsEverything() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a"), VIRTUAL_NODES);
+        for (String key : keys()) {
+            assertEquals("a", ring.ownerOf(key));
+        }
+    }
+
+    @Test
+    void assignmentDoesNotDependOnNodeOrder() {
+        // 各节点读取到的存活节点顺序可能不同，得到的分配必须一致
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"), VIRTUAL_NODES);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("c", "a", "b"), VIRTUAL_NODES);
+        for (String key : keys()) {
+            assertEquals(ring.ownerOf(key), reordered.ownerOf(key), key);
+        }
+    }
+
+    @Test
+    void spreadsKeysEvenly() {
+        Map<String, Integer> counts = ownership(new ConsistentHashRing(List.of("a", "b", "c", "d"), VIRTUAL_NODES));
+        assertEquals(4, counts.size());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            double share = entry.getValue() / (double) KEYS;
+            assertTrue(share > 0.17 && share < 0.33, entry.getKey() + " owns " + share);
+        }
+    }
+
+    @Test
+    void addingNodeOnlyMovesKeysToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c"), VIRTUAL_NODES);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "b", "c", "d"), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (String key : keys()) {
+            String oldOwner = before.ownerOf(key);
+            String newOwner = after.ownerOf(key);
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals("d", newOwner, key + " moved from " + oldOwner);
+                moved++;
+            }
+        }
+        // 约 1/4 的键改变归属
+        double movedShare = moved / (double) KEYS;
+        assertTrue(movedShare > 0.17 && movedShare < 0.33, "moved " + movedShare);
+    }
+
+    @Test
+    void removingNodeOnlyMovesItsKeys() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c"), VIRTUAL_NODES);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "c"), VIRTUAL_NODES);
+
+        for (String key : keys()) {
+            String oldOwner = before.ownerOf(key);
+            if (!"b".equals(oldOwner)) {
+                assertEquals(oldOwner, after.ownerOf(key), key);
+            }
+        }
+    }
+
+    private static List<String> keys() {
+        List<String> keys = new ArrayList<>(KEYS);
+        for (int i = 0; i < KEYS; i++) {
+            keys.add("user" + i);
+        }
+        return keys;
+    }
+
+    private static Map<String, Integer> ownership(ConsistentHashRing ring) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String key : keys()) {
+            counts.merge(ring.ownerOf(key), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
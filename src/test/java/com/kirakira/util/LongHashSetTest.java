@@ -0,0 +1,93 @@
+package com.kirakira.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class LongHashSetTest {
+
+    @Test
+    void addContainsRemove() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.contains(42));
+        assertEquals(1, set.size());
+
+        assertTrue(set.remove(42));
+        assertFalse(set.remove(42));
+        assertFalse(set.contains(42));
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        LongHashSet set = new LongHashSet(1);
+        long before = set.estimatedBytes();
+        for (long key = 1; key <= 10_000; key++) {
+            assertTrue(set.add(key));
+        }
+        assertEquals(10_000, set.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertTrue(set.contains(key), "missing " + key);
+        }
+        assertFalse(set.contains(10_001));
+        assertTrue(set.estimatedBytes() > before);
+    }
+
+    @Test
+    void matchesHashSetUnderRandomOperations() {
+        // 键取自很小的范围，制造大量探测冲突，覆盖删除后的探测链前移
+        Random random = new Random(20240601L);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(key), "remove " + key);
+            } else {
+                assertEquals(expected.add(key), set.add(key), "add " + key);
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long key = 1; key <= 2_000; key++) {
+            assertEquals(expected.contains(key), set.contains(key), "contains " + key);
+        }
+    }
+
+    @Test
+    void removeKeepsCollidingKeysReachable() {
+        LongHashSet set = new LongHashSet();
+        List<Long> keys = new ArrayList<>();
+        // 逐个删除，每次删除后剩余的键都必须仍能查到
+        for (long key = 1; key <= 6; key++) {
+            keys.add(key * 1024);
+            set.add(key * 1024);
+        }
+        for (Long key : keys) {
+            assertTrue(set.remove(key));
+            for (Long other : keys.subList(keys.indexOf(key) + 1, keys.size())) {
+                assertTrue(set.contains(other), "lost " + other + " after removing " + key);
+            }
+        }
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    void rejectsNonPositiveKeys() {
+        LongHashSet set = new LongHashSet();
+        assertThrows(IllegalArgumentException.class, () -> set.add(0));
+        assertThrows(IllegalArgumentException.class, () -> set.add(-5));
+        assertFalse(set.contains(0));
+        assertFalse(set.remove(-5));
+    }
+}
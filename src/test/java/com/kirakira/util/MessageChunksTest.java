@@ -0,0 +1,72 @@
+package com.kirakira.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MessageChunksTest {
+
+    @Test
+    void mergesLinesUpToLimit() {
+        List<String> chunks = MessageChunks.split(List.of("aaaa", "bbbb", "cccc"), 9);
+        // "aaaa\nbbbb" 正好 9 个字符
+        assertEquals(List.of("aaaa\nbbbb", "cccc"), chunks);
+    }
+
+    @Test
+    void keepsEverythingInOneChunkWhenShort() {
+        assertEquals(List.of("a\nb\nc"), MessageChunks.split(List.of("a", "b", "c"), 100));
+    }
+
+    @Test
+    void emptyInputProducesNoChunks() {
+        assertTrue(MessageChunks.split(List.of(), 10).isEmpty());
+    }
+
+    @Test
+    void hardSplitsOverlongLine() {
+        List<String> chunks = MessageChunks.split(List.of("ab", "0123456789", "c"), 6);
+        // 硬拆剩下的部分仍可与下一行合并
+        assertEquals(List.of("ab", "012345", "6789\nc"), chunks);
+    }
+
+    @Test
+    void groupsLinesLikeSplit() {
+        List<List<String>> groups = MessageChunks.group(List.of("aaaa", "bbbb", "cccc"), 9);
+        assertEquals(List.of(List.of("aaaa", "bbbb"), List.of("cccc")), groups);
+    }
+
+    @Test
+    void groupKeepsOverlongLineAlone() {
+        List<List<String>> groups = MessageChunks.group(List.of("ab", "0123456789", "c"), 6);
+        assertEquals(List.of(List.of("ab"), List.of("0123456789"), List.of("c")), groups);
+    }
+
+    @Test
+    void hardSplitDoesNotBreakSurrogatePairs() {
+        String emoji = "😀";
+        String line = "abc" + emoji + "def";
+        List<String> chunks = MessageChunks.split(List.of(line), 4);
+
+        // 第 4 个 char 是代理对的高位，拆分点退回到它之前
+        assertEquals(List.of("abc", emoji + "de", "f"), chunks);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 4);
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)), chunk);
+            assertFalse(Character.isLowSurrogate(chunk.charAt(0)), chunk);
+        }
+        assertEquals(line, String.join("", chunks));
+    }
+
+    @Test
+    void noChunkExceedsLimit() {
+        List<String> lines = List.of("x".repeat(25), "y".repeat(3), "z".repeat(7), "w");
+        for (String chunk : MessageChunks.split(lines, 8)) {
+            assertTrue(chunk.length() <= 8, chunk);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.kirakira.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ProblemKeyTest {
+
+    @Test
+    void roundTripsProblemIds() {
+        for (String problemId : List.of("1A", "1234A", "1850F2", "2000H", "100001A", "1234ABCDE")) {
+            long key = ProblemKey.encode(problemId);
+            assertTrue(key > 0, problemId + " -> " + key);
+            assertEquals(problemId, ProblemKey.decode(key));
+        }
+    }
+
+    @Test
+    void encodesContestIdAndIndexLikeProblemId() {
+        assertEquals(ProblemKey.encode("1850F2"), ProblemKey.encode(1850, "F2"));
+    }
+
+    @Test
+    void distinctProblemsGetDistinctKeys() {
+        Set<Long> keys = new HashSet<>();
+        for (int contestId = 1; contestId <= 300; contestId++) {
+            for (String index : List.of("A", "B", "B1", "B2", "C", "F2")) {
+                assertTrue(keys.add(ProblemKey.encode(contestId, index)), contestId + index);
+            }
+        }
+        // 比赛 ID 与题号的拼接有歧义时，编码必须仍然不同
+        assertNotEquals(ProblemKey.encode(12, "A"), ProblemKey.encode(1, "2A"));
+    }
+
+    @Test
+    void rejectsUnencodableProblems() {
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode((String) null));
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode(""));
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode("A"));
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode("1234"));
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode("1234ABCDEF"));
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode("12345678901A"));
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode(1234, "题"));
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode(null, "A"));
+        assertEquals(ProblemKey.INVALID, ProblemKey.encode(0, "A"));
+    }
+}
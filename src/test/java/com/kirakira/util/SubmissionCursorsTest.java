@@ -0,0 +1,76 @@
+package com.kirakira.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kirakira.entity.dto.codeforces.CfSubmissionDto;
+
+class SubmissionCursorsTest {
+
+    @Test
+    void advancesToMaxIdWhenAllFinal() {
+        List<CfSubmissionDto> fresh = List.of(submission(105, "OK"), submission(103, "WRONG_ANSWER"), submission(104, "OK"));
+        assertEquals(105L, SubmissionCursors.next(fresh, 100L));
+    }
+
+    @Test
+    void stopsBeforeEarliestPendingSubmission() {
+        List<CfSubmissionDto> fresh = List.of(submission(110, "OK"), submission(107, "TESTING"), submission(105, null));
+        // 105 仍在评测，游标只能推进到 104
+        assertEquals(104L, SubmissionCursors.next(fresh, 100L));
+    }
+
+    @Test
+    void neverMovesBackwards() {
+        List<CfSubmissionDto> fresh = List.of(submission(101, "SUBMITTED"));
+        assertEquals(100L, SubmissionCursors.next(fresh, 100L));
+        assertEquals(100L, SubmissionCursors.next(List.of(), 100L));
+    }
+
+    @Test
+    void startsFromZeroWithoutCursor() {
+        assertEquals(0L, SubmissionCursors.next(List.of(), null));
+        assertEquals(41L, SubmissionCursors.next(List.of(submission(42, "TESTING")), null));
+        assertEquals(42L, SubmissionCursors.next(List.of(submission(42, "OK")), null));
+    }
+
+    @Test
+    void sharedCursorSkipsUntrackedSubmissions() {
+        List<CfSubmissionDto> trackedFresh = List.of(submission(150, "OK"));
+        // 其余提交与被监控用户无关，游标直接推进到本次最大的 ID
+        assertEquals(200L, SubmissionCursors.nextShared(200L, trackedFresh, 100L));
+        assertEquals(200L, SubmissionCursors.nextShared(200L, List.of(), 100L));
+    }
+
+    @Test
+    void sharedCursorWaitsForTrackedPendingSubmission() {
+        List<CfSubmissionDto> trackedFresh = List.of(submission(180, "OK"), submission(150, "TESTING"));
+        assertEquals(149L, SubmissionCursors.nextShared(200L, trackedFresh, 100L));
+    }
+
+    @Test
+    void sharedCursorNeverMovesBackwards() {
+        assertEquals(300L, SubmissionCursors.nextShared(200L, List.of(), 300L));
+    }
+
+    @Test
+    void recognisesPendingVerdicts() {
+        assertTrue(SubmissionCursors.isPending(submission(1, null)));
+        assertTrue(SubmissionCursors.isPending(submission(1, "TESTING")));
+        assertTrue(SubmissionCursors.isPending(submission(1, "SUBMITTED")));
+        assertFalse(SubmissionCursors.isPending(submission(1, "OK")));
+        assertFalse(SubmissionCursors.isPending(submission(1, "COMPILATION_ERROR")));
+    }
+
+    private static CfSubmissionDto submission(long id, String verdict) {
+        CfSubmissionDto submission = new CfSubmissionDto();
+        submission.setId(id);
+        submission.setVerdict(verdict);
+        return submission;
+    }
+}